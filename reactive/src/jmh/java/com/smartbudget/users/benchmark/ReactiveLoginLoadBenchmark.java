@@ -0,0 +1,142 @@
+package com.smartbudget.users.benchmark;
+
+import com.smartbudget.users.reactive.ReactiveAuthApplication;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.r2dbc.core.DatabaseClient;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load test of /auth/login on WebFlux and R2DBC, the counterpart of LoginLoadBenchmark of the servlet service: same
+ * 256 closed-loop clients, hash cost, hashing queue and request, so the scores of the two result files compare
+ * directly. By default the reactive service runs embedded against H2 in PostgreSQL mode over R2DBC.
+ * <p>
+ * With {@code -p baseUrl=http://host:port} the same clients hit an already running instance instead, e.g. both
+ * variants started against one local Postgres container in turn; the load test user is registered first if needed.
+ * <p>
+ * After every iteration the peak number of live JVM threads and the Netty event loop threads are printed, for
+ * comparison with the Tomcat workers the servlet benchmark reports.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+@Threads(256)
+@State(Scope.Benchmark)
+public class ReactiveLoginLoadBenchmark {
+
+    private static final String REGISTER =
+            "{\"username\":\"load\",\"email\":\"load@example.com\",\"password\":\"benchmark-Password-1\"}";
+    private static final String LOGIN = "{\"email\":\"load@example.com\",\"password\":\"benchmark-Password-1\"}";
+
+    // The tables the auth endpoints use, as created by the Flyway migrations of the servlet service
+    private static final List<String> SCHEMA = List.of(
+            "CREATE SCHEMA IF NOT EXISTS users_auth",
+            "CREATE SEQUENCE IF NOT EXISTS users_auth.users_seq INCREMENT BY 50",
+            "CREATE TABLE IF NOT EXISTS users_auth.users (user_id BIGINT PRIMARY KEY, username VARCHAR(255), "
+                    + "password VARCHAR(255), email VARCHAR(255), active BOOLEAN NOT NULL, created_at TIMESTAMP, "
+                    + "last_login TIMESTAMP, CONSTRAINT uk_users_username UNIQUE (username), "
+                    + "CONSTRAINT uk_users_email UNIQUE (email))",
+            "CREATE TABLE IF NOT EXISTS users_auth.user_permissions (user_id BIGINT NOT NULL, "
+                    + "permission_id BIGINT NOT NULL, PRIMARY KEY (user_id, permission_id))",
+            "CREATE TABLE IF NOT EXISTS users_auth.user_events (event_id BIGINT GENERATED BY DEFAULT AS IDENTITY "
+                    + "PRIMARY KEY, event_type VARCHAR(16) NOT NULL, user_id BIGINT NOT NULL, username VARCHAR(255), "
+                    + "email VARCHAR(255), occurred_at TIMESTAMP NOT NULL)",
+            "CREATE TABLE IF NOT EXISTS users_auth.refresh_token_families (family_id UUID PRIMARY KEY, "
+                    + "subject VARCHAR(255) NOT NULL, current_token_id UUID NOT NULL, expires_at TIMESTAMP NOT NULL, "
+                    + "revoked BOOLEAN NOT NULL DEFAULT FALSE)",
+            "CREATE TABLE IF NOT EXISTS users_auth.revoked_access_tokens (token_id UUID PRIMARY KEY, "
+                    + "expires_at TIMESTAMP NOT NULL)");
+
+    // Empty: start the reactive service embedded
+    @Param({""})
+    public String baseUrl;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient client;
+    private HttpRequest login;
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+    @Setup
+    public void setUp() throws Exception {
+        URI base = baseUrl.isEmpty() ? URI.create("http://localhost:" + startEmbedded()) : URI.create(baseUrl);
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        HttpResponse<String> registered = client.send(HttpRequest.newBuilder(base.resolve("/auth/register"))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(REGISTER))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+        // 400: registered by an earlier run against the same database
+        if (registered.statusCode() != 200 && registered.statusCode() != 400) {
+            throw new IllegalStateException("Cannot register the load test user: " + registered.body());
+        }
+        login = HttpRequest.newBuilder(base.resolve("/auth/login"))
+                .header("Content-Type", "application/json")
+                .timeout(Duration.ofSeconds(30))
+                .POST(HttpRequest.BodyPublishers.ofString(LOGIN))
+                .build();
+    }
+
+    @Setup(Level.Iteration)
+    public void resetThreadPeak() {
+        threads.resetPeakThreadCount();
+    }
+
+    @TearDown(Level.Iteration)
+    public void printThreadCounts() {
+        long eventLoops = Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.getName().startsWith("reactor-http-"))
+                .count();
+        System.out.printf("%n[reactive] peak live threads: %d, Netty event loop threads: %d%n",
+                threads.getPeakThreadCount(), eventLoops);
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    @Benchmark
+    public int login() throws Exception {
+        int status = client.send(login, HttpResponse.BodyHandlers.discarding()).statusCode();
+        if (status != 200 && status != 503) {
+            throw new IllegalStateException("Unexpected login status " + status);
+        }
+        return status;
+    }
+
+    private int startEmbedded() {
+        // Production hash cost, and a hashing queue that holds every client, so logins queue instead of failing
+        context = new SpringApplicationBuilder(ReactiveAuthApplication.class).run(
+                "--server.port=0",
+                "--spring.r2dbc.url=r2dbc:h2:mem:///" + UUID.randomUUID()
+                        + "?options=DB_CLOSE_DELAY=-1;MODE=PostgreSQL",
+                "--spring.r2dbc.username=sa",
+                "--spring.r2dbc.password=",
+                "--logging.level.root=WARN",
+                "--auth.password.target-hash-millis=0",
+                "--auth.password.bcrypt-min-strength=10",
+                "--auth.hashing.queue-capacity=512",
+                "--auth.rate-limit.ip.per-minute=1000000000",
+                "--auth.rate-limit.email.per-minute=1000000000");
+        DatabaseClient databaseClient = context.getBean(DatabaseClient.class);
+        for (String statement : SCHEMA) {
+            databaseClient.sql(statement).then().block();
+        }
+        return Integer.parseInt(context.getEnvironment().getProperty("local.server.port"));
+    }
+}
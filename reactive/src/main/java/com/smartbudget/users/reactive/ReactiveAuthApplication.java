@@ -0,0 +1,48 @@
+package com.smartbudget.users.reactive;
+
+import com.smartbudget.users.config.JwtConfig;
+import com.smartbudget.users.config.PasswordEncoderConfig;
+import com.smartbudget.users.controller.ApiExceptionHandler;
+import com.smartbudget.users.security.ClientAddressResolver;
+import com.smartbudget.users.security.InMemoryAccessTokenDenylist;
+import com.smartbudget.users.security.InMemoryLoginRateLimiter;
+import com.smartbudget.users.security.InMemoryRefreshTokenStore;
+import com.smartbudget.users.security.JwtTokenProvider;
+import com.smartbudget.users.security.TokenRevocationFilter;
+import com.smartbudget.users.service.RefreshTokenService;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+/**
+ * The /auth API on WebFlux and R2DBC. No event loop thread waits: queries are non-blocking, password hashing runs
+ * on the bounded hashing pool of the shared {@link PasswordEncoderConfig}, and the shared, synchronous token stores
+ * run on the bounded elastic scheduler. Tokens, hashing and DTOs are the classes of the servlet service, imported
+ * here because they live outside this package. Refresh token families and revoked access tokens live in the servlet
+ * service's tables, so a token issued by one variant is rotated, revoked and rejected by the other.
+ */
+@SpringBootApplication
+@EnableScheduling
+@Import({JwtConfig.class, PasswordEncoderConfig.class, ApiExceptionHandler.class, JwtTokenProvider.class,
+        TokenRevocationFilter.class, InMemoryAccessTokenDenylist.class, InMemoryRefreshTokenStore.class,
+        InMemoryLoginRateLimiter.class, ClientAddressResolver.class, RefreshTokenService.class})
+public class ReactiveAuthApplication {
+
+    public static void main(String[] args) {
+        SpringApplication.run(ReactiveAuthApplication.class, args);
+    }
+
+    // The encoder bean is declared as a plain PasswordEncoder, so it is not found among the MeterBinder beans
+    @Bean
+    public MeterBinder passwordEncoderMetrics(PasswordEncoder passwordEncoder) {
+        return registry -> {
+            if (passwordEncoder instanceof MeterBinder) {
+                ((MeterBinder) passwordEncoder).bindTo(registry);
+            }
+        };
+    }
+}
@@ -0,0 +1,245 @@
+package com.smartbudget.users.reactive.controller;
+
+import com.smartbudget.users.dto.ErrorResponse;
+import com.smartbudget.users.dto.LoginRequest;
+import com.smartbudget.users.dto.MessageResponse;
+import com.smartbudget.users.dto.RefreshTokenRequest;
+import com.smartbudget.users.dto.RegisterRequest;
+import com.smartbudget.users.dto.TokensResponse;
+import com.smartbudget.users.reactive.repository.ReactiveUserRepository;
+import com.smartbudget.users.repository.UserCredentials;
+import com.smartbudget.users.repository.UserIdentity;
+import com.smartbudget.users.security.ClientAddressResolver;
+import com.smartbudget.users.security.JwtTokenProvider;
+import com.smartbudget.users.security.LoginRateLimiter;
+import com.smartbudget.users.security.OffloadingPasswordEncoder;
+import com.smartbudget.users.security.PermissionSet;
+import com.smartbudget.users.security.TokenVerification;
+import com.smartbudget.users.service.RefreshTokenService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import javax.annotation.PostConstruct;
+import java.net.InetSocketAddress;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * The contract of the servlet {@code AuthController} (same paths, DTOs, status codes and messages) without blocking:
+ * queries go through R2DBC and hashes through the bounded hashing pool, whose full queue answers 503 with
+ * Retry-After. Work after a hash moves to the parallel scheduler, so hashing threads only hash.
+ */
+@RestController
+@RequestMapping("/auth")
+public class ReactiveAuthController {
+
+    private final JwtTokenProvider jwtTokenProvider;
+    private final ReactiveUserRepository userRepository;
+    private final PasswordEncoder passwordEncoder;
+    private final RefreshTokenService refreshTokenService;
+    private final LoginRateLimiter loginRateLimiter;
+    private final ClientAddressResolver clientAddressResolver;
+
+    // Verified instead of a real hash when the email is unknown, so unknown and existing emails take equally long
+    private String dummyPasswordHash;
+
+    @Autowired
+    public ReactiveAuthController(JwtTokenProvider jwtTokenProvider, ReactiveUserRepository userRepository,
+                                  PasswordEncoder passwordEncoder, RefreshTokenService refreshTokenService,
+                                  LoginRateLimiter loginRateLimiter, ClientAddressResolver clientAddressResolver) {
+        this.jwtTokenProvider = jwtTokenProvider;
+        this.userRepository = userRepository;
+        this.passwordEncoder = passwordEncoder;
+        this.refreshTokenService = refreshTokenService;
+        this.loginRateLimiter = loginRateLimiter;
+        this.clientAddressResolver = clientAddressResolver;
+    }
+
+    @PostConstruct
+    void precomputeDummyPasswordHash() {
+        dummyPasswordHash = passwordEncoder.encode(UUID.randomUUID().toString());
+    }
+
+    @PostMapping("/register")
+    public Mono<ResponseEntity<?>> register(@RequestBody RegisterRequest registerRequest) {
+        return encode(registerRequest.getPassword())
+                .flatMap(encodedPassword -> userRepository.insert(registerRequest.getUsername(), encodedPassword,
+                        registerRequest.getEmail(), LocalDateTime.now()))
+                .<ResponseEntity<?>>map(userId ->
+                        ResponseEntity.ok(new MessageResponse("User registered successfully")))
+                // Insert optimistically: the unique constraints reject duplicates, also under concurrent signups
+                .onErrorResume(DataIntegrityViolationException.class, e -> duplicateUserMessage(registerRequest, e)
+                        .map(message -> ResponseEntity.badRequest()
+                                .body(new ErrorResponse(400, "Bad Request", message))));
+    }
+
+    @PostMapping("/login")
+    public Mono<ResponseEntity<?>> login(@RequestBody LoginRequest loginRequest, ServerHttpRequest request) {
+        // Before any lookup or hashing, so throttled attempts cost next to nothing
+        long retryAfterSeconds = loginRateLimiter.acquire(clientAddress(request), loginRequest.getEmail());
+        if (retryAfterSeconds > 0) {
+            return Mono.just(ResponseEntity.status(429)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                    .body(new ErrorResponse(429, "Too Many Requests", "Too many login attempts, please retry later")));
+        }
+        return userRepository.findByEmail(loginRequest.getEmail())
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .flatMap(user -> matches(loginRequest.getPassword(),
+                                user.map(UserCredentials::getPassword).orElse(dummyPasswordHash))
+                        .flatMap(matched -> user.isPresent() && matched
+                                ? issueTokens(user.get(), loginRequest.getPassword())
+                                : Mono.just(invalidCredentials())));
+    }
+
+    @PostMapping("/refresh-token")
+    public Mono<ResponseEntity<?>> refreshToken(@RequestBody RefreshTokenRequest refreshTokenRequest) {
+        return tokenStore(() -> jwtTokenProvider.verify(refreshTokenRequest.getRefreshToken()))
+                .filter(TokenVerification::isValid)
+                // Refresh tokens are single-use: a successful refresh also replaces the refresh token
+                .flatMap(verification -> tokenStore(() -> refreshTokenService.rotate(verification.getToken()))
+                        .flatMap(newRefreshToken -> {
+                            String username = verification.getToken().getSubject();
+                            return permissions(userRepository.findPermissionIdsByUsername(username).collectList())
+                                    .<ResponseEntity<?>>map(permissions -> ResponseEntity.ok(tokens(
+                                            jwtTokenProvider.generateToken(username, permissions, 3600),
+                                            newRefreshToken)));
+                        }))
+                .defaultIfEmpty(invalidRefreshToken());
+    }
+
+    @PostMapping("/logout")
+    public Mono<ResponseEntity<?>> logout(@RequestBody RefreshTokenRequest refreshTokenRequest,
+                                          @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false)
+                                          String authorization) {
+        return tokenStore(() -> {
+            TokenVerification verification = jwtTokenProvider.verify(refreshTokenRequest.getRefreshToken());
+            if (!verification.isValid() || !refreshTokenService.revoke(verification.getToken())) {
+                return invalidRefreshToken();
+            }
+            if (authorization != null && authorization.startsWith("Bearer ")) {
+                TokenVerification accessToken = jwtTokenProvider.verify(authorization.substring(7));
+                if (accessToken.isValid() && !accessToken.getToken().isRefreshToken()) {
+                    jwtTokenProvider.revoke(accessToken.getToken());
+                }
+            }
+            return ResponseEntity.ok(new MessageResponse("Logged out successfully"));
+        });
+    }
+
+    private Mono<ResponseEntity<?>> issueTokens(UserCredentials user, String rawPassword) {
+        return permissions(userRepository.findPermissionIds(user.getId()).collectList())
+                .zipWith(tokenStore(() -> refreshTokenService.issue(user.getUsername())))
+                .flatMap(issued -> {
+                    String accessToken = jwtTokenProvider.generateToken(user.getUsername(), issued.getT1(), 3600);
+                    String refreshToken = issued.getT2();
+                    LocalDateTime now = LocalDateTime.now();
+                    // The raw password is only available here, so stale hashes are upgraded on a successful login
+                    Mono<Void> update = passwordEncoder.upgradeEncoding(user.getPassword())
+                            ? encode(rawPassword).flatMap(encodedPassword ->
+                            userRepository.updatePasswordAndLastLogin(user.getId(), encodedPassword, now))
+                            : userRepository.updateLastLogin(user.getId(), now);
+                    return update.<ResponseEntity<?>>thenReturn(ResponseEntity.ok(tokens(accessToken, refreshToken)));
+                });
+    }
+
+    /**
+     * Work that reaches the refresh-token store or the access-token denylist. Both are shared with the servlet service
+     * and wait for the database, so they run on the bounded elastic scheduler instead of an event loop thread. An
+     * empty result ({@code null}) completes the {@link Mono} empty.
+     */
+    private static <T> Mono<T> tokenStore(Callable<T> call) {
+        return Mono.fromCallable(call).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private static Mono<PermissionSet> permissions(Mono<List<Long>> permissionIds) {
+        return permissionIds.map(ids -> ids.isEmpty() ? PermissionSet.EMPTY : PermissionSet.of(ids));
+    }
+
+    private Mono<String> encode(String rawPassword) {
+        if (passwordEncoder instanceof OffloadingPasswordEncoder) {
+            OffloadingPasswordEncoder offloading = (OffloadingPasswordEncoder) passwordEncoder;
+            return offloaded(() -> offloading.encodeAsync(rawPassword));
+        }
+        return Mono.fromCallable(() -> passwordEncoder.encode(rawPassword)).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private Mono<Boolean> matches(String rawPassword, String encodedPassword) {
+        if (passwordEncoder instanceof OffloadingPasswordEncoder) {
+            OffloadingPasswordEncoder offloading = (OffloadingPasswordEncoder) passwordEncoder;
+            return offloaded(() -> offloading.matchesAsync(rawPassword, encodedPassword));
+        }
+        return Mono.fromCallable(() -> passwordEncoder.matches(rawPassword, encodedPassword))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * A hash on the hashing pool; the stages after it run on the parallel scheduler. A full queue fails it with
+     * {@link com.smartbudget.users.security.PasswordHashingUnavailableException}, answered with 503.
+     */
+    private static <T> Mono<T> offloaded(Supplier<CompletableFuture<T>> hashing) {
+        return Mono.defer(() -> Mono.fromFuture(hashing.get())).publishOn(Schedulers.parallel());
+    }
+
+    private Mono<String> duplicateUserMessage(RegisterRequest registerRequest, DataIntegrityViolationException e) {
+        return userRepository.findByUsernameOrEmail(registerRequest.getUsername(), registerRequest.getEmail())
+                .collectList()
+                .flatMap(conflicts -> {
+                    if (conflicts.stream().map(UserIdentity::getUsername)
+                            .anyMatch(username -> Objects.equals(username, registerRequest.getUsername()))) {
+                        return Mono.just("User already exists");
+                    }
+                    if (!conflicts.isEmpty()) {
+                        return Mono.just("Email already exists");
+                    }
+                    // The conflicting row is already gone; fall back to the violated constraint
+                    String message = String.valueOf(e.getMessage());
+                    if (message.contains("uk_users_email")) {
+                        return Mono.just("Email already exists");
+                    }
+                    if (message.contains("uk_users_username")) {
+                        return Mono.just("User already exists");
+                    }
+                    return Mono.error(e);
+                });
+    }
+
+    private String clientAddress(ServerHttpRequest request) {
+        InetSocketAddress address = request.getRemoteAddress();
+        return clientAddressResolver.resolve(
+                address != null && address.getAddress() != null ? address.getAddress().getHostAddress() : null,
+                request.getHeaders().get(ClientAddressResolver.FORWARDED_FOR));
+    }
+
+    private static TokensResponse tokens(String accessToken, String refreshToken) {
+        TokensResponse tokens = new TokensResponse();
+        tokens.setAccessToken(accessToken);
+        tokens.setRefreshToken(refreshToken);
+        return tokens;
+    }
+
+    private static ResponseEntity<?> invalidCredentials() {
+        return ResponseEntity.status(401).body(new ErrorResponse(401, "Unauthorized", "Invalid email or password"));
+    }
+
+    private static ResponseEntity<?> invalidRefreshToken() {
+        return ResponseEntity.status(401).body(new ErrorResponse(401, "Unauthorized", "Invalid refresh token"));
+    }
+}
@@ -0,0 +1,145 @@
+package com.smartbudget.users.reactive.repository;
+
+import com.smartbudget.users.repository.UserCredentials;
+import com.smartbudget.users.repository.UserIdentity;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+
+/**
+ * The queries of the auth endpoints over R2DBC, against the schema of the Flyway migrations of the servlet service.
+ * Same statements as its JPA repository and outbox, so both variants can serve one database side by side.
+ */
+@Repository
+public class ReactiveUserRepository {
+
+    private static final String FIND_BY_EMAIL = "SELECT user_id, username, email, password, active " +
+            "FROM users_auth.users WHERE email = :email";
+    private static final String FIND_BY_USERNAME_OR_EMAIL = "SELECT username, email FROM users_auth.users " +
+            "WHERE username = :username OR email = :email";
+    private static final String NEXT_USER_ID = "SELECT nextval('users_auth.users_seq')";
+    private static final String INSERT_USER = "INSERT INTO users_auth.users " +
+            "(user_id, username, password, email, active, created_at) " +
+            "VALUES (:userId, :username, :password, :email, TRUE, :createdAt)";
+    private static final String INSERT_EVENT = "INSERT INTO users_auth.user_events " +
+            "(event_type, user_id, username, email, occurred_at) " +
+            "VALUES ('CREATED', :userId, :username, :email, :occurredAt)";
+    private static final String FIND_PERMISSION_IDS = "SELECT permission_id FROM users_auth.user_permissions " +
+            "WHERE user_id = :userId";
+    private static final String FIND_PERMISSION_IDS_BY_USERNAME = "SELECT up.permission_id " +
+            "FROM users_auth.user_permissions up JOIN users_auth.users u ON u.user_id = up.user_id " +
+            "WHERE u.username = :username";
+    private static final String UPDATE_LAST_LOGIN = "UPDATE users_auth.users SET last_login = :lastLogin " +
+            "WHERE user_id = :userId";
+    private static final String UPDATE_PASSWORD_AND_LAST_LOGIN = "UPDATE users_auth.users " +
+            "SET password = :password, last_login = :lastLogin WHERE user_id = :userId";
+
+    private final DatabaseClient databaseClient;
+    private final TransactionalOperator transactionalOperator;
+
+    @Autowired
+    public ReactiveUserRepository(DatabaseClient databaseClient, TransactionalOperator transactionalOperator) {
+        this.databaseClient = databaseClient;
+        this.transactionalOperator = transactionalOperator;
+    }
+
+    public Mono<UserCredentials> findByEmail(String email) {
+        return databaseClient.sql(FIND_BY_EMAIL)
+                .bind("email", email)
+                .map((row, metadata) -> new UserCredentials(row.get("user_id", Long.class),
+                        row.get("username", String.class), row.get("email", String.class),
+                        row.get("password", String.class), Boolean.TRUE.equals(row.get("active", Boolean.class))))
+                .one();
+    }
+
+    public Flux<UserIdentity> findByUsernameOrEmail(String username, String email) {
+        return databaseClient.sql(FIND_BY_USERNAME_OR_EMAIL)
+                .bind("username", username)
+                .bind("email", email)
+                .map((row, metadata) -> (UserIdentity) new Identity(row.get("username", String.class),
+                        row.get("email", String.class)))
+                .all();
+    }
+
+    /**
+     * Inserts an active user and its CREATED event for the outbox relay in one transaction. A duplicate username or
+     * email fails with a {@link org.springframework.dao.DataIntegrityViolationException}.
+     *
+     * @return the id of the new user
+     */
+    public Mono<Long> insert(String username, String encodedPassword, String email, LocalDateTime createdAt) {
+        Mono<Long> insert = databaseClient.sql(NEXT_USER_ID)
+                .map((row, metadata) -> row.get(0, Long.class))
+                .one()
+                .flatMap(userId -> databaseClient.sql(INSERT_USER)
+                        .bind("userId", userId)
+                        .bind("username", username)
+                        .bind("password", encodedPassword)
+                        .bind("email", email)
+                        .bind("createdAt", createdAt)
+                        .then()
+                        .then(databaseClient.sql(INSERT_EVENT)
+                                .bind("userId", userId)
+                                .bind("username", username)
+                                .bind("email", email)
+                                .bind("occurredAt", LocalDateTime.now())
+                                .then())
+                        .thenReturn(userId));
+        return transactionalOperator.transactional(insert);
+    }
+
+    public Flux<Long> findPermissionIds(Long userId) {
+        return databaseClient.sql(FIND_PERMISSION_IDS)
+                .bind("userId", userId)
+                .map((row, metadata) -> row.get("permission_id", Long.class))
+                .all();
+    }
+
+    public Flux<Long> findPermissionIdsByUsername(String username) {
+        return databaseClient.sql(FIND_PERMISSION_IDS_BY_USERNAME)
+                .bind("username", username)
+                .map((row, metadata) -> row.get("permission_id", Long.class))
+                .all();
+    }
+
+    public Mono<Void> updateLastLogin(Long userId, LocalDateTime lastLogin) {
+        return databaseClient.sql(UPDATE_LAST_LOGIN)
+                .bind("lastLogin", lastLogin)
+                .bind("userId", userId)
+                .then();
+    }
+
+    public Mono<Void> updatePasswordAndLastLogin(Long userId, String password, LocalDateTime lastLogin) {
+        return databaseClient.sql(UPDATE_PASSWORD_AND_LAST_LOGIN)
+                .bind("password", password)
+                .bind("lastLogin", lastLogin)
+                .bind("userId", userId)
+                .then();
+    }
+
+    private static final class Identity implements UserIdentity {
+
+        private final String username;
+        private final String email;
+
+        Identity(String username, String email) {
+            this.username = username;
+            this.email = email;
+        }
+
+        @Override
+        public String getUsername() {
+            return username;
+        }
+
+        @Override
+        public String getEmail() {
+            return email;
+        }
+    }
+}
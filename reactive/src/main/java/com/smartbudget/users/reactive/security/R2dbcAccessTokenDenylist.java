@@ -0,0 +1,86 @@
+package com.smartbudget.users.reactive.security;
+
+import com.smartbudget.users.security.AccessTokenDenylist;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * The statements of the servlet service's {@code JdbcAccessTokenDenylist} over R2DBC, on the same table, so a token
+ * revoked by either variant is rejected by both. Waits for its statements like {@link R2dbcRefreshTokenStore}; the
+ * {@code TokenRevocationFilter} in front of it only asks about tokens its Bloom filter already holds.
+ */
+@Component
+@ConditionalOnProperty(name = "auth.revocation.store", havingValue = "r2dbc", matchIfMissing = true)
+public class R2dbcAccessTokenDenylist implements AccessTokenDenylist {
+
+    private static final String REVOKE = "INSERT INTO users_auth.revoked_access_tokens " +
+            "(token_id, expires_at) VALUES (:tokenId, :expiresAt) " +
+            "ON CONFLICT (token_id) DO UPDATE SET expires_at = EXCLUDED.expires_at";
+    private static final String COUNT_REVOKED = "SELECT COUNT(*) FROM users_auth.revoked_access_tokens " +
+            "WHERE token_id = :tokenId AND expires_at > :now";
+    private static final String FIND_REVOKED = "SELECT token_id FROM users_auth.revoked_access_tokens " +
+            "WHERE expires_at > :now";
+    private static final String PURGE = "DELETE FROM users_auth.revoked_access_tokens WHERE expires_at <= :now";
+
+    private final DatabaseClient databaseClient;
+
+    @Autowired
+    public R2dbcAccessTokenDenylist(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    @Override
+    public void revoke(String tokenId, Instant expiresAt) {
+        // Revoking twice is not an error; one upsert on the primary key, so concurrent revocations cannot collide
+        databaseClient.sql(REVOKE)
+                .bind("tokenId", UUID.fromString(tokenId))
+                .bind("expiresAt", R2dbcRefreshTokenStore.timestamp(expiresAt))
+                .fetch()
+                .rowsUpdated()
+                .block();
+    }
+
+    @Override
+    public boolean isRevoked(String tokenId) {
+        UUID id;
+        try {
+            id = UUID.fromString(tokenId);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        Long count = databaseClient.sql(COUNT_REVOKED)
+                .bind("tokenId", id)
+                .bind("now", LocalDateTime.now())
+                .map((row, metadata) -> row.get(0, Long.class))
+                .one()
+                .block();
+        return count != null && count > 0;
+    }
+
+    @Override
+    public void forEachRevoked(Consumer<String> action) {
+        databaseClient.sql(FIND_REVOKED)
+                .bind("now", LocalDateTime.now())
+                .map((row, metadata) -> row.get("token_id", UUID.class).toString())
+                .all()
+                .doOnNext(action)
+                .blockLast();
+    }
+
+    @Override
+    public int purgeExpired() {
+        Integer purged = databaseClient.sql(PURGE)
+                .bind("now", LocalDateTime.now())
+                .fetch()
+                .rowsUpdated()
+                .block();
+        return purged != null ? purged : 0;
+    }
+}
@@ -0,0 +1,117 @@
+package com.smartbudget.users.reactive.security;
+
+import com.smartbudget.users.security.RefreshTokenStore;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.UUID;
+
+/**
+ * The statements of the servlet service's {@code JdbcRefreshTokenStore} over R2DBC, on the same table, so both
+ * variants rotate and revoke the same families. {@link RefreshTokenStore} is synchronous and shared with that
+ * service, so every call waits for its statement: callers run it on the bounded elastic scheduler, never on an event
+ * loop thread, where waiting fails.
+ */
+@Component
+@ConditionalOnProperty(name = "auth.refresh-tokens.store", havingValue = "r2dbc", matchIfMissing = true)
+public class R2dbcRefreshTokenStore implements RefreshTokenStore {
+
+    private static final String INSERT_FAMILY = "INSERT INTO users_auth.refresh_token_families " +
+            "(family_id, subject, current_token_id, expires_at, revoked) " +
+            "VALUES (:familyId, :subject, :tokenId, :expiresAt, FALSE)";
+    private static final String ROTATE = "UPDATE users_auth.refresh_token_families " +
+            "SET current_token_id = :nextTokenId " +
+            "WHERE family_id = :familyId AND current_token_id = :presentedTokenId AND revoked = FALSE " +
+            "AND expires_at > :now";
+    private static final String REVOKE_LIVE = "UPDATE users_auth.refresh_token_families SET revoked = TRUE " +
+            "WHERE family_id = :familyId AND revoked = FALSE AND expires_at > :now";
+    private static final String REVOKE = "UPDATE users_auth.refresh_token_families SET revoked = TRUE " +
+            "WHERE family_id = :familyId AND revoked = FALSE";
+    private static final String REVOKE_ALL = "UPDATE users_auth.refresh_token_families SET revoked = TRUE " +
+            "WHERE subject = :subject AND revoked = FALSE";
+    private static final String PURGE = "DELETE FROM users_auth.refresh_token_families WHERE expires_at <= :now";
+
+    private final DatabaseClient databaseClient;
+
+    @Autowired
+    public R2dbcRefreshTokenStore(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    @Override
+    public void create(String familyId, String subject, String tokenId, Instant expiresAt) {
+        databaseClient.sql(INSERT_FAMILY)
+                .bind("familyId", UUID.fromString(familyId))
+                .bind("subject", subject)
+                .bind("tokenId", UUID.fromString(tokenId))
+                .bind("expiresAt", timestamp(expiresAt))
+                .then()
+                .block();
+    }
+
+    @Override
+    public Rotation rotate(String familyId, String presentedTokenId, String nextTokenId) {
+        UUID family = UUID.fromString(familyId);
+        LocalDateTime now = LocalDateTime.now();
+        Mono<Integer> rotated = databaseClient.sql(ROTATE)
+                .bind("nextTokenId", UUID.fromString(nextTokenId))
+                .bind("familyId", family)
+                .bind("presentedTokenId", UUID.fromString(presentedTokenId))
+                .bind("now", now)
+                .fetch()
+                .rowsUpdated();
+        // Either the family is gone/expired/revoked or the presented token was already replaced
+        Mono<Integer> revoked = databaseClient.sql(REVOKE_LIVE)
+                .bind("familyId", family)
+                .bind("now", now)
+                .fetch()
+                .rowsUpdated();
+        return rotated.flatMap(count -> count == 1
+                        ? Mono.just(Rotation.ROTATED)
+                        : revoked.map(revokedCount -> revokedCount == 1 ? Rotation.REUSED : Rotation.INVALID))
+                .block();
+    }
+
+    @Override
+    public boolean revoke(String familyId) {
+        Integer revoked = databaseClient.sql(REVOKE)
+                .bind("familyId", UUID.fromString(familyId))
+                .fetch()
+                .rowsUpdated()
+                .block();
+        return revoked != null && revoked == 1;
+    }
+
+    @Override
+    public int revokeAll(String subject) {
+        Integer revoked = databaseClient.sql(REVOKE_ALL)
+                .bind("subject", subject)
+                .fetch()
+                .rowsUpdated()
+                .block();
+        return revoked != null ? revoked : 0;
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${auth.refresh-tokens.purge-interval-ms:600000}")
+    public int purgeExpired() {
+        Integer purged = databaseClient.sql(PURGE)
+                .bind("now", LocalDateTime.now())
+                .fetch()
+                .rowsUpdated()
+                .block();
+        return purged != null ? purged : 0;
+    }
+
+    // The column is a TIMESTAMP in the JVM's zone, as JDBC writes it for the servlet service
+    static LocalDateTime timestamp(Instant instant) {
+        return LocalDateTime.ofInstant(instant, ZoneId.systemDefault());
+    }
+}
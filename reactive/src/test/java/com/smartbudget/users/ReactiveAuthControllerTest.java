@@ -0,0 +1,229 @@
+package com.smartbudget.users;
+
+import com.smartbudget.users.controller.ApiExceptionHandler;
+import com.smartbudget.users.reactive.controller.ReactiveAuthController;
+import com.smartbudget.users.reactive.repository.ReactiveUserRepository;
+import com.smartbudget.users.repository.UserCredentials;
+import com.smartbudget.users.repository.UserIdentity;
+import com.smartbudget.users.security.ClientAddressResolver;
+import com.smartbudget.users.security.JwtTokenProvider;
+import com.smartbudget.users.security.LoginRateLimiter;
+import com.smartbudget.users.security.PasswordHashingUnavailableException;
+import com.smartbudget.users.security.PermissionSet;
+import com.smartbudget.users.security.TokenVerification;
+import com.smartbudget.users.security.VerifiedToken;
+import com.smartbudget.users.service.RefreshTokenService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.MediaType;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ReactiveAuthControllerTest {
+
+    private static final String REGISTER =
+            "{\"username\":\"testuser\",\"email\":\"test@example.com\",\"password\":\"password\"}";
+    private static final String LOGIN = "{\"email\":\"test@example.com\",\"password\":\"password\"}";
+
+    private JwtTokenProvider jwtTokenProvider;
+    private ReactiveUserRepository userRepository;
+    private PasswordEncoder passwordEncoder;
+    private RefreshTokenService refreshTokenService;
+    private LoginRateLimiter loginRateLimiter;
+    private WebTestClient client;
+
+    @BeforeEach
+    void setUp() {
+        jwtTokenProvider = mock(JwtTokenProvider.class);
+        userRepository = mock(ReactiveUserRepository.class);
+        passwordEncoder = mock(PasswordEncoder.class);
+        refreshTokenService = mock(RefreshTokenService.class);
+        loginRateLimiter = mock(LoginRateLimiter.class);
+        when(passwordEncoder.encode(anyString())).thenReturn("encodedpassword");
+        ReactiveAuthController controller = new ReactiveAuthController(jwtTokenProvider, userRepository,
+                passwordEncoder, refreshTokenService, loginRateLimiter, new ClientAddressResolver(new String[0]));
+        ReflectionTestUtils.invokeMethod(controller, "precomputeDummyPasswordHash");
+        client = WebTestClient.bindToController(controller)
+                .controllerAdvice(new ApiExceptionHandler())
+                .build();
+    }
+
+    @Test
+    void testRegisterSuccess() {
+        when(userRepository.insert(eq("testuser"), eq("encodedpassword"), eq("test@example.com"),
+                any(LocalDateTime.class))).thenReturn(Mono.just(42L));
+
+        post("/auth/register", REGISTER)
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.message").isEqualTo("User registered successfully");
+    }
+
+    @Test
+    void testRegisterDuplicateEmail() {
+        UserIdentity existing = mock(UserIdentity.class);
+        when(existing.getUsername()).thenReturn("otheruser");
+        when(existing.getEmail()).thenReturn("test@example.com");
+        when(userRepository.insert(anyString(), anyString(), anyString(), any(LocalDateTime.class)))
+                .thenReturn(Mono.error(new DataIntegrityViolationException("duplicate key")));
+        when(userRepository.findByUsernameOrEmail("testuser", "test@example.com")).thenReturn(Flux.just(existing));
+
+        post("/auth/register", REGISTER)
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.code").isEqualTo(400)
+                .jsonPath("$.details").isEqualTo("Email already exists");
+    }
+
+    @Test
+    void testLoginIssuesTokensAndRecordsLastLogin() {
+        UserCredentials user = new UserCredentials(7L, "testuser", "test@example.com", "encodedpassword", true);
+        when(userRepository.findByEmail("test@example.com")).thenReturn(Mono.just(user));
+        when(userRepository.findPermissionIds(7L)).thenReturn(Flux.just(1L, 3L));
+        when(userRepository.updateLastLogin(eq(7L), any(LocalDateTime.class))).thenReturn(Mono.empty());
+        when(passwordEncoder.matches("password", "encodedpassword")).thenReturn(true);
+        when(jwtTokenProvider.generateToken(eq("testuser"), any(PermissionSet.class), anyLong()))
+                .thenReturn("accessToken");
+        when(refreshTokenService.issue("testuser")).thenReturn("refreshToken");
+
+        post("/auth/login", LOGIN)
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.accessToken").isEqualTo("accessToken")
+                .jsonPath("$.refreshToken").isEqualTo("refreshToken");
+
+        verify(jwtTokenProvider).generateToken("testuser", PermissionSet.of(List.of(1L, 3L)), 3600);
+        verify(userRepository).updateLastLogin(eq(7L), any(LocalDateTime.class));
+    }
+
+    @Test
+    void testLoginUnknownEmailStillHashes() {
+        when(userRepository.findByEmail("test@example.com")).thenReturn(Mono.empty());
+
+        post("/auth/login", LOGIN)
+                .expectStatus().isUnauthorized()
+                .expectBody().jsonPath("$.details").isEqualTo("Invalid email or password");
+
+        verify(passwordEncoder).matches(eq("password"), anyString());
+        verifyNoInteractions(jwtTokenProvider, refreshTokenService);
+    }
+
+    @Test
+    void testLoginRateLimitedBeforeLookup() {
+        when(loginRateLimiter.acquire(any(), eq("test@example.com"))).thenReturn(30L);
+
+        post("/auth/login", LOGIN)
+                .expectStatus().isEqualTo(429)
+                .expectHeader().valueEquals("Retry-After", "30");
+
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    void testLoginWhenHashingSaturated() {
+        UserCredentials user = new UserCredentials(7L, "testuser", "test@example.com", "encodedpassword", true);
+        when(userRepository.findByEmail("test@example.com")).thenReturn(Mono.just(user));
+        when(passwordEncoder.matches(anyString(), anyString())).thenThrow(new PasswordHashingUnavailableException(2));
+
+        post("/auth/login", LOGIN)
+                .expectStatus().isEqualTo(503)
+                .expectHeader().valueEquals("Retry-After", "2")
+                .expectBody().jsonPath("$.code").isEqualTo(503);
+    }
+
+    @Test
+    void testLoginLimitsTheForwardedClient() {
+        ReactiveAuthController controller = new ReactiveAuthController(jwtTokenProvider, userRepository,
+                passwordEncoder, refreshTokenService, loginRateLimiter,
+                new ClientAddressResolver(new String[]{"127.0.0.0/8"}));
+        when(loginRateLimiter.acquire("203.0.113.1", "test@example.com")).thenReturn(30L);
+        // The connection comes from the gateway
+        WebTestClient throughGateway = WebTestClient.bindToController(controller)
+                .webFilter((exchange, chain) -> chain.filter(exchange.mutate()
+                        .request(request -> request.remoteAddress(new InetSocketAddress("127.0.0.1", 40000)))
+                        .build()))
+                .build();
+
+        throughGateway.post().uri("/auth/login")
+                .header(ClientAddressResolver.FORWARDED_FOR, "203.0.113.1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(LOGIN)
+                .exchange()
+                .expectStatus().isEqualTo(429);
+    }
+
+    @Test
+    void testRefreshTokenRotatesOffTheEventLoop() {
+        VerifiedToken refreshToken = mock(VerifiedToken.class);
+        when(refreshToken.getSubject()).thenReturn("testuser");
+        when(jwtTokenProvider.verify("refreshToken")).thenReturn(TokenVerification.valid(refreshToken));
+        List<String> rotatedOn = new ArrayList<>();
+        when(refreshTokenService.rotate(refreshToken)).thenAnswer(invocation -> {
+            rotatedOn.add(Thread.currentThread().getName());
+            return "nextRefreshToken";
+        });
+        when(userRepository.findPermissionIdsByUsername("testuser")).thenReturn(Flux.just(1L));
+        when(jwtTokenProvider.generateToken(eq("testuser"), any(PermissionSet.class), anyLong()))
+                .thenReturn("accessToken");
+
+        post("/auth/refresh-token", "{\"refreshToken\":\"refreshToken\"}")
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.accessToken").isEqualTo("accessToken")
+                .jsonPath("$.refreshToken").isEqualTo("nextRefreshToken");
+
+        // The token stores wait for the database
+        assertTrue(rotatedOn.get(0).startsWith("boundedElastic-"), rotatedOn.get(0));
+    }
+
+    @Test
+    void testRefreshTokenAlreadyRotated() {
+        VerifiedToken refreshToken = mock(VerifiedToken.class);
+        when(jwtTokenProvider.verify("refreshToken")).thenReturn(TokenVerification.valid(refreshToken));
+        when(refreshTokenService.rotate(refreshToken)).thenReturn(null);
+
+        post("/auth/refresh-token", "{\"refreshToken\":\"refreshToken\"}")
+                .expectStatus().isUnauthorized()
+                .expectBody().jsonPath("$.details").isEqualTo("Invalid refresh token");
+
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    void testLogoutRevokesRefreshAndAccessToken() {
+        VerifiedToken refreshToken = mock(VerifiedToken.class);
+        VerifiedToken accessToken = mock(VerifiedToken.class);
+        when(jwtTokenProvider.verify("refreshToken")).thenReturn(TokenVerification.valid(refreshToken));
+        when(jwtTokenProvider.verify("accessToken")).thenReturn(TokenVerification.valid(accessToken));
+        when(refreshTokenService.revoke(refreshToken)).thenReturn(true);
+
+        client.post().uri("/auth/logout")
+                .header("Authorization", "Bearer accessToken")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"refreshToken\":\"refreshToken\"}")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.message").isEqualTo("Logged out successfully");
+
+        verify(jwtTokenProvider).revoke(accessToken);
+    }
+
+    private WebTestClient.ResponseSpec post(String uri, String body) {
+        return client.post().uri(uri)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(body)
+                .exchange();
+    }
+}
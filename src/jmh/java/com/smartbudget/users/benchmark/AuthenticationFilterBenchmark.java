@@ -0,0 +1,101 @@
+package com.smartbudget.users.benchmark;
+
+import com.smartbudget.users.model.Permission;
+import com.smartbudget.users.repository.PermissionGrant;
+import com.smartbudget.users.repository.PermissionRepository;
+import com.smartbudget.users.security.HmacJwsSigner;
+import com.smartbudget.users.security.InMemoryAccessTokenDenylist;
+import com.smartbudget.users.security.JwtAuthenticationFilter;
+import com.smartbudget.users.security.JwtTokenProvider;
+import com.smartbudget.users.security.TokenRevocationFilter;
+import com.smartbudget.users.service.PermissionIndex;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Per-request cost of bearer authentication, without the rest of the security chain. {@code noToken} is the floor:
+ * the filter only looks at the header. {@code cachedToken} is the common case of a client reusing its access token;
+ * {@code uncachedToken} checks the signature and parses the claims on every request. The security context is not
+ * cleared between invocations; each authenticated request replaces it, as it would on a pooled thread.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AuthenticationFilterBenchmark {
+
+    private static final String SECRET = "4BjKlm8pP2qN6tR7s9XyVZ3aH0FgW5yQ";
+    private static final FilterChain END_OF_CHAIN = (request, response) -> {
+    };
+
+    private JwtAuthenticationFilter cachingFilter;
+    private JwtAuthenticationFilter uncachedFilter;
+    private MockHttpServletRequest withoutToken;
+    private MockHttpServletRequest withToken;
+    private MockHttpServletResponse response;
+
+    @Setup
+    public void setUp() {
+        PermissionIndex permissionIndex = new PermissionIndex(permissionRepository());
+        permissionIndex.reload();
+        JwtTokenProvider cachingProvider = newProvider(10_000);
+        cachingFilter = new JwtAuthenticationFilter(cachingProvider, permissionIndex);
+        uncachedFilter = new JwtAuthenticationFilter(newProvider(0), permissionIndex);
+
+        withoutToken = new MockHttpServletRequest("GET", "/budgets");
+        withToken = new MockHttpServletRequest("GET", "/budgets");
+        withToken.addHeader("Authorization", "Bearer " + cachingProvider.generateToken("benchmark-user",
+                permissionIndex.permissionsOf("benchmark-user"), 3600));
+        response = new MockHttpServletResponse();
+    }
+
+    private static JwtTokenProvider newProvider(long cacheSize) {
+        return new JwtTokenProvider(new HmacJwsSigner(SECRET),
+                new TokenRevocationFilter(new InMemoryAccessTokenDenylist(), 1000, 0.001), cacheSize);
+    }
+
+    @Benchmark
+    public void noToken() throws ServletException, IOException {
+        cachingFilter.doFilter(withoutToken, response, END_OF_CHAIN);
+    }
+
+    @Benchmark
+    public void cachedToken() throws ServletException, IOException {
+        cachingFilter.doFilter(withToken, response, END_OF_CHAIN);
+    }
+
+    @Benchmark
+    public void uncachedToken() throws ServletException, IOException {
+        uncachedFilter.doFilter(withToken, response, END_OF_CHAIN);
+    }
+
+    // Three permissions granted to the benchmark user, without a database
+    private static PermissionRepository permissionRepository() {
+        List<Permission> permissions = new ArrayList<>();
+        List<PermissionGrant> grants = new ArrayList<>();
+        for (long id = 1; id <= 3; id++) {
+            Permission permission = new Permission();
+            permission.setId(id);
+            permission.setPermission("permission-" + id);
+            permissions.add(permission);
+            grants.add(new PermissionGrant("benchmark-user", id));
+        }
+        PermissionRepository repository = mock(PermissionRepository.class);
+        when(repository.findAll()).thenReturn(permissions);
+        when(repository.findAllGrants()).thenReturn(grants);
+        return repository;
+    }
+}
@@ -0,0 +1,97 @@
+package com.smartbudget.users.benchmark;
+
+import com.smartbudget.users.UsersAuthApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import javax.servlet.Filter;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Starts the whole service against an in-memory H2 database in PostgreSQL mode, for benchmarks that go through the
+ * real Spring MVC and security filter chain.
+ */
+final class EmbeddedApplication implements AutoCloseable {
+
+    private final ConfigurableApplicationContext context;
+    private final MockMvc mockMvc;
+
+    private EmbeddedApplication(ConfigurableApplicationContext context) {
+        this.context = context;
+        this.mockMvc = MockMvcBuilders.webAppContextSetup((WebApplicationContext) context)
+                .addFilters(context.getBean("springSecurityFilterChain", Filter.class))
+                .build();
+    }
+
+    /**
+     * @param properties extra {@code key=value} properties, replacing the defaults below with the same key
+     */
+    static EmbeddedApplication start(String... properties) {
+        return startOn(UUID.randomUUID().toString(), properties);
+    }
+
+    /**
+     * Starts against the named in-memory database, which outlives the context, so several starts can share one
+     * schema.
+     */
+    static EmbeddedApplication startOn(String database, String... properties) {
+        Map<String, String> all = new LinkedHashMap<>();
+        for (String property : Arrays.asList(
+                "server.port=0",
+                "spring.datasource.url=jdbc:h2:mem:" + database
+                        + ";DB_CLOSE_DELAY=-1;MODE=PostgreSQL;INIT=CREATE SCHEMA IF NOT EXISTS users_auth",
+                "spring.datasource.driver-class-name=org.h2.Driver",
+                "spring.datasource.username=sa",
+                "spring.datasource.password=",
+                "spring.jpa.hibernate.ddl-auto=create-drop",
+                // The migrations are PostgreSQL-specific; Hibernate creates the schema instead
+                "spring.flyway.enabled=false",
+                "spring.jpa.show-sql=false",
+                "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                "logging.level.root=WARN",
+                "auth.password.target-hash-millis=0",
+                "auth.outbox.sink=memory")) {
+            put(all, property);
+        }
+        for (String property : properties) {
+            put(all, property);
+        }
+        // Passed as command-line arguments so they override application.yaml
+        String[] args = all.entrySet().stream()
+                .map(property -> "--" + property.getKey() + "=" + property.getValue())
+                .toArray(String[]::new);
+        return new EmbeddedApplication(new SpringApplicationBuilder(UsersAuthApplication.class).run(args));
+    }
+
+    // A repeated command-line argument would be bound as a comma-separated list, so a key is passed only once
+    private static void put(Map<String, String> properties, String property) {
+        int separator = property.indexOf('=');
+        properties.put(property.substring(0, separator), property.substring(separator + 1));
+    }
+
+    /**
+     * Port of the embedded Tomcat, for benchmarks that need real HTTP connections and worker threads.
+     */
+    int port() {
+        return Integer.parseInt(context.getEnvironment().getProperty("local.server.port"));
+    }
+
+    MockMvc mockMvc() {
+        return mockMvc;
+    }
+
+    <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    @Override
+    public void close() {
+        context.close();
+    }
+}
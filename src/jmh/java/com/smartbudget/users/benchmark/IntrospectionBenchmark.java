@@ -0,0 +1,66 @@
+package com.smartbudget.users.benchmark;
+
+import com.smartbudget.users.dto.TokenIntrospection;
+import com.smartbudget.users.security.HmacJwsSigner;
+import com.smartbudget.users.security.InMemoryAccessTokenDenylist;
+import com.smartbudget.users.security.JwtTokenProvider;
+import com.smartbudget.users.security.TokenRevocationFilter;
+import com.smartbudget.users.service.PermissionIndex;
+import com.smartbudget.users.service.TokenIntrospectionService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Latency of one introspection batch with the verification cache disabled, so every token has its signature checked.
+ * {@code threads=1} verifies the batch sequentially on the caller; {@code threads=0} uses one thread per core.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IntrospectionBenchmark {
+
+    private static final String SECRET = "4BjKlm8pP2qN6tR7s9XyVZ3aH0FgW5yQ";
+
+    @Param({"1", "20", "100"})
+    public int batchSize;
+
+    @Param({"1", "0"})
+    public int threads;
+
+    private TokenIntrospectionService tokenIntrospectionService;
+    private List<String> tokens;
+
+    @Setup
+    public void setUp() {
+        JwtTokenProvider jwtTokenProvider = new JwtTokenProvider(new HmacJwsSigner(SECRET),
+                new TokenRevocationFilter(new InMemoryAccessTokenDenylist(), 1000, 0.01), 0);
+        PermissionIndex permissionIndex = mock(PermissionIndex.class);
+        when(permissionIndex.getNames()).thenReturn(Collections.emptyMap());
+        tokenIntrospectionService = new TokenIntrospectionService(jwtTokenProvider, permissionIndex, batchSize, 30,
+                threads);
+        tokens = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            tokens.add(jwtTokenProvider.generateToken("user" + i, 3600));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        tokenIntrospectionService.destroy();
+    }
+
+    @Benchmark
+    public List<TokenIntrospection> introspect() {
+        return tokenIntrospectionService.introspect(tokens);
+    }
+}
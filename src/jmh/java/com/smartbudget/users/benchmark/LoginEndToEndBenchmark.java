@@ -0,0 +1,62 @@
+package com.smartbudget.users.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+/**
+ * Full /auth/login through MockMvc, the security filter chain, JPA and H2. BCrypt runs at strength 4 so the
+ * result shows the cost of everything around the hash.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LoginEndToEndBenchmark {
+
+    private static final String LOGIN = "{\"email\":\"bench@example.com\",\"password\":\"benchmark-Password-1\"}";
+    private static final String INVALID_LOGIN = "{\"email\":\"bench@example.com\",\"password\":\"wrong\"}";
+
+    private EmbeddedApplication application;
+
+    @Setup
+    public void setUp() throws Exception {
+        // One client logging in as one user, so the rate limits are lifted
+        application = EmbeddedApplication.start("auth.password.bcrypt-min-strength=4",
+                "auth.rate-limit.ip.per-minute=1000000000", "auth.rate-limit.email.per-minute=1000000000");
+        application.mockMvc().perform(post("/auth/register")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"username\":\"bench\",\"email\":\"bench@example.com\",\"password\":\"benchmark-Password-1\"}"));
+        if (login(LOGIN).getResponse().getStatus() != 200) {
+            throw new IllegalStateException("Benchmark user cannot log in");
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        application.close();
+    }
+
+    @Benchmark
+    public MvcResult login() throws Exception {
+        return login(LOGIN);
+    }
+
+    @Benchmark
+    public MvcResult loginWrongPassword() throws Exception {
+        return login(INVALID_LOGIN);
+    }
+
+    private MvcResult login(String body) throws Exception {
+        return application.mockMvc().perform(post("/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andReturn();
+    }
+}
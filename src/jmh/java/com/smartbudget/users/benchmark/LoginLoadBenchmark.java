@@ -0,0 +1,95 @@
+package com.smartbudget.users.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load test of /auth/login over real HTTP against the embedded Tomcat, blocking handlers against the async mode
+ * ({@code auth.async.enabled}). 256 JMH threads act as concurrent clients in a closed loop, so the score is the
+ * sustainable logins per second at that concurrency, including 503s a saturated hashing pool answers with.
+ * <p>
+ * After every iteration the peak number of live JVM threads and the Tomcat workers alive at the end are printed:
+ * blocking handlers hold one Tomcat worker per login in flight, the async mode only briefly.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+@Threads(256)
+@State(Scope.Benchmark)
+public class LoginLoadBenchmark {
+
+    private static final String LOGIN = "{\"email\":\"load@example.com\",\"password\":\"benchmark-Password-1\"}";
+
+    @Param({"false", "true"})
+    public boolean async;
+
+    private EmbeddedApplication application;
+    private HttpClient client;
+    private HttpRequest login;
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+    @Setup
+    public void setUp() throws Exception {
+        // Production hash cost, and a hashing queue that holds every client, so logins queue instead of failing
+        application = EmbeddedApplication.start(
+                "auth.password.bcrypt-min-strength=10",
+                "auth.hashing.queue-capacity=512",
+                "auth.async.enabled=" + async,
+                "auth.rate-limit.ip.per-minute=1000000000",
+                "auth.rate-limit.email.per-minute=1000000000");
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        URI base = URI.create("http://localhost:" + application.port());
+        HttpResponse<String> registered = client.send(HttpRequest.newBuilder(base.resolve("/auth/register"))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(
+                                "{\"username\":\"load\",\"email\":\"load@example.com\",\"password\":\"benchmark-Password-1\"}"))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+        if (registered.statusCode() != 200) {
+            throw new IllegalStateException("Cannot register the load test user: " + registered.body());
+        }
+        login = HttpRequest.newBuilder(base.resolve("/auth/login"))
+                .header("Content-Type", "application/json")
+                .timeout(Duration.ofSeconds(30))
+                .POST(HttpRequest.BodyPublishers.ofString(LOGIN))
+                .build();
+    }
+
+    @Setup(Level.Iteration)
+    public void resetThreadPeak() {
+        threads.resetPeakThreadCount();
+    }
+
+    @TearDown(Level.Iteration)
+    public void printThreadCounts() {
+        long tomcatWorkers = Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.getName().startsWith("http-nio-"))
+                .count();
+        System.out.printf("%n[async=%s] peak live threads: %d, Tomcat threads: %d%n",
+                async, threads.getPeakThreadCount(), tomcatWorkers);
+    }
+
+    @TearDown
+    public void tearDown() {
+        application.close();
+    }
+
+    @Benchmark
+    public int login() throws Exception {
+        int status = client.send(login, HttpResponse.BodyHandlers.discarding()).statusCode();
+        if (status != 200 && status != 503) {
+            throw new IllegalStateException("Unexpected login status " + status);
+        }
+        return status;
+    }
+}
@@ -0,0 +1,70 @@
+package com.smartbudget.users.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.MediaType;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+/**
+ * Failed logins must take equally long whether the email exists or not. Compares the latency distribution of a
+ * wrong password for an existing user with an unknown email, both repeated (answered by the negative lookup cache)
+ * and fresh on every attempt (a database miss). BCrypt runs at the production strength of 10, so the dummy hash
+ * verification dominates all three.
+ */
+@BenchmarkMode({Mode.SampleTime, Mode.Throughput})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 4)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LoginTimingBenchmark {
+
+    private static final String WRONG_PASSWORD = "{\"email\":\"bench@example.com\",\"password\":\"wrong\"}";
+    private static final String UNKNOWN_EMAIL = "{\"email\":\"nobody@example.com\",\"password\":\"wrong\"}";
+
+    private EmbeddedApplication application;
+    private final AtomicLong freshEmails = new AtomicLong();
+
+    @Setup
+    public void setUp() throws Exception {
+        application = EmbeddedApplication.start("auth.password.bcrypt-min-strength=10",
+                "auth.rate-limit.ip.per-minute=1000000000", "auth.rate-limit.email.per-minute=1000000000");
+        application.mockMvc().perform(post("/auth/register")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"username\":\"bench\",\"email\":\"bench@example.com\",\"password\":\"benchmark-Password-1\"}"));
+    }
+
+    @TearDown
+    public void tearDown() {
+        application.close();
+    }
+
+    @Benchmark
+    public int existingEmailWrongPassword() throws Exception {
+        return login(WRONG_PASSWORD);
+    }
+
+    @Benchmark
+    public int unknownEmailRepeated() throws Exception {
+        return login(UNKNOWN_EMAIL);
+    }
+
+    @Benchmark
+    public int unknownEmailFresh() throws Exception {
+        return login("{\"email\":\"nobody" + freshEmails.incrementAndGet() + "@example.com\",\"password\":\"wrong\"}");
+    }
+
+    private int login(String body) throws Exception {
+        int status = application.mockMvc().perform(post("/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andReturn().getResponse().getStatus();
+        if (status != 401) {
+            throw new IllegalStateException("Expected 401, got " + status);
+        }
+        return status;
+    }
+}
@@ -0,0 +1,82 @@
+package com.smartbudget.users.benchmark;
+
+import com.smartbudget.users.security.InMemoryAccessTokenDenylist;
+import com.smartbudget.users.security.TokenRevocationFilter;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the revocation check on the token validation path, with one million revoked tokens.
+ * {@code exactLookup} is the in-memory denylist alone, a lower bound for what every check would cost without the
+ * filter (the JDBC denylist is a database round-trip instead).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RevocationFilterBenchmark {
+
+    private static final int SAMPLES = 1 << 16;
+
+    @Param({"1000000"})
+    private int revokedTokens;
+
+    private InMemoryAccessTokenDenylist denylist;
+    private TokenRevocationFilter filter;
+    private final String[] revoked = new String[SAMPLES];
+    private final String[] valid = new String[SAMPLES];
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+
+        int next() {
+            return next++ & (SAMPLES - 1);
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        denylist = new InMemoryAccessTokenDenylist();
+        filter = new TokenRevocationFilter(denylist, revokedTokens, 0.001);
+        Instant expiresAt = Instant.now().plusSeconds(3600);
+        for (int i = 0; i < revokedTokens; i++) {
+            String tokenId = UUID.randomUUID().toString();
+            filter.revoke(tokenId, expiresAt);
+            if (i < SAMPLES) {
+                revoked[i] = tokenId;
+            }
+        }
+        for (int i = 0; i < SAMPLES; i++) {
+            valid[i] = UUID.randomUUID().toString();
+        }
+    }
+
+    @TearDown
+    public void report() {
+        System.out.printf("%nBloom filter: %d bytes for %d revoked tokens (%.2f MiB per million), %d false positives%n",
+                filter.getMemoryBytes(), revokedTokens,
+                filter.getMemoryBytes() / (double) revokedTokens * 1_000_000 / (1024 * 1024),
+                filter.getFalsePositives());
+    }
+
+    @Benchmark
+    public boolean checkValidToken(Cursor cursor) {
+        return filter.isRevoked(valid[cursor.next()]);
+    }
+
+    @Benchmark
+    public boolean checkRevokedToken(Cursor cursor) {
+        return filter.isRevoked(revoked[cursor.next()]);
+    }
+
+    @Benchmark
+    public boolean exactLookup(Cursor cursor) {
+        return denylist.isRevoked(valid[cursor.next()]);
+    }
+}
@@ -0,0 +1,43 @@
+package com.smartbudget.users.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to start the whole service against an existing schema, with the default schema handling ({@code update}:
+ * Hibernate reads the JDBC metadata and inspects every table) and with the one of the {@code prod} profile
+ * ({@code none}, no metadata lookup), and with the {@code fast-startup} profile on top of the latter (lazy
+ * initialization off the hot path, auto-configuration allowlist). Each measurement is one cold start of a new context
+ * in a warm JVM; the class loading that the CDS archive saves only shows in a new JVM.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StartupBenchmark {
+
+    @Param({"update", "none", "fast-startup"})
+    public String mode;
+
+    private final String database = UUID.randomUUID().toString();
+
+    @Setup
+    public void setUp() {
+        // Creates the schema once; the in-memory database outlives the context
+        EmbeddedApplication.startOn(database, "spring.jpa.hibernate.ddl-auto=create").close();
+    }
+
+    @Benchmark
+    public void start() {
+        boolean managed = !"update".equals(mode);
+        EmbeddedApplication.startOn(database,
+                "spring.profiles.active=" + ("fast-startup".equals(mode) ? "fast-startup" : "default"),
+                "spring.jpa.hibernate.ddl-auto=" + (managed ? "none" : "update"),
+                "spring.jpa.properties.hibernate.temp.use_jdbc_metadata_defaults=" + !managed,
+                "spring.jpa.open-in-view=" + !managed).close();
+    }
+}
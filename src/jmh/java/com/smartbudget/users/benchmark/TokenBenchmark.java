@@ -0,0 +1,60 @@
+package com.smartbudget.users.benchmark;
+
+import com.smartbudget.users.security.HmacJwsSigner;
+import com.smartbudget.users.security.InMemoryAccessTokenDenylist;
+import com.smartbudget.users.security.JwtTokenProvider;
+import com.smartbudget.users.security.TokenRevocationFilter;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token minting and verification. The uncached variants use a provider whose verification cache holds nothing,
+ * so every call checks the signature and parses the claims.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TokenBenchmark {
+
+    private static final String SECRET = "4BjKlm8pP2qN6tR7s9XyVZ3aH0FgW5yQ";
+
+    private JwtTokenProvider cachingProvider;
+    private JwtTokenProvider uncachedProvider;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        cachingProvider = newProvider(10_000);
+        uncachedProvider = newProvider(0);
+        token = cachingProvider.generateToken("benchmark-user", 3600);
+    }
+
+    private static JwtTokenProvider newProvider(long cacheSize) {
+        return new JwtTokenProvider(new HmacJwsSigner(SECRET),
+                new TokenRevocationFilter(new InMemoryAccessTokenDenylist(), 1000, 0.001), cacheSize);
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return cachingProvider.generateToken("benchmark-user", 3600);
+    }
+
+    @Benchmark
+    public boolean validateTokenCached() {
+        return cachingProvider.validateToken(token);
+    }
+
+    @Benchmark
+    public boolean validateTokenUncached() {
+        return uncachedProvider.validateToken(token);
+    }
+
+    @Benchmark
+    public String getUsernameUncached() {
+        return uncachedProvider.getUsername(token);
+    }
+}
@@ -0,0 +1,96 @@
+package com.smartbudget.users.benchmark;
+
+import com.smartbudget.users.dto.UserFilter;
+import com.smartbudget.users.dto.UserPage;
+import com.smartbudget.users.dto.UserSummary;
+import com.smartbudget.users.service.UserService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of one page of the user listing at increasing depth, keyset against the offset paging it replaces. With
+ * 50 users per page, page 10,000 starts after user 499,950; keyset latency should stay flat, offset latency grows
+ * with the rows it skips.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UserListingBenchmark {
+
+    private static final int PAGE_SIZE = 50;
+    private static final int USERS = 10_000 * PAGE_SIZE;
+
+    @Param({"1", "10000"})
+    public int page;
+
+    private EmbeddedApplication application;
+    private UserService userService;
+    private EntityManager entityManager;
+    private final UserFilter activeUsers = new UserFilter();
+    private Long cursor;
+
+    @Setup
+    public void setUp() {
+        application = EmbeddedApplication.start();
+        insertUsers(application.getBean(JdbcTemplate.class));
+        userService = application.getBean(UserService.class);
+        entityManager = application.getBean(EntityManagerFactory.class).createEntityManager();
+        activeUsers.setActive(true);
+        // The cursor a client would hold after walking to the previous page
+        cursor = page == 1 ? null : application.getBean(JdbcTemplate.class).queryForObject(
+                "SELECT user_id FROM users_auth.users ORDER BY user_id OFFSET ? LIMIT 1", Long.class,
+                (page - 1) * PAGE_SIZE - 1);
+    }
+
+    @TearDown
+    public void tearDown() {
+        entityManager.close();
+        application.close();
+    }
+
+    @Benchmark
+    public UserPage keyset() {
+        return userService.listUsers(new UserFilter(), cursor, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public UserPage keysetActiveOnly() {
+        return userService.listUsers(activeUsers, cursor, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<UserSummary> offset() {
+        return entityManager.createQuery("select new com.smartbudget.users.dto.UserSummary(u.id, u.username, "
+                        + "u.email, u.active, u.createdAt, u.lastLogin) from User u order by u.id", UserSummary.class)
+                .setFirstResult((page - 1) * PAGE_SIZE)
+                .setMaxResults(PAGE_SIZE)
+                .getResultList();
+    }
+
+    private static void insertUsers(JdbcTemplate jdbcTemplate) {
+        LocalDateTime start = LocalDateTime.of(2020, 1, 1, 0, 0);
+        List<Object[]> batch = new ArrayList<>(10_000);
+        for (int i = 0; i < USERS; i++) {
+            // Every tenth user is inactive, so the active filter skips rows as well
+            batch.add(new Object[]{"user" + i, "{noop}password", "user" + i + "@example.com", i % 10 != 0,
+                    Timestamp.valueOf(start.plusMinutes(i))});
+            if (batch.size() == 10_000) {
+                jdbcTemplate.batchUpdate("INSERT INTO users_auth.users "
+                        + "(user_id, username, password, email, active, created_at) "
+                        + "VALUES (nextval('users_auth.users_seq'), ?, ?, ?, ?, ?)", batch);
+                batch.clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.smartbudget.users.config;
+
+import org.springframework.boot.autoconfigure.AutoConfigurationImportFilter;
+import org.springframework.boot.autoconfigure.AutoConfigurationMetadata;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.core.env.Environment;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * Limits auto-configuration to the classes listed in {@code auth.startup.auto-configurations}, when that list is
+ * not empty. Candidates are rejected by name, before their classes and conditions are loaded, so the unlisted
+ * auto-configurations of the starters cost nothing at startup. Registered in {@code META-INF/spring.factories}.
+ */
+public class AutoConfigurationAllowlist implements AutoConfigurationImportFilter, EnvironmentAware {
+
+    static final String PROPERTY = "auth.startup.auto-configurations";
+
+    private Set<String> allowed = Collections.emptySet();
+
+    @Override
+    public void setEnvironment(Environment environment) {
+        allowed = Binder.get(environment).bind(PROPERTY, Bindable.setOf(String.class)).orElse(Collections.emptySet());
+    }
+
+    @Override
+    public boolean[] match(String[] autoConfigurationClasses, AutoConfigurationMetadata autoConfigurationMetadata) {
+        boolean[] matches = new boolean[autoConfigurationClasses.length];
+        for (int i = 0; i < autoConfigurationClasses.length; i++) {
+            // null: already rejected by another filter
+            String candidate = autoConfigurationClasses[i];
+            matches[i] = allowed.isEmpty() || candidate == null || allowed.contains(candidate);
+        }
+        return matches;
+    }
+}
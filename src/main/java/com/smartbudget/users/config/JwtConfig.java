@@ -0,0 +1,47 @@
+package com.smartbudget.users.config;
+
+import com.smartbudget.users.security.HmacJwsSigner;
+import com.smartbudget.users.security.JwsSigner;
+import com.smartbudget.users.security.JwtKeyRing;
+import com.smartbudget.users.security.PemKeys;
+import com.smartbudget.users.security.RsaJwsSigner;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.Resource;
+
+import java.nio.file.Paths;
+
+@Configuration
+public class JwtConfig {
+
+    @Bean
+    public JwsSigner jwsSigner(@Value("${jwt.algorithm:HS256}") String algorithm,
+                               @Value("${jwt.secret}") String secret,
+                               @Value("${jwt.rsa.private-key}") Resource privateKey,
+                               @Value("${jwt.rsa.public-key}") Resource publicKey) {
+        switch (algorithm) {
+            case "HS256":
+                return new HmacJwsSigner(secret);
+            case "RS256":
+                // Keys are parsed once here; the signer keeps initialized Signature instances per thread
+                return new RsaJwsSigner(PemKeys.readRsaPrivateKey(privateKey), PemKeys.readRsaPublicKey(publicKey));
+            default:
+                throw new IllegalStateException("Unsupported jwt.algorithm: " + algorithm);
+        }
+    }
+
+    /**
+     * Rotating keys from {@code jwt.keys.location} when set, otherwise the single key configured above.
+     */
+    @Bean
+    public JwtKeyRing jwtKeyRing(ObjectProvider<JwsSigner> jwsSigner,
+                                 @Value("${jwt.keys.location:}") String location,
+                                 @Value("${jwt.keys.overlap-seconds:86400}") long overlapSeconds) {
+        if (location.isEmpty()) {
+            return JwtKeyRing.of(jwsSigner.getObject());
+        }
+        return JwtKeyRing.load(Paths.get(location), overlapSeconds);
+    }
+}
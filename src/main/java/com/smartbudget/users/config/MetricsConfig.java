@@ -0,0 +1,75 @@
+package com.smartbudget.users.config;
+
+import com.smartbudget.users.controller.AuthMetricsInterceptor;
+import com.smartbudget.users.security.LoginRateLimiter;
+import com.smartbudget.users.service.LastLoginRecorder;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Service metrics on top of what Spring Boot already publishes (HTTP server requests, Hikari pool, repository
+ * invocations, JVM). Beans implementing {@link MeterBinder} bind themselves; this class covers the ones whose bean
+ * type hides it or that cannot depend on Micrometer.
+ */
+@Configuration
+public class MetricsConfig implements WebMvcConfigurer {
+
+    private final MeterRegistry meterRegistry;
+
+    @Autowired
+    public MetricsConfig(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new AuthMetricsInterceptor(meterRegistry)).addPathPatterns("/auth/**");
+    }
+
+    // The encoder bean is declared as a plain PasswordEncoder, so it is not found among the MeterBinder beans
+    @Bean
+    public MeterBinder passwordEncoderMetrics(PasswordEncoder passwordEncoder) {
+        return registry -> {
+            if (passwordEncoder instanceof MeterBinder) {
+                ((MeterBinder) passwordEncoder).bindTo(registry);
+            }
+        };
+    }
+
+    @Bean
+    public MeterBinder loginRateLimiterMetrics(LoginRateLimiter loginRateLimiter) {
+        return registry -> {
+            FunctionCounter.builder("auth.login.rate_limited", loginRateLimiter,
+                            LoginRateLimiter::getRejectedByIpCount)
+                    .description("Login attempts rejected by the rate limiter")
+                    .tag("limit", "ip")
+                    .register(registry);
+            FunctionCounter.builder("auth.login.rate_limited", loginRateLimiter,
+                            LoginRateLimiter::getRejectedByEmailCount)
+                    .description("Login attempts rejected by the rate limiter")
+                    .tag("limit", "email")
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder lastLoginRecorderMetrics(LastLoginRecorder lastLoginRecorder) {
+        return registry -> {
+            Gauge.builder("auth.last_login.pending", lastLoginRecorder, LastLoginRecorder::getPendingCount)
+                    .description("Login timestamps not yet written to the database")
+                    .register(registry);
+            FunctionCounter.builder("auth.last_login.dropped", lastLoginRecorder,
+                            LastLoginRecorder::getDroppedCount)
+                    .description("Login timestamps dropped because the buffer was full during a database outage")
+                    .register(registry);
+        };
+    }
+}
@@ -0,0 +1,96 @@
+package com.smartbudget.users.config;
+
+import com.smartbudget.users.security.OffloadingPasswordEncoder;
+import com.smartbudget.users.security.PasswordEncoderCalibrator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Configuration
+public class PasswordEncoderConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(PasswordEncoderConfig.class);
+
+    private static final int MAX_BCRYPT_STRENGTH = 16;
+    private static final int MAX_ITERATIONS = 10_000_000;
+
+    @Value("${auth.password.encoding-id:bcrypt}")
+    private String encodingId;
+
+    // 0 disables calibration and the minimum costs below are used as is
+    @Value("${auth.password.target-hash-millis:50}")
+    private long targetHashMillis;
+
+    @Value("${auth.password.bcrypt-min-strength:10}")
+    private int bcryptMinStrength;
+
+    @Value("${auth.password.pbkdf2-min-iterations:185000}")
+    private int pbkdf2MinIterations;
+
+    @Value("${auth.password.argon2-min-iterations:3}")
+    private int argon2MinIterations;
+
+    @Value("${auth.hashing.threads:0}")
+    private int hashingThreads;
+
+    @Value("${auth.hashing.queue-capacity:64}")
+    private int hashingQueueCapacity;
+
+    @Value("${auth.hashing.retry-after-seconds:1}")
+    private long retryAfterSeconds;
+
+    @Bean
+    public PasswordEncoder passwordEncoder() {
+        // Only the encoder used for new hashes is calibrated; the others just need to verify old hashes
+        boolean calibrate = targetHashMillis > 0;
+        int bcryptStrength = calibrate && "bcrypt".equals(encodingId)
+                ? PasswordEncoderCalibrator.calibrateLogarithmic(BCryptPasswordEncoder::new,
+                bcryptMinStrength, MAX_BCRYPT_STRENGTH, targetHashMillis)
+                : bcryptMinStrength;
+        int pbkdf2Iterations = calibrate && "pbkdf2".equals(encodingId)
+                ? PasswordEncoderCalibrator.calibrateLinear(PasswordEncoderConfig::pbkdf2,
+                pbkdf2MinIterations, MAX_ITERATIONS, targetHashMillis)
+                : pbkdf2MinIterations;
+        int argon2Iterations = calibrate && "argon2".equals(encodingId)
+                ? PasswordEncoderCalibrator.calibrateLinear(PasswordEncoderConfig::argon2,
+                argon2MinIterations, MAX_ITERATIONS, targetHashMillis)
+                : argon2MinIterations;
+
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(bcryptStrength);
+        Map<String, PasswordEncoder> encoders = new HashMap<>();
+        encoders.put("bcrypt", bcrypt);
+        encoders.put("pbkdf2", pbkdf2(pbkdf2Iterations));
+        encoders.put("argon2", argon2(argon2Iterations));
+        if (!encoders.containsKey(encodingId)) {
+            throw new IllegalStateException("Unsupported auth.password.encoding-id: " + encodingId);
+        }
+        log.info("New password hashes use {} (bcrypt strength {}, pbkdf2 iterations {}, argon2 iterations {})",
+                encodingId, bcryptStrength, pbkdf2Iterations, argon2Iterations);
+
+        DelegatingPasswordEncoder delegating = new DelegatingPasswordEncoder(encodingId, encoders);
+        // Hashes stored before the {id} prefix was introduced are plain BCrypt
+        delegating.setDefaultPasswordEncoderForMatches(bcrypt);
+
+        // Hashing is CPU-bound: by default one hashing thread per core
+        int poolSize = hashingThreads > 0 ? hashingThreads : Runtime.getRuntime().availableProcessors();
+        return new OffloadingPasswordEncoder(delegating, poolSize, hashingQueueCapacity, retryAfterSeconds);
+    }
+
+    private static PasswordEncoder pbkdf2(int iterations) {
+        return new Pbkdf2PasswordEncoder("", 16, iterations, 256);
+    }
+
+    private static PasswordEncoder argon2(int iterations) {
+        return new Argon2PasswordEncoder(16, 32, 1, 4096, iterations);
+    }
+}
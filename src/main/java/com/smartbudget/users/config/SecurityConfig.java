@@ -1,27 +1,63 @@
 package com.smartbudget.users.config;
 
-import org.springframework.context.annotation.Bean;
+import com.smartbudget.users.security.JwtAuthenticationFilter;
+import com.smartbudget.users.security.JwtTokenProvider;
+import com.smartbudget.users.service.PermissionIndex;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.web.authentication.HttpStatusEntryPoint;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
 @Configuration
 public class SecurityConfig extends WebSecurityConfigurerAdapter {
 
+    /**
+     * Authority required to assign permissions; the first holder has to be granted it in the database.
+     */
+    public static final String MANAGE_ROLES = "roles:manage";
+
+    /**
+     * Authority required to list, export and import users.
+     */
+    public static final String MANAGE_USERS = "users:manage";
+
+    /**
+     * Authority required to introspect tokens, held by the service accounts of the resource servers (RFC 7662 2.1).
+     */
+    public static final String INTROSPECT_TOKENS = "tokens:introspect";
+
+    private final JwtTokenProvider jwtTokenProvider;
+    private final PermissionIndex permissionIndex;
+
+    @Autowired
+    public SecurityConfig(JwtTokenProvider jwtTokenProvider, PermissionIndex permissionIndex) {
+        this.jwtTokenProvider = jwtTokenProvider;
+        this.permissionIndex = permissionIndex;
+    }
+
     @Override
     protected void configure(HttpSecurity http) throws Exception {
         http.csrf().disable()
+                // Every request carries its own token: no HttpSession is created or read
+                .sessionManagement().sessionCreationPolicy(SessionCreationPolicy.STATELESS)
+                .and()
+                .addFilterBefore(new JwtAuthenticationFilter(jwtTokenProvider, permissionIndex),
+                        UsernamePasswordAuthenticationFilter.class)
+                .exceptionHandling().authenticationEntryPoint(new HttpStatusEntryPoint(HttpStatus.UNAUTHORIZED))
+                .and()
                 .authorizeRequests()
+                // Before the /auth/** rule: introspection reveals revocation status and spends a core per token
+                .antMatchers("/auth/introspect").hasAuthority(INTROSPECT_TOKENS)
                 .antMatchers("/auth/**").permitAll()
                 .antMatchers("/swagger-ui/**", "/v3/api-docs/**").permitAll()  // Доступ к Swagger UI
-                .antMatchers("/roles/add").permitAll() // Разрешить доступ только администраторам
+                .antMatchers("/.well-known/jwks.json", "/.well-known/permissions.json").permitAll()
+                .antMatchers("/actuator/health", "/actuator/prometheus").permitAll()
+                .antMatchers("/roles/add").hasAuthority(MANAGE_ROLES) // Разрешить доступ только администраторам
+                .antMatchers("/users", "/users/**").hasAuthority(MANAGE_USERS)
                 .anyRequest().authenticated();
     }
-
-    @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
-    }
 }
@@ -0,0 +1,44 @@
+package com.smartbudget.users.config;
+
+import com.smartbudget.users.controller.AuthController;
+import com.smartbudget.users.controller.IntrospectionController;
+import com.smartbudget.users.controller.JwksController;
+import com.smartbudget.users.security.JwtTokenProvider;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.MethodIntrospector;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import javax.servlet.Filter;
+import java.util.List;
+
+/**
+ * Startup of the {@code fast-startup} profile, which initializes beans lazily: the beans a login or a token check
+ * goes through are still created up front, so the first requests after a scale-out do not pay for them.
+ */
+@Configuration
+public class StartupConfig {
+
+    // With their dependencies: repositories, caches, the hashing pool, token stores and the rate limiter
+    private static final List<Class<?>> HOT_PATH = List.of(AuthController.class, IntrospectionController.class,
+            JwksController.class, JwtTokenProvider.class, PasswordEncoder.class, Filter.class);
+
+    /**
+     * Keeps the hot path and every bean with {@link Scheduled} methods out of lazy initialization; a lazy scheduled
+     * bean nobody asks for would never run its flushes, reloads and purges.
+     */
+    @Bean
+    public static LazyInitializationExcludeFilter hotPathEagerInitialization() {
+        return (beanName, beanDefinition, beanType) -> beanType != null
+                && (HOT_PATH.stream().anyMatch(type -> type.isAssignableFrom(beanType))
+                || hasScheduledMethods(beanType));
+    }
+
+    private static boolean hasScheduledMethods(Class<?> beanType) {
+        return !MethodIntrospector.selectMethods(beanType, (MethodIntrospector.MetadataLookup<Scheduled>) method ->
+                AnnotatedElementUtils.findMergedAnnotation(method, Scheduled.class)).isEmpty();
+    }
+}
@@ -0,0 +1,59 @@
+package com.smartbudget.users.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.UUID;
+
+/**
+ * Training run of the {@code cds} Maven profile ({@code auth.startup.training-run=true}): once started, registers
+ * a user and logs in over HTTP, then exits. The classes loaded up to here, startup and the login path, are the ones
+ * the class-data-sharing archive is built from.
+ */
+@Component
+@ConditionalOnProperty(name = "auth.startup.training-run", havingValue = "true")
+public class StartupTrainingRun implements ApplicationListener<ApplicationReadyEvent> {
+
+    private static final Logger log = LoggerFactory.getLogger(StartupTrainingRun.class);
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        int exitCode = 0;
+        try {
+            URI base = URI.create("http://localhost:"
+                    + event.getApplicationContext().getEnvironment().getProperty("local.server.port"));
+            String email = UUID.randomUUID() + "@training.local";
+            HttpClient client = HttpClient.newHttpClient();
+            post(client, base.resolve("/auth/register"),
+                    "{\"username\":\"" + email + "\",\"email\":\"" + email + "\",\"password\":\"Training-1\"}");
+            post(client, base.resolve("/auth/login"), "{\"email\":\"" + email + "\",\"password\":\"Training-1\"}");
+            log.info("Training run done");
+        } catch (Exception e) {
+            log.error("Training run failed", e);
+            exitCode = 1;
+        }
+        int code = exitCode;
+        System.exit(SpringApplication.exit(event.getApplicationContext(), () -> code));
+    }
+
+    private static void post(HttpClient client, URI uri, String body) throws Exception {
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(uri)
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(body))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException(uri.getPath() + " answered " + response.statusCode() + ": "
+                    + response.body());
+        }
+    }
+}
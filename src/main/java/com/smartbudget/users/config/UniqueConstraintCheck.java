@@ -0,0 +1,72 @@
+package com.smartbudget.users.config;
+
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Refuses to start against a users table without unique indexes on username and email. Register and the NDJSON
+ * import insert without looking for an existing user first and rely on those constraints to reject duplicates;
+ * without them they would create duplicate accounts, and lookups by email would fail on the second row.
+ * <p>
+ * A {@link SmartInitializingSingleton}, so it also runs when beans are initialized lazily.
+ */
+@Component
+public class UniqueConstraintCheck implements SmartInitializingSingleton {
+
+    private static final String SCHEMA = "users_auth";
+    private static final String TABLE = "users";
+
+    private final DataSource dataSource;
+
+    @Autowired
+    public UniqueConstraintCheck(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        Set<Set<String>> uniqueIndexes;
+        try (Connection connection = dataSource.getConnection()) {
+            uniqueIndexes = uniqueIndexes(connection.getMetaData());
+        } catch (SQLException e) {
+            throw new IllegalStateException("Cannot read the indexes of " + SCHEMA + "." + TABLE, e);
+        }
+        for (String column : new String[]{"username", "email"}) {
+            if (!uniqueIndexes.contains(Set.of(column))) {
+                throw new IllegalStateException(SCHEMA + "." + TABLE + " has no unique constraint on " + column
+                        + "; run the Flyway migrations (V5 adds it) before starting the service");
+            }
+        }
+    }
+
+    // The column sets of the table's unique indexes, in lower case
+    private static Set<Set<String>> uniqueIndexes(DatabaseMetaData metaData) throws SQLException {
+        boolean upperCase = metaData.storesUpperCaseIdentifiers();
+        String schema = upperCase ? SCHEMA.toUpperCase(Locale.ROOT) : SCHEMA;
+        String table = upperCase ? TABLE.toUpperCase(Locale.ROOT) : TABLE;
+        Map<String, Set<String>> columnsByIndex = new HashMap<>();
+        try (ResultSet indexes = metaData.getIndexInfo(null, schema, table, true, true)) {
+            while (indexes.next()) {
+                String index = indexes.getString("INDEX_NAME");
+                String column = indexes.getString("COLUMN_NAME");
+                if (index != null && column != null) {
+                    columnsByIndex.computeIfAbsent(index, name -> new TreeSet<>())
+                            .add(column.toLowerCase(Locale.ROOT));
+                }
+            }
+        }
+        return Set.copyOf(columnsByIndex.values());
+    }
+}
@@ -2,21 +2,44 @@ package com.smartbudget.users.controller;
 
 import com.smartbudget.users.dto.*;
 import com.smartbudget.users.model.User;
+import com.smartbudget.users.repository.UserCredentials;
+import com.smartbudget.users.repository.UserIdentity;
 import com.smartbudget.users.repository.UserRepository;
+import com.smartbudget.users.security.ClientAddressResolver;
 import com.smartbudget.users.security.JwtTokenProvider;
+import com.smartbudget.users.security.LoginRateLimiter;
+import com.smartbudget.users.security.TokenVerification;
+import com.smartbudget.users.service.AsyncAuthExecutors;
+import com.smartbudget.users.service.LastLoginRecorder;
+import com.smartbudget.users.service.PermissionIndex;
+import com.smartbudget.users.service.RefreshTokenService;
+import com.smartbudget.users.service.UserCache;
+import com.smartbudget.users.service.UserEventOutbox;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import org.hibernate.exception.ConstraintViolationException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.bind.annotation.*;
 
+import javax.annotation.PostConstruct;
+import javax.servlet.http.HttpServletRequest;
 import java.time.Instant;
 import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/auth")
@@ -32,27 +55,70 @@ public class AuthController {
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private LastLoginRecorder lastLoginRecorder;
+
+    @Autowired
+    private UserCache userCache;
+
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+
+    @Autowired
+    private PermissionIndex permissionIndex;
+
+    @Autowired
+    private LoginRateLimiter loginRateLimiter;
+
+    @Autowired
+    private ClientAddressResolver clientAddressResolver;
+
+    @Autowired
+    private UserEventOutbox userEventOutbox;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    // Verified instead of a real hash when the email is unknown, so unknown and existing emails take equally long
+    private volatile String dummyPasswordHash;
+
+    // Only present with auth.async.enabled; the handlers then return a CompletableFuture instead of blocking
+    @Autowired(required = false)
+    private AsyncAuthExecutors asyncExecutors;
+
     @PostMapping("/register")
     @Operation(summary = "Register a new user")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "User registered successfully", content = @Content(mediaType = "application/json", schema = @Schema(implementation = MessageResponse.class))),
             @ApiResponse(responseCode = "400", description = "User already exists or Email already exists", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class)))
     })
-    public ResponseEntity<?> register(@RequestBody RegisterRequest registerRequest) {
-        if (userRepository.findByUsername(registerRequest.getUsername()) != null) {
-            return ResponseEntity.badRequest().body(new ErrorResponse(400, "Bad Request", "User already exists"));
-        }
-        if (userRepository.findByEmail(registerRequest.getEmail()) != null) {
-            return ResponseEntity.badRequest().body(new ErrorResponse(400, "Bad Request", "Email already exists"));
+    public Object register(@RequestBody RegisterRequest registerRequest) {
+        if (asyncExecutors == null) {
+            return saveUser(registerRequest, passwordEncoder.encode(registerRequest.getPassword()));
         }
+        return asyncExecutors.encode(registerRequest.getPassword())
+                .thenApplyAsync(encodedPassword -> saveUser(registerRequest, encodedPassword),
+                        asyncExecutors.ioContinuation());
+    }
 
+    private ResponseEntity<?> saveUser(RegisterRequest registerRequest, String encodedPassword) {
         User user = new User();
         user.setUsername(registerRequest.getUsername());
-        user.setPassword(passwordEncoder.encode(registerRequest.getPassword()));
+        user.setPassword(encodedPassword);
         user.setEmail(registerRequest.getEmail());
         user.setActive(true);
         user.setCreatedAt(LocalDateTime.now());
-        userRepository.save(user);
+        try {
+            // Insert optimistically: the unique constraints reject duplicates, also under concurrent signups.
+            // Flushed before the event is written, so a duplicate fails at the insert with its constraint name
+            transactionTemplate.executeWithoutResult(status -> {
+                User saved = userRepository.saveAndFlush(user);
+                userEventOutbox.append(UserEvent.Type.CREATED, saved.getId(), saved.getUsername(), saved.getEmail());
+            });
+        } catch (DataIntegrityViolationException e) {
+            return ResponseEntity.badRequest().body(new ErrorResponse(400, "Bad Request", duplicateUserMessage(registerRequest, e)));
+        }
+        userCache.evictMissing(registerRequest.getEmail());
         return ResponseEntity.ok(new MessageResponse("User registered successfully"));
     }
 
@@ -60,17 +126,81 @@ public class AuthController {
     @Operation(summary = "Login and get a JWT token pair")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Login successful and tokens returned", content = @Content(mediaType = "application/json", schema = @Schema(implementation = TokensResponse.class))),
-            @ApiResponse(responseCode = "401", description = "Invalid email or password", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class)))
+            @ApiResponse(responseCode = "401", description = "Invalid email or password", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class))),
+            @ApiResponse(responseCode = "429", description = "Too many login attempts from this address or for this email", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class)))
     })
-    public ResponseEntity<?> login(@RequestBody LoginRequest loginRequest) {
-        User user = userRepository.findByEmail(loginRequest.getEmail());
-        if (user == null || !passwordEncoder.matches(loginRequest.getPassword(), user.getPassword())) {
-            return ResponseEntity.status(401).body(new ErrorResponse(401, "Unauthorized", "Invalid email or password"));
+    public Object login(@RequestBody LoginRequest loginRequest, HttpServletRequest request) {
+        // Before any lookup or hashing, so throttled attempts cost next to nothing
+        String clientAddress = clientAddressResolver.resolve(request.getRemoteAddr(),
+                Collections.list(request.getHeaders(ClientAddressResolver.FORWARDED_FOR)));
+        long retryAfterSeconds = loginRateLimiter.acquire(clientAddress, loginRequest.getEmail());
+        if (retryAfterSeconds > 0) {
+            return ResponseEntity.status(429)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                    .body(new ErrorResponse(429, "Too Many Requests", "Too many login attempts, please retry later"));
+        }
+        if (asyncExecutors == null) {
+            UserCredentials user = userCache.findByEmail(loginRequest.getEmail());
+            boolean matches = passwordEncoder.matches(loginRequest.getPassword(), passwordHashOf(user));
+            if (user == null || !matches) {
+                return invalidCredentials();
+            }
+            // The raw password is only available here, so stale hashes are upgraded on a successful login
+            String upgradedHash = passwordEncoder.upgradeEncoding(user.getPassword())
+                    ? passwordEncoder.encode(loginRequest.getPassword()) : null;
+            return issueTokens(user, upgradedHash);
+        }
+        // Lookup and token issuing on the I/O executor, hashing on the hashing pool, no thread waits between
+        return CompletableFuture.supplyAsync(() -> userCache.findByEmail(loginRequest.getEmail()), asyncExecutors.io())
+                .thenCompose(user -> asyncExecutors.matches(loginRequest.getPassword(), passwordHashOf(user))
+                        .thenApply(matches -> matches ? user : null))
+                .thenCompose(user -> user == null
+                        ? CompletableFuture.<ResponseEntity<?>>completedFuture(invalidCredentials())
+                        : issueTokensAsync(user, loginRequest.getPassword()));
+    }
+
+    private CompletableFuture<ResponseEntity<?>> issueTokensAsync(UserCredentials user, String rawPassword) {
+        CompletableFuture<String> upgradedHash = passwordEncoder.upgradeEncoding(user.getPassword())
+                ? asyncExecutors.encode(rawPassword) : CompletableFuture.completedFuture(null);
+        return upgradedHash.thenApplyAsync(hash -> issueTokens(user, hash), asyncExecutors.ioContinuation());
+    }
+
+    @PostConstruct
+    void precomputeDummyPasswordHash() {
+        dummyPasswordHash();
+    }
+
+    private String passwordHashOf(UserCredentials user) {
+        return user != null ? user.getPassword() : dummyPasswordHash();
+    }
+
+    // Hashed with the current encoder settings, so it costs what a user's up-to-date hash costs to verify
+    private String dummyPasswordHash() {
+        String hash = dummyPasswordHash;
+        if (hash == null) {
+            hash = passwordEncoder.encode(UUID.randomUUID().toString());
+            dummyPasswordHash = hash;
+        }
+        return hash;
+    }
+
+    private ResponseEntity<?> invalidCredentials() {
+        return ResponseEntity.status(401).body(new ErrorResponse(401, "Unauthorized", "Invalid email or password"));
+    }
+
+    /**
+     * @param upgradedHash the password re-encoded with the current settings, {@code null} if its hash is up to date
+     */
+    private ResponseEntity<?> issueTokens(UserCredentials user, String upgradedHash) {
+        String accessToken = jwtTokenProvider.generateToken(user.getUsername(),
+                permissionIndex.permissionsOf(user.getUsername()), 3600); // 1 hour expiration
+        String refreshToken = refreshTokenService.issue(user.getUsername());
+        if (upgradedHash != null) {
+            userRepository.updatePassword(user.getId(), upgradedHash);
+            userCache.evict(user.getId());
         }
-        String accessToken = jwtTokenProvider.generateToken(user.getUsername(), 3600); // 1 hour expiration
-        String refreshToken = jwtTokenProvider.generateToken(user.getUsername(), 86400); // 1 day expiration
-        user.setLastLogin(LocalDateTime.now());
-        userRepository.save(user);
+        // Also after an upgrade: a direct write could be overwritten by an older timestamp still pending
+        lastLoginRecorder.record(user.getId(), LocalDateTime.now());
 
         TokensResponse tokens = new TokensResponse();
         tokens.setAccessToken(accessToken);
@@ -85,18 +215,83 @@ public class AuthController {
             @ApiResponse(responseCode = "200", description = "Tokens refreshed successfully", content = @Content(mediaType = "application/json", schema = @Schema(implementation = TokensResponse.class))),
             @ApiResponse(responseCode = "401", description = "Invalid refresh token", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class)))
     })
-    public ResponseEntity<?> refreshToken(@RequestBody RefreshTokenRequest refreshTokenRequest) {
-        String refreshToken = refreshTokenRequest.getRefreshToken();
-        if (!jwtTokenProvider.validateToken(refreshToken)) {
+    public Object refreshToken(@RequestBody RefreshTokenRequest refreshTokenRequest) {
+        return respond(() -> rotateTokens(refreshTokenRequest));
+    }
+
+    private ResponseEntity<?> rotateTokens(RefreshTokenRequest refreshTokenRequest) {
+        TokenVerification verification = jwtTokenProvider.verify(refreshTokenRequest.getRefreshToken());
+        if (!verification.isValid()) {
             return ResponseEntity.status(401).body(new ErrorResponse(401, "Unauthorized", "Invalid refresh token"));
         }
-        String username = jwtTokenProvider.getUsername(refreshToken);
-        String newAccessToken = jwtTokenProvider.generateToken(username, 3600);
+        // Refresh tokens are single-use: a successful refresh also replaces the refresh token
+        String newRefreshToken = refreshTokenService.rotate(verification.getToken());
+        if (newRefreshToken == null) {
+            return ResponseEntity.status(401).body(new ErrorResponse(401, "Unauthorized", "Invalid refresh token"));
+        }
+        String username = verification.getToken().getSubject();
+        String newAccessToken = jwtTokenProvider.generateToken(username, permissionIndex.permissionsOf(username), 3600);
 
         TokensResponse tokens = new TokensResponse();
         tokens.setAccessToken(newAccessToken);
-        tokens.setRefreshToken(refreshToken);
+        tokens.setRefreshToken(newRefreshToken);
 
         return ResponseEntity.ok(tokens);
     }
+
+    @PostMapping("/logout")
+    @Operation(summary = "Revoke the refresh token and every token rotated from it")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Logged out successfully; a bearer access token, if sent, is revoked too", content = @Content(mediaType = "application/json", schema = @Schema(implementation = MessageResponse.class))),
+            @ApiResponse(responseCode = "401", description = "Invalid refresh token", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    public Object logout(@RequestBody RefreshTokenRequest refreshTokenRequest,
+                         @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization) {
+        return respond(() -> revokeTokens(refreshTokenRequest, authorization));
+    }
+
+    private ResponseEntity<?> revokeTokens(RefreshTokenRequest refreshTokenRequest, String authorization) {
+        TokenVerification verification = jwtTokenProvider.verify(refreshTokenRequest.getRefreshToken());
+        if (!verification.isValid() || !refreshTokenService.revoke(verification.getToken())) {
+            return ResponseEntity.status(401).body(new ErrorResponse(401, "Unauthorized", "Invalid refresh token"));
+        }
+        if (authorization != null && authorization.startsWith("Bearer ")) {
+            TokenVerification accessToken = jwtTokenProvider.verify(authorization.substring(7));
+            if (accessToken.isValid() && !accessToken.getToken().isRefreshToken()) {
+                jwtTokenProvider.revoke(accessToken.getToken());
+            }
+        }
+        return ResponseEntity.ok(new MessageResponse("Logged out successfully"));
+    }
+
+    /**
+     * Runs a handler that is only I/O-bound: inline, or on the I/O executor in async mode.
+     */
+    private Object respond(Supplier<ResponseEntity<?>> handler) {
+        if (asyncExecutors == null) {
+            return handler.get();
+        }
+        return CompletableFuture.supplyAsync(handler, asyncExecutors.io());
+    }
+
+    private String duplicateUserMessage(RegisterRequest registerRequest, DataIntegrityViolationException e) {
+        List<UserIdentity> conflicts = userRepository.findByUsernameOrEmail(registerRequest.getUsername(), registerRequest.getEmail());
+        if (conflicts.stream().anyMatch(conflict -> Objects.equals(conflict.getUsername(), registerRequest.getUsername()))) {
+            return "User already exists";
+        }
+        if (!conflicts.isEmpty()) {
+            return "Email already exists";
+        }
+        // The conflicting row is already gone; fall back to the violated constraint
+        Throwable cause = e.getCause();
+        if (cause instanceof ConstraintViolationException
+                && "uk_users_email".equals(((ConstraintViolationException) cause).getConstraintName())) {
+            return "Email already exists";
+        }
+        if (cause instanceof ConstraintViolationException
+                && "uk_users_username".equals(((ConstraintViolationException) cause).getConstraintName())) {
+            return "User already exists";
+        }
+        throw e;
+    }
 }
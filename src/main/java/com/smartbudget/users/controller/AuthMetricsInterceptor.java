@@ -0,0 +1,122 @@
+package com.smartbudget.users.controller;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Times the {@link AuthController} endpoints as {@code auth.requests}, tagged with the endpoint and a business
+ * outcome derived from the response status. Every endpoint/outcome timer is registered up front, so a request only
+ * does two map lookups and a record.
+ * <p>
+ * The start time is kept in a request attribute: with the asynchronous mode the handler returns on one dispatch and
+ * the response is completed on another, and only the last one is recorded.
+ * <p>
+ * The first successful login also sets {@code auth.startup.first_login}, the time from JVM start until the instance
+ * actually served a login: what a scale-out waits for, beyond the context being ready.
+ */
+public class AuthMetricsInterceptor implements AsyncHandlerInterceptor {
+
+    private static final Logger log = LoggerFactory.getLogger(AuthMetricsInterceptor.class);
+
+    private static final String STARTED_AT = AuthMetricsInterceptor.class.getName() + ".startedAt";
+
+    private static final String[] ENDPOINTS = {"register", "login", "refreshToken", "logout", "introspect"};
+    private static final String[] OUTCOMES = {
+            "success", "bad_credentials", "invalid_token", "duplicate_user", "rate_limited", "unavailable", "error"};
+
+    // Written only in the constructor
+    private final Map<String, Map<String, Timer>> timers = new HashMap<>();
+    // JVM uptime at the first successful login, -1 until then
+    private final AtomicLong firstLoginMillis = new AtomicLong(-1);
+
+    public AuthMetricsInterceptor(MeterRegistry registry) {
+        for (String endpoint : ENDPOINTS) {
+            Map<String, Timer> byOutcome = new HashMap<>();
+            for (String outcome : OUTCOMES) {
+                byOutcome.put(outcome, Timer.builder("auth.requests")
+                        .description("Auth endpoint latency by business outcome")
+                        .tag("endpoint", endpoint)
+                        .tag("outcome", outcome)
+                        .publishPercentileHistogram()
+                        .register(registry));
+            }
+            timers.put(endpoint, byOutcome);
+        }
+        TimeGauge.builder("auth.startup.first_login", this, TimeUnit.MILLISECONDS,
+                        AuthMetricsInterceptor::getFirstLoginMillis)
+                .description("Time from JVM start to the first successful login")
+                .register(registry);
+    }
+
+    /**
+     * @return milliseconds from JVM start to the first successful login, NaN before it
+     */
+    public double getFirstLoginMillis() {
+        long millis = firstLoginMillis.get();
+        return millis < 0 ? Double.NaN : millis;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // An async dispatch passes here again and must keep the time of the original request
+        if (request.getAttribute(STARTED_AT) == null) {
+            request.setAttribute(STARTED_AT, System.nanoTime());
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        Object startedAt = request.getAttribute(STARTED_AT);
+        if (startedAt == null || !(handler instanceof HandlerMethod)) {
+            return;
+        }
+        String endpoint = ((HandlerMethod) handler).getMethod().getName();
+        Map<String, Timer> byOutcome = timers.get(endpoint);
+        if (byOutcome != null) {
+            String outcome = ex != null ? "error" : outcome(endpoint, response.getStatus());
+            byOutcome.get(outcome).record(System.nanoTime() - (Long) startedAt, TimeUnit.NANOSECONDS);
+            if ("success".equals(outcome) && "login".equals(endpoint) && firstLoginMillis.get() < 0) {
+                recordFirstLogin();
+            }
+        }
+    }
+
+    private void recordFirstLogin() {
+        long uptimeMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+        if (firstLoginMillis.compareAndSet(-1, uptimeMillis)) {
+            log.info("First successful login {} ms after JVM start", uptimeMillis);
+        }
+    }
+
+    private static String outcome(String endpoint, int status) {
+        switch (status) {
+            case 200:
+                return "success";
+            case 400:
+                return "register".equals(endpoint) ? "duplicate_user" : "error";
+            case 401:
+                return "login".equals(endpoint) ? "bad_credentials" : "invalid_token";
+            case 429:
+                return "rate_limited";
+            case 503:
+                return "unavailable";
+            default:
+                return "error";
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.smartbudget.users.controller;
+
+import com.smartbudget.users.dto.ErrorResponse;
+import com.smartbudget.users.dto.IntrospectRequest;
+import com.smartbudget.users.dto.IntrospectResponse;
+import com.smartbudget.users.dto.TokenIntrospection;
+import com.smartbudget.users.service.TokenIntrospectionService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@RestController
+@RequestMapping("/auth")
+@Tag(name = "Token introspection", description = "Token verification for downstream services; requires the tokens:introspect permission")
+public class IntrospectionController {
+
+    private final TokenIntrospectionService tokenIntrospectionService;
+
+    @Autowired
+    public IntrospectionController(TokenIntrospectionService tokenIntrospectionService) {
+        this.tokenIntrospectionService = tokenIntrospectionService;
+    }
+
+    @PostMapping("/introspect")
+    @Operation(summary = "Verify a batch of access or refresh tokens and return their claims and revocation status")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "One result per token, in request order; Cache-Control says how long they may be reused", content = @Content(mediaType = "application/json", schema = @Schema(implementation = IntrospectResponse.class))),
+            @ApiResponse(responseCode = "400", description = "No tokens or more than auth.introspection.max-tokens", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class))),
+            @ApiResponse(responseCode = "401", description = "No valid access token"),
+            @ApiResponse(responseCode = "403", description = "The access token lacks the tokens:introspect permission")
+    })
+    public ResponseEntity<?> introspect(@RequestBody IntrospectRequest introspectRequest) {
+        List<String> tokens = introspectRequest.getTokens();
+        int maxTokens = tokenIntrospectionService.getMaxTokens();
+        if (tokens == null || tokens.isEmpty() || tokens.size() > maxTokens) {
+            return ResponseEntity.badRequest().body(new ErrorResponse(400, "Bad Request",
+                    "Between 1 and " + maxTokens + " tokens are required"));
+        }
+        List<TokenIntrospection> results = tokenIntrospectionService.introspect(tokens);
+        long cacheSeconds = tokenIntrospectionService.cacheSeconds(results);
+        // Private: the results describe the caller's tokens and must not be shared by intermediaries
+        CacheControl cacheControl = cacheSeconds > 0
+                ? CacheControl.maxAge(cacheSeconds, TimeUnit.SECONDS).cachePrivate()
+                : CacheControl.noStore();
+        return ResponseEntity.ok().cacheControl(cacheControl).body(new IntrospectResponse(results));
+    }
+}
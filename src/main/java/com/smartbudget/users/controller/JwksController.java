@@ -0,0 +1,36 @@
+package com.smartbudget.users.controller;
+
+import com.smartbudget.users.security.JwtKeyRing;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@RestController
+@Tag(name = "Keys", description = "Public keys for local token verification")
+public class JwksController {
+
+    private final JwtKeyRing keyRing;
+
+    @Autowired
+    public JwksController(JwtKeyRing keyRing) {
+        this.keyRing = keyRing;
+    }
+
+    @GetMapping("/.well-known/jwks.json")
+    @Operation(summary = "Get the JSON Web Key Set used to verify issued tokens")
+    public ResponseEntity<Map<String, List<Map<String, Object>>>> jwks() {
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(1, TimeUnit.HOURS).cachePublic())
+                // HS256 keys are shared secrets and are never published
+                .body(Collections.singletonMap("keys", keyRing.getPublicJwks()));
+    }
+}
@@ -0,0 +1,59 @@
+package com.smartbudget.users.controller;
+
+import com.smartbudget.users.dto.ErrorResponse;
+import com.smartbudget.users.dto.MessageResponse;
+import com.smartbudget.users.dto.PermissionRequest;
+import com.smartbudget.users.service.PermissionIndex;
+import com.smartbudget.users.service.PermissionService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@RestController
+@Tag(name = "Permissions", description = "Permission assignment and names for decoding the prm token claim")
+public class PermissionController {
+
+    private final PermissionIndex permissionIndex;
+    private final PermissionService permissionService;
+
+    @Autowired
+    public PermissionController(PermissionIndex permissionIndex, PermissionService permissionService) {
+        this.permissionIndex = permissionIndex;
+        this.permissionService = permissionService;
+    }
+
+    @PostMapping("/roles/add")
+    @Operation(summary = "Grant a permission to a user; requires the roles:manage permission")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Permission granted", content = @Content(mediaType = "application/json", schema = @Schema(implementation = MessageResponse.class))),
+            @ApiResponse(responseCode = "400", description = "User not found", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    public ResponseEntity<?> addPermission(@RequestBody PermissionRequest permissionRequest) {
+        if (!permissionService.grant(permissionRequest.getUsername(), permissionRequest.getPermission())) {
+            return ResponseEntity.badRequest().body(new ErrorResponse(400, "Bad Request", "User not found"));
+        }
+        return ResponseEntity.ok(new MessageResponse("Permission granted"));
+    }
+
+    @GetMapping("/.well-known/permissions.json")
+    @Operation(summary = "Get permission names by id; bit n of the prm claim is permission n")
+    public ResponseEntity<Map<Long, String>> permissions() {
+        // Ids are never reused, so a cached copy can only lack permissions created since
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(5, TimeUnit.MINUTES).cachePublic())
+                .body(permissionIndex.getNames());
+    }
+}
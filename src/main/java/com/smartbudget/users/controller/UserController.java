@@ -0,0 +1,46 @@
+package com.smartbudget.users.controller;
+
+import com.smartbudget.users.dto.UserFilter;
+import com.smartbudget.users.dto.UserPage;
+import com.smartbudget.users.service.UserService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springdoc.api.annotations.ParameterObject;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/users")
+@Tag(name = "Users", description = "User listing; requires the users:manage permission")
+public class UserController {
+
+    private final UserService userService;
+
+    @Autowired
+    public UserController(UserService userService) {
+        this.userService = userService;
+    }
+
+    @GetMapping
+    @Operation(summary = "List users ordered by id, one page per request")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "A page of users and the cursor of the next page", content = @Content(mediaType = "application/json", schema = @Schema(implementation = UserPage.class)))
+    })
+    public ResponseEntity<UserPage> listUsers(
+            @ParameterObject UserFilter filter,
+            @Parameter(description = "nextCursor of the previous page; omit for the first page")
+            @RequestParam(required = false) Long after,
+            @Parameter(description = "Page size, at most " + UserService.MAX_PAGE_SIZE)
+            @RequestParam(defaultValue = "50") int limit) {
+        return ResponseEntity.ok(userService.listUsers(filter, after, limit));
+    }
+}
@@ -0,0 +1,53 @@
+package com.smartbudget.users.controller;
+
+import com.smartbudget.users.dto.ImportResponse;
+import com.smartbudget.users.service.UserTransferService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+@RestController
+@RequestMapping("/users")
+@Tag(name = "User transfer", description = "Bulk user export and import as NDJSON; requires the users:manage permission")
+public class UserTransferController {
+
+    public static final String NDJSON = "application/x-ndjson";
+
+    private final UserTransferService userTransferService;
+
+    @Autowired
+    public UserTransferController(UserTransferService userTransferService) {
+        this.userTransferService = userTransferService;
+    }
+
+    @GetMapping(value = "/export", produces = NDJSON)
+    @Operation(summary = "Export every user, one JSON object per line, including password hashes")
+    public void exportUsers(HttpServletResponse response) throws IOException {
+        response.setContentType(NDJSON);
+        response.setCharacterEncoding("UTF-8");
+        userTransferService.exportUsers(response.getOutputStream());
+    }
+
+    @PostMapping(value = "/import", consumes = NDJSON)
+    @Operation(summary = "Import users, one JSON object per line with a raw password or a password hash")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Import finished; duplicates and rejected lines are counted, not fatal", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ImportResponse.class)))
+    })
+    public ResponseEntity<ImportResponse> importUsers(HttpServletRequest request) throws IOException {
+        // Read from the request stream, so the body is never buffered as a whole
+        return ResponseEntity.ok(userTransferService.importUsers(request.getInputStream()));
+    }
+}
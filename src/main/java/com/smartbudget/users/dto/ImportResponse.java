@@ -0,0 +1,75 @@
+package com.smartbudget.users.dto;
+
+import java.util.List;
+
+public class ImportResponse {
+    private long inserted;
+    private long duplicates;
+    private long rejected;
+    private List<String> errors;
+    private long elapsedMillis;
+    private double rowsPerSecond;
+
+    public ImportResponse(long inserted, long duplicates, long rejected, List<String> errors, long elapsedMillis) {
+        this.inserted = inserted;
+        this.duplicates = duplicates;
+        this.rejected = rejected;
+        this.errors = errors;
+        this.elapsedMillis = elapsedMillis;
+        this.rowsPerSecond = elapsedMillis == 0 ? 0 : inserted * 1000.0 / elapsedMillis;
+    }
+
+    public long getInserted() {
+        return inserted;
+    }
+
+    public void setInserted(long inserted) {
+        this.inserted = inserted;
+    }
+
+    /**
+     * Lines whose username or email already existed; they are skipped, not updated.
+     */
+    public long getDuplicates() {
+        return duplicates;
+    }
+
+    public void setDuplicates(long duplicates) {
+        this.duplicates = duplicates;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    public void setRejected(long rejected) {
+        this.rejected = rejected;
+    }
+
+    /**
+     * The first rejected lines with their line numbers.
+     */
+    public List<String> getErrors() {
+        return errors;
+    }
+
+    public void setErrors(List<String> errors) {
+        this.errors = errors;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public void setElapsedMillis(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public double getRowsPerSecond() {
+        return rowsPerSecond;
+    }
+
+    public void setRowsPerSecond(double rowsPerSecond) {
+        this.rowsPerSecond = rowsPerSecond;
+    }
+}
@@ -0,0 +1,15 @@
+package com.smartbudget.users.dto;
+
+import java.util.List;
+
+public class IntrospectRequest {
+    private List<String> tokens;
+
+    public List<String> getTokens() {
+        return tokens;
+    }
+
+    public void setTokens(List<String> tokens) {
+        this.tokens = tokens;
+    }
+}
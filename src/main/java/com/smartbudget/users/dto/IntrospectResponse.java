@@ -0,0 +1,18 @@
+package com.smartbudget.users.dto;
+
+import java.util.List;
+
+public class IntrospectResponse {
+    private final List<TokenIntrospection> results;
+
+    public IntrospectResponse(List<TokenIntrospection> results) {
+        this.results = results;
+    }
+
+    /**
+     * One result per requested token, in request order.
+     */
+    public List<TokenIntrospection> getResults() {
+        return results;
+    }
+}
@@ -0,0 +1,87 @@
+package com.smartbudget.users.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Introspection of one token. Claims are only present for active tokens; inactive ones carry the reason instead.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TokenIntrospection {
+    private final boolean active;
+    private final boolean revoked;
+    private final String error;
+    private final String tokenType;
+    private final String subject;
+    private final String tokenId;
+    private final Instant issuedAt;
+    private final Instant expiresAt;
+    private final List<String> permissions;
+
+    private TokenIntrospection(boolean active, boolean revoked, String error, String tokenType, String subject,
+                               String tokenId, Instant issuedAt, Instant expiresAt, List<String> permissions) {
+        this.active = active;
+        this.revoked = revoked;
+        this.error = error;
+        this.tokenType = tokenType;
+        this.subject = subject;
+        this.tokenId = tokenId;
+        this.issuedAt = issuedAt;
+        this.expiresAt = expiresAt;
+        this.permissions = permissions;
+    }
+
+    public static TokenIntrospection active(String tokenType, String subject, String tokenId, Instant issuedAt,
+                                            Instant expiresAt, List<String> permissions) {
+        return new TokenIntrospection(true, false, null, tokenType, subject, tokenId, issuedAt, expiresAt,
+                permissions);
+    }
+
+    /**
+     * @param error lower-case failure, for example {@code expired} or {@code revoked}
+     */
+    public static TokenIntrospection inactive(String error) {
+        return new TokenIntrospection(false, "revoked".equals(error), error, null, null, null, null, null, null);
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    public boolean isRevoked() {
+        return revoked;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * {@code access} or {@code refresh}.
+     */
+    public String getTokenType() {
+        return tokenType;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    public String getTokenId() {
+        return tokenId;
+    }
+
+    public Instant getIssuedAt() {
+        return issuedAt;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    public List<String> getPermissions() {
+        return permissions;
+    }
+}
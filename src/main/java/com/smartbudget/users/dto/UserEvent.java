@@ -0,0 +1,57 @@
+package com.smartbudget.users.dto;
+
+import java.time.Instant;
+
+/**
+ * A change to a user, as published to other services. Delivery is at-least-once: a consumer that needs exactly-once
+ * effects skips event ids it has already seen. Events of one user are published in the order they were committed.
+ */
+public class UserEvent {
+
+    public enum Type {
+        CREATED, UPDATED, DELETED
+    }
+
+    private final long eventId;
+    private final Type type;
+    private final Long userId;
+    private final String username;
+    private final String email;
+    private final Instant occurredAt;
+
+    public UserEvent(long eventId, Type type, Long userId, String username, String email, Instant occurredAt) {
+        this.eventId = eventId;
+        this.type = type;
+        this.userId = userId;
+        this.username = username;
+        this.email = email;
+        this.occurredAt = occurredAt;
+    }
+
+    public long getEventId() {
+        return eventId;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    /**
+     * The username after the change; for {@link Type#DELETED} the last known one, or {@code null} if unknown.
+     */
+    public String getUsername() {
+        return username;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public Instant getOccurredAt() {
+        return occurredAt;
+    }
+}
@@ -0,0 +1,65 @@
+package com.smartbudget.users.dto;
+
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDateTime;
+
+/**
+ * Optional filters of the user listing; unset fields do not filter. Lower bounds are inclusive, upper bounds
+ * exclusive. A lastLogin bound excludes users who never logged in.
+ */
+public class UserFilter {
+    private Boolean active;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime createdFrom;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime createdBefore;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime lastLoginFrom;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime lastLoginBefore;
+
+    public Boolean getActive() {
+        return active;
+    }
+
+    public void setActive(Boolean active) {
+        this.active = active;
+    }
+
+    public LocalDateTime getCreatedFrom() {
+        return createdFrom;
+    }
+
+    public void setCreatedFrom(LocalDateTime createdFrom) {
+        this.createdFrom = createdFrom;
+    }
+
+    public LocalDateTime getCreatedBefore() {
+        return createdBefore;
+    }
+
+    public void setCreatedBefore(LocalDateTime createdBefore) {
+        this.createdBefore = createdBefore;
+    }
+
+    public LocalDateTime getLastLoginFrom() {
+        return lastLoginFrom;
+    }
+
+    public void setLastLoginFrom(LocalDateTime lastLoginFrom) {
+        this.lastLoginFrom = lastLoginFrom;
+    }
+
+    public LocalDateTime getLastLoginBefore() {
+        return lastLoginBefore;
+    }
+
+    public void setLastLoginBefore(LocalDateTime lastLoginBefore) {
+        this.lastLoginBefore = lastLoginBefore;
+    }
+}
@@ -0,0 +1,24 @@
+package com.smartbudget.users.dto;
+
+import java.util.List;
+
+public class UserPage {
+    private final List<UserSummary> users;
+    private final Long nextCursor;
+
+    public UserPage(List<UserSummary> users, Long nextCursor) {
+        this.users = users;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<UserSummary> getUsers() {
+        return users;
+    }
+
+    /**
+     * Pass as {@code after} to get the next page; {@code null} on the last page.
+     */
+    public Long getNextCursor() {
+        return nextCursor;
+    }
+}
@@ -0,0 +1,99 @@
+package com.smartbudget.users.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.LocalDateTime;
+
+/**
+ * One line of the NDJSON user export and import. Exports carry {@code passwordHash}; an import line carries either
+ * {@code passwordHash}, stored as is, or a raw {@code password}, which is hashed. {@code id} is ignored on import.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class UserRecord {
+    private Long id;
+    private String username;
+    private String email;
+    private String password;
+    private String passwordHash;
+    private Boolean active;
+    private LocalDateTime createdAt;
+    private LocalDateTime lastLogin;
+
+    public UserRecord() {
+    }
+
+    public UserRecord(Long id, String username, String email, String passwordHash, boolean active,
+                      LocalDateTime createdAt, LocalDateTime lastLogin) {
+        this.id = id;
+        this.username = username;
+        this.email = email;
+        this.passwordHash = passwordHash;
+        this.active = active;
+        this.createdAt = createdAt;
+        this.lastLogin = lastLogin;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public void setEmail(String email) {
+        this.email = email;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    public void setPassword(String password) {
+        this.password = password;
+    }
+
+    public String getPasswordHash() {
+        return passwordHash;
+    }
+
+    public void setPasswordHash(String passwordHash) {
+        this.passwordHash = passwordHash;
+    }
+
+    public Boolean getActive() {
+        return active;
+    }
+
+    public void setActive(Boolean active) {
+        this.active = active;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getLastLogin() {
+        return lastLogin;
+    }
+
+    public void setLastLogin(LocalDateTime lastLogin) {
+        this.lastLogin = lastLogin;
+    }
+}
@@ -0,0 +1,50 @@
+package com.smartbudget.users.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * A user as listed by {@code GET /users}: no password hash and no permissions, so a page is a single index-friendly
+ * query without joins.
+ */
+public class UserSummary {
+    private final Long id;
+    private final String username;
+    private final String email;
+    private final boolean active;
+    private final LocalDateTime createdAt;
+    private final LocalDateTime lastLogin;
+
+    public UserSummary(Long id, String username, String email, boolean active, LocalDateTime createdAt,
+                       LocalDateTime lastLogin) {
+        this.id = id;
+        this.username = username;
+        this.email = email;
+        this.active = active;
+        this.createdAt = createdAt;
+        this.lastLogin = lastLogin;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public LocalDateTime getLastLogin() {
+        return lastLogin;
+    }
+}
@@ -1,10 +1,11 @@
 package com.smartbudget.users.model;
 
 import javax.persistence.*;
-import java.util.Set;
 
 @Entity
-@Table(name = "permissions", schema = "users_auth")
+@Table(name = "permissions", schema = "users_auth", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_permissions_permission", columnNames = "permission")
+})
 public class Permission {
 
     @Id
@@ -13,4 +14,20 @@ public class Permission {
     private Long id;
 
     private String permission;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getPermission() {
+        return permission;
+    }
+
+    public void setPermission(String permission) {
+        this.permission = permission;
+    }
 }
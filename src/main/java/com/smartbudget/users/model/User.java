@@ -3,14 +3,25 @@ package com.smartbudget.users.model;
 import javax.persistence.*;
 import java.time.Instant;
 import java.time.LocalDateTime;
+import java.util.HashSet;
 import java.util.Set;
 
 @Entity
-@Table(name = "users", schema = "users_auth")
+@Table(name = "users", schema = "users_auth", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_users_username", columnNames = "username"),
+        @UniqueConstraint(name = "uk_users_email", columnNames = "email")
+}, indexes = {
+        // Keyset pagination of the user listing: each filter column leads, user_id orders within it
+        @Index(name = "idx_users_active_user_id", columnList = "active, user_id"),
+        @Index(name = "idx_users_created_at_user_id", columnList = "created_at, user_id"),
+        @Index(name = "idx_users_last_login_user_id", columnList = "last_login, user_id")
+})
 public class User {
 
+    // Pooled: one sequence call reserves ids for 50 inserts, and unlike IDENTITY it lets Hibernate batch them
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_seq")
+    @SequenceGenerator(name = "users_seq", schema = "users_auth", sequenceName = "users_seq", allocationSize = 50)
     @Column(name = "user_id")
     private Long id;
 
@@ -21,6 +32,12 @@ public class User {
     private LocalDateTime createdAt;
     private LocalDateTime lastLogin;
 
+    @ManyToMany(fetch = FetchType.LAZY)
+    @JoinTable(name = "user_permissions", schema = "users_auth",
+            joinColumns = @JoinColumn(name = "user_id"),
+            inverseJoinColumns = @JoinColumn(name = "permission_id"))
+    private Set<Permission> permissions = new HashSet<>();
+
     public Long getId() {
         return id;
     }
@@ -77,4 +94,12 @@ public class User {
         this.lastLogin = lastLogin;
     }
 
+    public Set<Permission> getPermissions() {
+        return permissions;
+    }
+
+    public void setPermissions(Set<Permission> permissions) {
+        this.permissions = permissions;
+    }
+
 }
@@ -0,0 +1,22 @@
+package com.smartbudget.users.repository;
+
+/**
+ * One row of the user-permission association, as loaded into the permission index.
+ */
+public class PermissionGrant {
+    private final String username;
+    private final Long permissionId;
+
+    public PermissionGrant(String username, Long permissionId) {
+        this.username = username;
+        this.permissionId = permissionId;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public Long getPermissionId() {
+        return permissionId;
+    }
+}
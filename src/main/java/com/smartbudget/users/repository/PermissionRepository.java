@@ -2,7 +2,14 @@ package com.smartbudget.users.repository;
 
 import com.smartbudget.users.model.Permission;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.List;
 
 public interface PermissionRepository extends JpaRepository<Permission, Long> {
     Permission findByPermission(String permission);
-}
\ No newline at end of file
+
+    @Query("select new com.smartbudget.users.repository.PermissionGrant(u.username, p.id) " +
+            "from User u join u.permissions p")
+    List<PermissionGrant> findAllGrants();
+}
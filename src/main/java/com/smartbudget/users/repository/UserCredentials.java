@@ -0,0 +1,40 @@
+package com.smartbudget.users.repository;
+
+/**
+ * Immutable projection of the columns the login path needs, small enough to keep in the user cache.
+ */
+public class UserCredentials {
+    private final Long id;
+    private final String username;
+    private final String email;
+    private final String password;
+    private final boolean active;
+
+    public UserCredentials(Long id, String username, String email, String password, boolean active) {
+        this.id = id;
+        this.username = username;
+        this.email = email;
+        this.password = password;
+        this.active = active;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+}
@@ -0,0 +1,10 @@
+package com.smartbudget.users.repository;
+
+/**
+ * Projection of the unique columns of a user, used to explain a failed registration.
+ */
+public interface UserIdentity {
+    String getUsername();
+
+    String getEmail();
+}
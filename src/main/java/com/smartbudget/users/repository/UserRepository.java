@@ -1,11 +1,53 @@
 package com.smartbudget.users.repository;
 
+import com.smartbudget.users.dto.UserRecord;
 import com.smartbudget.users.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.QueryHint;
+
+import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
-public interface UserRepository extends JpaRepository<User, Long> {
+public interface UserRepository extends JpaRepository<User, Long>, UserRepositoryCustom {
     User findByUsername(String username);
     User findByEmail(String email);
+
+    List<UserIdentity> findByUsernameOrEmail(String username, String email);
+
+    @Query("select new com.smartbudget.users.repository.UserCredentials(u.id, u.username, u.email, u.password, u.active) " +
+            "from User u where u.id = :id")
+    UserCredentials findCredentialsById(@Param("id") Long id);
+
+    @Query("select new com.smartbudget.users.repository.UserCredentials(u.id, u.username, u.email, u.password, u.active) " +
+            "from User u where u.email = :email")
+    UserCredentials findCredentialsByEmail(@Param("email") String email);
+
+    @Query("select new com.smartbudget.users.repository.UserCredentials(u.id, u.username, u.email, u.password, u.active) " +
+            "from User u where u.username = :username")
+    UserCredentials findCredentialsByUsername(@Param("username") String username);
+
+    /**
+     * Forward-only cursor over every user as a detached DTO. Must be consumed and closed inside a transaction; the
+     * fetch size keeps the PostgreSQL driver from buffering the whole result.
+     */
+    @QueryHints({
+            @QueryHint(name = "org.hibernate.fetchSize", value = "1000"),
+            @QueryHint(name = "org.hibernate.readOnly", value = "true")
+    })
+    @Query("select new com.smartbudget.users.dto.UserRecord(u.id, u.username, u.email, u.password, u.active, " +
+            "u.createdAt, u.lastLogin) from User u order by u.id")
+    Stream<UserRecord> streamAllRecords();
+
+    @Modifying
+    @Transactional
+    @Query("update User u set u.password = :password where u.id = :id")
+    int updatePassword(@Param("id") Long id, @Param("password") String password);
 }
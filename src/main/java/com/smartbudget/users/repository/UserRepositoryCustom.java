@@ -0,0 +1,20 @@
+package com.smartbudget.users.repository;
+
+import com.smartbudget.users.dto.UserFilter;
+import com.smartbudget.users.dto.UserSummary;
+
+import java.util.List;
+
+/**
+ * Queries of {@link UserRepository} that are assembled at runtime.
+ */
+public interface UserRepositoryCustom {
+
+    /**
+     * Keyset pagination: at most {@code limit} users with an id greater than {@code afterId}, ordered by id. Unlike
+     * an offset, the cursor lets the database seek straight to the page, so every page costs the same.
+     *
+     * @param afterId id of the last user of the previous page, {@code null} for the first page
+     */
+    List<UserSummary> findSummaries(UserFilter filter, Long afterId, int limit);
+}
@@ -0,0 +1,45 @@
+package com.smartbudget.users.repository;
+
+import com.smartbudget.users.dto.UserFilter;
+import com.smartbudget.users.dto.UserSummary;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class UserRepositoryCustomImpl implements UserRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<UserSummary> findSummaries(UserFilter filter, Long afterId, int limit) {
+        // Only the filters that are set become predicates, so the planner sees a plain range query per combination
+        // instead of "(:p is null or ...)" conditions it cannot use an index for
+        StringBuilder jpql = new StringBuilder("select new com.smartbudget.users.dto.UserSummary(u.id, u.username, "
+                + "u.email, u.active, u.createdAt, u.lastLogin) from User u where 1 = 1");
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        where(jpql, parameters, "u.id >", "afterId", afterId);
+        where(jpql, parameters, "u.active =", "active", filter.getActive());
+        where(jpql, parameters, "u.createdAt >=", "createdFrom", filter.getCreatedFrom());
+        where(jpql, parameters, "u.createdAt <", "createdBefore", filter.getCreatedBefore());
+        where(jpql, parameters, "u.lastLogin >=", "lastLoginFrom", filter.getLastLoginFrom());
+        where(jpql, parameters, "u.lastLogin <", "lastLoginBefore", filter.getLastLoginBefore());
+        jpql.append(" order by u.id");
+
+        TypedQuery<UserSummary> query = entityManager.createQuery(jpql.toString(), UserSummary.class);
+        parameters.forEach(query::setParameter);
+        return query.setMaxResults(limit).getResultList();
+    }
+
+    private static void where(StringBuilder jpql, Map<String, Object> parameters, String condition, String name,
+                              Object value) {
+        if (value != null) {
+            jpql.append(" and ").append(condition).append(" :").append(name);
+            parameters.put(name, value);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.smartbudget.users.security;
+
+import java.time.Instant;
+import java.util.function.Consumer;
+
+/**
+ * Exact record of revoked access-token ids, kept until the tokens would have expired anyway.
+ */
+public interface AccessTokenDenylist {
+
+    void revoke(String tokenId, Instant expiresAt);
+
+    boolean isRevoked(String tokenId);
+
+    /**
+     * Passes the id of every revoked token that has not expired yet.
+     */
+    void forEachRevoked(Consumer<String> action);
+
+    int purgeExpired();
+}
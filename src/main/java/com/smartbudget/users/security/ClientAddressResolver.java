@@ -0,0 +1,137 @@
+package com.smartbudget.users.security;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * The client address of a request, for per-client limits behind the gateway. {@code X-Forwarded-For} is only
+ * believed as far as it was written by trusted proxies ({@code auth.rate-limit.trusted-proxies}, CIDR ranges): it is
+ * read from the right, and the first hop that is not a trusted proxy is the client. Whatever a client put in the
+ * header itself sits left of that hop and is ignored, so it cannot pick its own bucket.
+ * <p>
+ * Only address literals are parsed, never host names, so a forged header cannot trigger DNS lookups.
+ */
+@Component
+public class ClientAddressResolver {
+
+    public static final String FORWARDED_FOR = "X-Forwarded-For";
+
+    private static final Pattern IPV4 = Pattern.compile("\\d{1,3}(\\.\\d{1,3}){3}");
+    private static final Pattern IPV6 = Pattern.compile("[0-9a-fA-F:.]*:[0-9a-fA-F:.]*");
+
+    private final List<Subnet> trustedProxies = new ArrayList<>();
+
+    @Autowired
+    public ClientAddressResolver(@Value("${auth.rate-limit.trusted-proxies:}") String[] trustedProxies) {
+        for (String range : trustedProxies) {
+            if (!range.isBlank()) {
+                this.trustedProxies.add(Subnet.parse(range.trim()));
+            }
+        }
+    }
+
+    /**
+     * @param remoteAddress address of the connection, {@code null} if unknown
+     * @param forwardedFor  values of the {@code X-Forwarded-For} headers in order, {@code null} if there are none
+     */
+    public String resolve(String remoteAddress, List<String> forwardedFor) {
+        if (remoteAddress == null) {
+            return "unknown";
+        }
+        if (forwardedFor == null || forwardedFor.isEmpty() || !isTrusted(parse(remoteAddress))) {
+            return remoteAddress;
+        }
+        String client = remoteAddress;
+        for (int i = forwardedFor.size() - 1; i >= 0; i--) {
+            String[] hops = forwardedFor.get(i).split(",");
+            for (int j = hops.length - 1; j >= 0; j--) {
+                String hop = hops[j].trim();
+                if (hop.isEmpty()) {
+                    continue;
+                }
+                byte[] address = parse(hop);
+                if (address == null) {
+                    // Not an address: the last trusted proxy is as far as we can tell
+                    return client;
+                }
+                client = hop;
+                if (!isTrusted(address)) {
+                    return client;
+                }
+            }
+        }
+        return client;
+    }
+
+    private boolean isTrusted(byte[] address) {
+        if (address == null) {
+            return false;
+        }
+        for (Subnet subnet : trustedProxies) {
+            if (subnet.contains(address)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static byte[] parse(String literal) {
+        if (!IPV4.matcher(literal).matches() && !IPV6.matcher(literal).matches()) {
+            return null;
+        }
+        try {
+            return InetAddress.getByName(literal).getAddress();
+        } catch (UnknownHostException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static final class Subnet {
+
+        private final byte[] network;
+        private final int prefixLength;
+
+        private Subnet(byte[] network, int prefixLength) {
+            this.network = network;
+            this.prefixLength = prefixLength;
+        }
+
+        static Subnet parse(String range) {
+            int slash = range.indexOf('/');
+            byte[] network = ClientAddressResolver.parse(slash < 0 ? range : range.substring(0, slash));
+            if (network == null) {
+                throw new IllegalArgumentException("Not a trusted proxy address range: " + range);
+            }
+            int prefixLength = slash < 0 ? network.length * 8 : Integer.parseInt(range.substring(slash + 1));
+            if (prefixLength < 0 || prefixLength > network.length * 8) {
+                throw new IllegalArgumentException("Not a trusted proxy address range: " + range);
+            }
+            return new Subnet(network, prefixLength);
+        }
+
+        boolean contains(byte[] address) {
+            if (address.length != network.length) {
+                return false;
+            }
+            int fullBytes = prefixLength / 8;
+            for (int i = 0; i < fullBytes; i++) {
+                if (address[i] != network[i]) {
+                    return false;
+                }
+            }
+            int remainingBits = prefixLength % 8;
+            if (remainingBits == 0) {
+                return true;
+            }
+            int mask = 0xff << (8 - remainingBits) & 0xff;
+            return (address[fullBytes] & mask) == (network[fullBytes] & mask);
+        }
+    }
+}
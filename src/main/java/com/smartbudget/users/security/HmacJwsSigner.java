@@ -0,0 +1,86 @@
+package com.smartbudget.users.security;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Base64;
+
+public class HmacJwsSigner implements JwsSigner {
+
+    private static final String ALGORITHM = "HS256";
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+
+    private final String keyId;
+    private final ThreadLocal<Mac> macs;
+
+    /**
+     * @param base64Secret the secret in the same base64 form jjwt accepted, so existing tokens stay valid
+     */
+    public HmacJwsSigner(String base64Secret) {
+        this(null, base64Secret);
+    }
+
+    /**
+     * @param keyId the {@code kid} of a key in a {@link JwtKeyRing}, or {@code null} for tokens without one
+     */
+    public HmacJwsSigner(String keyId, String base64Secret) {
+        this.keyId = keyId;
+        SecretKeySpec key = new SecretKeySpec(Base64.getDecoder().decode(base64Secret), MAC_ALGORITHM);
+        // Fail at startup rather than on the first request
+        newMac(key);
+        this.macs = ThreadLocal.withInitial(() -> newMac(key));
+    }
+
+    @Override
+    public String getAlgorithm() {
+        return ALGORITHM;
+    }
+
+    @Override
+    public String getKeyId() {
+        return keyId;
+    }
+
+    @Override
+    public byte[] sign(byte[] signingInput) {
+        return macs.get().doFinal(signingInput);
+    }
+
+    @Override
+    public byte[] sign(byte[] input, int offset, int length) {
+        Mac mac = macs.get();
+        mac.update(input, offset, length);
+        return mac.doFinal();
+    }
+
+    @Override
+    public boolean verify(byte[] signingInput, byte[] signature) {
+        return MessageDigest.isEqual(sign(signingInput), signature);
+    }
+
+    @Override
+    public boolean verify(byte[] input, int offset, int length,
+                          byte[] signature, int signatureOffset, int signatureLength) {
+        byte[] expected = sign(input, offset, length);
+        if (signatureLength != expected.length) {
+            return false;
+        }
+        // Constant time, like MessageDigest.isEqual, without copying the signature out of the token buffer
+        int difference = 0;
+        for (int i = 0; i < expected.length; i++) {
+            difference |= expected[i] ^ signature[signatureOffset + i];
+        }
+        return difference == 0;
+    }
+
+    private static Mac newMac(SecretKeySpec key) {
+        try {
+            Mac mac = Mac.getInstance(MAC_ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot initialize " + MAC_ALGORITHM, e);
+        }
+    }
+}
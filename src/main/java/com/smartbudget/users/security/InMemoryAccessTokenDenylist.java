@@ -0,0 +1,44 @@
+package com.smartbudget.users.security;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+@Component
+@ConditionalOnProperty(name = "auth.revocation.store", havingValue = "memory")
+public class InMemoryAccessTokenDenylist implements AccessTokenDenylist {
+
+    private final ConcurrentHashMap<String, Long> expiresAtByTokenId = new ConcurrentHashMap<>();
+
+    @Override
+    public void revoke(String tokenId, Instant expiresAt) {
+        expiresAtByTokenId.put(tokenId, expiresAt.toEpochMilli());
+    }
+
+    @Override
+    public boolean isRevoked(String tokenId) {
+        Long expiresAt = expiresAtByTokenId.get(tokenId);
+        return expiresAt != null && expiresAt > System.currentTimeMillis();
+    }
+
+    @Override
+    public void forEachRevoked(Consumer<String> action) {
+        long now = System.currentTimeMillis();
+        expiresAtByTokenId.forEach((tokenId, expiresAt) -> {
+            if (expiresAt > now) {
+                action.accept(tokenId);
+            }
+        });
+    }
+
+    @Override
+    public int purgeExpired() {
+        long now = System.currentTimeMillis();
+        int before = expiresAtByTokenId.size();
+        expiresAtByTokenId.values().removeIf(expiresAt -> expiresAt <= now);
+        return Math.max(before - expiresAtByTokenId.size(), 0);
+    }
+}
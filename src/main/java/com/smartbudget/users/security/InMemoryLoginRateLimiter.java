@@ -0,0 +1,118 @@
+package com.smartbudget.users.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Token buckets in process memory, one per IP and one per email. Each bucket is a single {@link AtomicLong} updated
+ * by compare-and-set (the GCRA form of a token bucket: it stores when the bucket will be full again instead of a
+ * token count and a timestamp), so attempts never lock. The buckets live in bounded Caffeine maps, which are striped
+ * internally; an idle bucket expires once it would be full anyway, so expiry never forgets a debt.
+ * <p>
+ * Limits are per node: behind a load balancer every node allows the configured rate.
+ */
+@Component
+@ConditionalOnProperty(name = "auth.rate-limit.store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryLoginRateLimiter implements LoginRateLimiter {
+
+    private final Ticker ticker;
+    private final Limit byIp;
+    private final Limit byEmail;
+
+    private final LongAdder rejectedByIp = new LongAdder();
+    private final LongAdder rejectedByEmail = new LongAdder();
+
+    @Autowired
+    public InMemoryLoginRateLimiter(@Value("${auth.rate-limit.ip.per-minute:60}") int ipPerMinute,
+                                    @Value("${auth.rate-limit.ip.burst:20}") int ipBurst,
+                                    @Value("${auth.rate-limit.email.per-minute:10}") int emailPerMinute,
+                                    @Value("${auth.rate-limit.email.burst:5}") int emailBurst,
+                                    @Value("${auth.rate-limit.max-keys:100000}") long maxKeys) {
+        this(ipPerMinute, ipBurst, emailPerMinute, emailBurst, maxKeys, Ticker.systemTicker());
+    }
+
+    public InMemoryLoginRateLimiter(int ipPerMinute, int ipBurst, int emailPerMinute, int emailBurst, long maxKeys,
+                                    Ticker ticker) {
+        this.ticker = ticker;
+        this.byIp = new Limit(ipPerMinute, ipBurst, maxKeys, ticker);
+        this.byEmail = new Limit(emailPerMinute, emailBurst, maxKeys, ticker);
+    }
+
+    @Override
+    public long acquire(String clientIp, String email) {
+        long now = ticker.read();
+        long waitNanos = byIp.acquire(clientIp != null ? clientIp : "", now);
+        if (waitNanos > 0) {
+            // The email bucket is left alone, so an attacker's own throttling does not also lock the account
+            rejectedByIp.increment();
+            return toRetryAfterSeconds(waitNanos);
+        }
+        waitNanos = byEmail.acquire(email != null ? email.trim().toLowerCase(Locale.ROOT) : "", now);
+        if (waitNanos > 0) {
+            rejectedByEmail.increment();
+            return toRetryAfterSeconds(waitNanos);
+        }
+        return 0;
+    }
+
+    @Override
+    public long getRejectedByIpCount() {
+        return rejectedByIp.sum();
+    }
+
+    @Override
+    public long getRejectedByEmailCount() {
+        return rejectedByEmail.sum();
+    }
+
+    private static long toRetryAfterSeconds(long waitNanos) {
+        return Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+    }
+
+    private static final class Limit {
+
+        private final long intervalNanos;
+        private final long toleranceNanos;
+        // Per key: the time at which the bucket is full again, "theoretical arrival time" in GCRA terms
+        private final Cache<String, AtomicLong> fullAt;
+
+        Limit(int perMinute, int burst, long maxKeys, Ticker ticker) {
+            this.intervalNanos = TimeUnit.MINUTES.toNanos(1) / Math.max(perMinute, 1);
+            this.toleranceNanos = intervalNanos * Math.max(burst, 1);
+            this.fullAt = Caffeine.newBuilder()
+                    .maximumSize(maxKeys)
+                    .expireAfterAccess(Duration.ofNanos(toleranceNanos))
+                    .ticker(ticker)
+                    .build();
+        }
+
+        /**
+         * @return {@code 0} if a token was taken, otherwise nanoseconds until the next one
+         */
+        long acquire(String key, long now) {
+            AtomicLong bucket = fullAt.get(key, k -> new AtomicLong(now));
+            while (true) {
+                long current = bucket.get();
+                long next = Math.max(current, now) + intervalNanos;
+                long waitNanos = next - now - toleranceNanos;
+                if (waitNanos > 0) {
+                    return waitNanos;
+                }
+                if (bucket.compareAndSet(current, next)) {
+                    return 0;
+                }
+            }
+        }
+    }
+}
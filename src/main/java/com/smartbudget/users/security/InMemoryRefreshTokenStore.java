@@ -0,0 +1,96 @@
+package com.smartbudget.users.security;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Single-node store. Families are keyed by their UUID and every transition is one atomic {@code compute} on that key.
+ */
+@Component
+@ConditionalOnProperty(name = "auth.refresh-tokens.store", havingValue = "memory")
+public class InMemoryRefreshTokenStore implements RefreshTokenStore {
+
+    private final ConcurrentHashMap<UUID, Family> families = new ConcurrentHashMap<>();
+
+    @Override
+    public void create(String familyId, String subject, String tokenId, Instant expiresAt) {
+        families.put(UUID.fromString(familyId),
+                new Family(subject, UUID.fromString(tokenId), expiresAt.toEpochMilli(), false));
+    }
+
+    @Override
+    public Rotation rotate(String familyId, String presentedTokenId, String nextTokenId) {
+        UUID presented = UUID.fromString(presentedTokenId);
+        UUID next = UUID.fromString(nextTokenId);
+        long now = System.currentTimeMillis();
+        Rotation[] result = {Rotation.INVALID};
+        families.computeIfPresent(UUID.fromString(familyId), (id, family) -> {
+            if (family.revoked || family.expiresAtMillis <= now) {
+                return family;
+            }
+            if (!family.currentTokenId.equals(presented)) {
+                result[0] = Rotation.REUSED;
+                return family.revoke();
+            }
+            result[0] = Rotation.ROTATED;
+            return new Family(family.subject, next, family.expiresAtMillis, false);
+        });
+        return result[0];
+    }
+
+    @Override
+    public boolean revoke(String familyId) {
+        boolean[] revoked = {false};
+        families.computeIfPresent(UUID.fromString(familyId), (id, family) -> {
+            revoked[0] = !family.revoked;
+            return family.revoke();
+        });
+        return revoked[0];
+    }
+
+    @Override
+    public int revokeAll(String subject) {
+        int[] revoked = {0};
+        // A scan: this store is for single nodes and tests, and users are deleted or change passwords rarely
+        families.replaceAll((id, family) -> {
+            if (family.revoked || !family.subject.equals(subject)) {
+                return family;
+            }
+            revoked[0]++;
+            return family.revoke();
+        });
+        return revoked[0];
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${auth.refresh-tokens.purge-interval-ms:600000}")
+    public int purgeExpired() {
+        long now = System.currentTimeMillis();
+        int before = families.size();
+        families.values().removeIf(family -> family.expiresAtMillis <= now);
+        return Math.max(before - families.size(), 0);
+    }
+
+    private static final class Family {
+        private final String subject;
+        private final UUID currentTokenId;
+        private final long expiresAtMillis;
+        private final boolean revoked;
+
+        private Family(String subject, UUID currentTokenId, long expiresAtMillis, boolean revoked) {
+            this.subject = subject;
+            this.currentTokenId = currentTokenId;
+            this.expiresAtMillis = expiresAtMillis;
+            this.revoked = revoked;
+        }
+
+        Family revoke() {
+            return new Family(subject, currentTokenId, expiresAtMillis, true);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.smartbudget.users.security;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+@Component
+@ConditionalOnProperty(name = "auth.revocation.store", havingValue = "jdbc", matchIfMissing = true)
+public class JdbcAccessTokenDenylist implements AccessTokenDenylist {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public JdbcAccessTokenDenylist(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void revoke(String tokenId, Instant expiresAt) {
+        // Revoking twice is not an error; one upsert on the primary key, so concurrent revocations cannot collide
+        jdbcTemplate.update("INSERT INTO users_auth.revoked_access_tokens (token_id, expires_at) VALUES (?, ?) " +
+                        "ON CONFLICT (token_id) DO UPDATE SET expires_at = EXCLUDED.expires_at",
+                UUID.fromString(tokenId), Timestamp.from(expiresAt));
+    }
+
+    @Override
+    public boolean isRevoked(String tokenId) {
+        UUID id;
+        try {
+            id = UUID.fromString(tokenId);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        Integer count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users_auth.revoked_access_tokens " +
+                "WHERE token_id = ? AND expires_at > ?", Integer.class, id, Timestamp.from(Instant.now()));
+        return count != null && count > 0;
+    }
+
+    @Override
+    public void forEachRevoked(Consumer<String> action) {
+        jdbcTemplate.query("SELECT token_id FROM users_auth.revoked_access_tokens WHERE expires_at > ?",
+                rs -> {
+                    action.accept(rs.getString(1));
+                }, Timestamp.from(Instant.now()));
+    }
+
+    @Override
+    public int purgeExpired() {
+        return jdbcTemplate.update("DELETE FROM users_auth.revoked_access_tokens WHERE expires_at <= ?",
+                Timestamp.from(Instant.now()));
+    }
+}
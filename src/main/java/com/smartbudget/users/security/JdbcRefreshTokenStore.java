@@ -0,0 +1,69 @@
+package com.smartbudget.users.security;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Store shared by all nodes. Every operation is a single statement on the family primary key, so rotation is
+ * single-use under concurrency and revocation is one indexed update.
+ */
+@Component
+@ConditionalOnProperty(name = "auth.refresh-tokens.store", havingValue = "jdbc", matchIfMissing = true)
+public class JdbcRefreshTokenStore implements RefreshTokenStore {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public JdbcRefreshTokenStore(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void create(String familyId, String subject, String tokenId, Instant expiresAt) {
+        jdbcTemplate.update("INSERT INTO users_auth.refresh_token_families " +
+                        "(family_id, subject, current_token_id, expires_at, revoked) VALUES (?, ?, ?, ?, FALSE)",
+                UUID.fromString(familyId), subject, UUID.fromString(tokenId), Timestamp.from(expiresAt));
+    }
+
+    @Override
+    public Rotation rotate(String familyId, String presentedTokenId, String nextTokenId) {
+        UUID family = UUID.fromString(familyId);
+        Timestamp now = Timestamp.from(Instant.now());
+        int rotated = jdbcTemplate.update("UPDATE users_auth.refresh_token_families SET current_token_id = ? " +
+                        "WHERE family_id = ? AND current_token_id = ? AND revoked = FALSE AND expires_at > ?",
+                UUID.fromString(nextTokenId), family, UUID.fromString(presentedTokenId), now);
+        if (rotated == 1) {
+            return Rotation.ROTATED;
+        }
+        // Either the family is gone/expired/revoked or the presented token was already replaced
+        int revoked = jdbcTemplate.update("UPDATE users_auth.refresh_token_families SET revoked = TRUE " +
+                "WHERE family_id = ? AND revoked = FALSE AND expires_at > ?", family, now);
+        return revoked == 1 ? Rotation.REUSED : Rotation.INVALID;
+    }
+
+    @Override
+    public boolean revoke(String familyId) {
+        return jdbcTemplate.update("UPDATE users_auth.refresh_token_families SET revoked = TRUE " +
+                "WHERE family_id = ? AND revoked = FALSE", UUID.fromString(familyId)) == 1;
+    }
+
+    @Override
+    public int revokeAll(String subject) {
+        return jdbcTemplate.update("UPDATE users_auth.refresh_token_families SET revoked = TRUE " +
+                "WHERE subject = ? AND revoked = FALSE", subject);
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${auth.refresh-tokens.purge-interval-ms:600000}")
+    public int purgeExpired() {
+        return jdbcTemplate.update("DELETE FROM users_auth.refresh_token_families WHERE expires_at <= ?",
+                Timestamp.from(Instant.now()));
+    }
+}
@@ -0,0 +1,53 @@
+package com.smartbudget.users.security;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Signs and verifies the {@code header.payload} part of a compact JWS for one algorithm and key.
+ * Implementations are thread-safe and keep their initialized crypto primitives per thread.
+ */
+public interface JwsSigner {
+
+    String getAlgorithm();
+
+    byte[] sign(byte[] signingInput);
+
+    /**
+     * Whether {@link #sign} works, i.e. the signer holds the private key and does not only verify.
+     */
+    default boolean canSign() {
+        return true;
+    }
+
+    boolean verify(byte[] signingInput, byte[] signature);
+
+    /**
+     * Signs {@code length} bytes of {@code input} starting at {@code offset}, for callers that build the signing input
+     * in a reused buffer.
+     */
+    default byte[] sign(byte[] input, int offset, int length) {
+        return sign(Arrays.copyOfRange(input, offset, offset + length));
+    }
+
+    default boolean verify(byte[] input, int offset, int length,
+                           byte[] signature, int signatureOffset, int signatureLength) {
+        return verify(Arrays.copyOfRange(input, offset, offset + length),
+                Arrays.copyOfRange(signature, signatureOffset, signatureOffset + signatureLength));
+    }
+
+    /**
+     * The {@code kid} header of tokens signed with this key, or {@code null} to leave it out.
+     */
+    default String getKeyId() {
+        Map<String, Object> jwk = getPublicJwk();
+        return jwk != null ? (String) jwk.get("kid") : null;
+    }
+
+    /**
+     * Public part of the key as a JWK, or {@code null} when the key must not be published.
+     */
+    default Map<String, Object> getPublicJwk() {
+        return null;
+    }
+}
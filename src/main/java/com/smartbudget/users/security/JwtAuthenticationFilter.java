@@ -0,0 +1,81 @@
+package com.smartbudget.users.security;
+
+import com.smartbudget.users.service.PermissionIndex;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Authenticates {@code Authorization: Bearer} access tokens. Everything comes from the token: the subject becomes the
+ * principal and the {@code prm} claim the authorities, named through the in-memory {@link PermissionIndex}, so no
+ * user is loaded. A repeated token hits the verification cache of {@link JwtTokenProvider}. Requests without a valid
+ * access token continue unauthenticated and are rejected by the authorization rules, not here.
+ * <p>
+ * Not a bean on purpose: Spring Boot would also register it with the servlet container, outside the security chain.
+ */
+public class JwtAuthenticationFilter extends OncePerRequestFilter {
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private final JwtTokenProvider jwtTokenProvider;
+    private final PermissionIndex permissionIndex;
+
+    public JwtAuthenticationFilter(JwtTokenProvider jwtTokenProvider, PermissionIndex permissionIndex) {
+        this.jwtTokenProvider = jwtTokenProvider;
+        this.permissionIndex = permissionIndex;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String authorization = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (authorization != null && authorization.regionMatches(true, 0, BEARER_PREFIX, 0, BEARER_PREFIX.length())) {
+            TokenVerification verification = jwtTokenProvider.verify(authorization.substring(BEARER_PREFIX.length()));
+            // Refresh tokens are only good for /auth/refresh-token and /auth/logout, never as credentials
+            if (verification.isValid() && !verification.getToken().isRefreshToken()) {
+                authenticate(verification.getToken());
+            }
+        }
+        chain.doFilter(request, response);
+    }
+
+    private void authenticate(VerifiedToken token) {
+        UsernamePasswordAuthenticationToken authentication =
+                new UsernamePasswordAuthenticationToken(token.getSubject(), null, authoritiesOf(token.getPermissions()));
+        authentication.setDetails(token);
+        SecurityContext context = SecurityContextHolder.createEmptyContext();
+        context.setAuthentication(authentication);
+        SecurityContextHolder.setContext(context);
+    }
+
+    private List<GrantedAuthority> authoritiesOf(PermissionSet permissions) {
+        if (permissions.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Map<Long, String> names = permissionIndex.getNames();
+        long[] ids = permissions.toIds();
+        List<GrantedAuthority> authorities = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            // A permission created on another node since the last reload has no name here yet
+            String name = names.get(id);
+            if (name != null) {
+                authorities.add(new SimpleGrantedAuthority(name));
+            }
+        }
+        return authorities;
+    }
+}
@@ -0,0 +1,797 @@
+package com.smartbudget.users.security;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compact JWS codec for the fixed claim set this service issues: {@code sub}, {@code iat}, {@code exp}, {@code jti},
+ * {@code fid} and {@code prm}, in that order. Tokens are written straight into per-thread buffers and signed over a slice of them;
+ * verification decodes and checks the segments in place. The output is byte-for-byte what Jackson, and so jjwt,
+ * writes for the same claims, and any well-formed token with extra claims or header fields is still read.
+ */
+public final class JwtCodec {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final TypeReference<Map<String, Object>> JSON_OBJECT = new TypeReference<Map<String, Object>>() {
+    };
+
+    private static final byte[] BASE64URL = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_"
+            .getBytes(StandardCharsets.US_ASCII);
+    private static final int[] BASE64URL_VALUES = new int[128];
+    private static final byte[] HEX = "0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] SUB = claimName("sub");
+    private static final byte[] IAT = claimName("iat");
+    private static final byte[] EXP = claimName("exp");
+    private static final byte[] JTI = claimName("jti");
+    private static final byte[] FID = claimName("fid");
+    private static final byte[] PRM = claimName("prm");
+    private static final byte[][] CLAIM_NAMES = {SUB, IAT, EXP, JTI, FID, PRM};
+
+    // Deeper nesting in a claim we do not read is treated as malformed rather than recursed into
+    private static final int MAX_DEPTH = 32;
+
+    static {
+        Arrays.fill(BASE64URL_VALUES, -1);
+        for (int i = 0; i < BASE64URL.length; i++) {
+            BASE64URL_VALUES[BASE64URL[i]] = i;
+        }
+    }
+
+    private static final ThreadLocal<Workspace> WORKSPACES = ThreadLocal.withInitial(Workspace::new);
+
+    private final JwsSigner signer;
+    private final byte[] encodedHeader;
+
+    public JwtCodec(JwsSigner signer) {
+        this.signer = signer;
+        this.encodedHeader = encodeHeader(signer);
+    }
+
+    public JwsSigner getSigner() {
+        return signer;
+    }
+
+    /**
+     * The first segment of every token this codec writes.
+     */
+    public String getEncodedHeader() {
+        return new String(encodedHeader, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * @param subject  the {@code sub} claim, omitted when {@code null}
+     * @param tokenId  the {@code jti} claim, omitted when {@code null}
+     * @param familyId the {@code fid} claim, omitted when {@code null}
+     */
+    public String encode(String subject, long issuedAt, long expiresAt, String tokenId, String familyId) {
+        return encode(subject, issuedAt, expiresAt, tokenId, familyId, PermissionSet.EMPTY);
+    }
+
+    /**
+     * @param permissions the {@code prm} claim, omitted when empty
+     */
+    public String encode(String subject, long issuedAt, long expiresAt, String tokenId, String familyId,
+                         PermissionSet permissions) {
+        Workspace workspace = WORKSPACES.get();
+        workspace.position = 0;
+        workspace.writeByte('{');
+        if (subject != null) {
+            workspace.writeName(SUB);
+            workspace.writeString(subject);
+        }
+        workspace.writeName(IAT);
+        workspace.writeLong(issuedAt);
+        workspace.writeName(EXP);
+        workspace.writeLong(expiresAt);
+        if (tokenId != null) {
+            workspace.writeName(JTI);
+            workspace.writeString(tokenId);
+        }
+        if (familyId != null) {
+            workspace.writeName(FID);
+            workspace.writeString(familyId);
+        }
+        if (!permissions.isEmpty()) {
+            workspace.writeName(PRM);
+            workspace.writeString(permissions.encode());
+        }
+        workspace.writeByte('}');
+
+        int payloadLength = workspace.position;
+        byte[] token = workspace.token(encodedHeader.length + 1 + base64Length(payloadLength));
+        System.arraycopy(encodedHeader, 0, token, 0, encodedHeader.length);
+        int position = encodedHeader.length;
+        token[position++] = '.';
+        position = encodeBase64(workspace.json, payloadLength, token, position);
+
+        byte[] signature = signer.sign(token, 0, position);
+        token = workspace.token(position + 1 + base64Length(signature.length));
+        token[position++] = '.';
+        position = encodeBase64(signature, signature.length, token, position);
+        return new String(token, 0, position, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Checks the header and signature of the token and reads its claims. Expiry and revocation are left to the caller.
+     */
+    public TokenVerification decode(String token) {
+        int length = token.length();
+        Workspace workspace = WORKSPACES.get();
+        byte[] bytes = workspace.token(length);
+        int headerEnd = -1;
+        int payloadEnd = -1;
+        for (int i = 0; i < length; i++) {
+            char c = token.charAt(i);
+            if (c >= 0x80) {
+                return TokenVerification.failed(TokenVerification.Failure.MALFORMED);
+            }
+            if (c == '.') {
+                if (headerEnd < 0) {
+                    headerEnd = i;
+                } else if (payloadEnd < 0) {
+                    payloadEnd = i;
+                } else {
+                    return TokenVerification.failed(TokenVerification.Failure.MALFORMED);
+                }
+            }
+            bytes[i] = (byte) c;
+        }
+        if (payloadEnd < 0) {
+            return TokenVerification.failed(TokenVerification.Failure.MALFORMED);
+        }
+
+        if (!regionEquals(bytes, 0, headerEnd, encodedHeader)) {
+            TokenVerification.Failure failure = checkHeader(bytes, headerEnd);
+            if (failure != null) {
+                return TokenVerification.failed(failure);
+            }
+        }
+
+        int signatureLength = workspace.decodeSignature(bytes, payloadEnd + 1, length);
+        if (signatureLength < 0) {
+            return TokenVerification.failed(TokenVerification.Failure.MALFORMED);
+        }
+        if (!signer.verify(bytes, 0, payloadEnd, workspace.signature, 0, signatureLength)) {
+            return TokenVerification.failed(TokenVerification.Failure.BAD_SIGNATURE);
+        }
+
+        if (!workspace.decodePayload(bytes, headerEnd + 1, payloadEnd)) {
+            return TokenVerification.failed(TokenVerification.Failure.MALFORMED);
+        }
+        try {
+            VerifiedToken verified = workspace.readClaims();
+            return verified != null
+                    ? TokenVerification.valid(verified)
+                    : TokenVerification.failed(TokenVerification.Failure.MALFORMED);
+        } catch (MalformedTokenException e) {
+            return TokenVerification.failed(TokenVerification.Failure.MALFORMED);
+        }
+    }
+
+    // Slow path for headers we did not write ourselves, e.g. jjwt tokens with a typ field
+    private TokenVerification.Failure checkHeader(byte[] bytes, int headerEnd) {
+        try {
+            byte[] json = Base64.getUrlDecoder().decode(Arrays.copyOf(bytes, headerEnd));
+            Map<String, Object> header = MAPPER.readValue(json, JSON_OBJECT);
+            if (header == null) {
+                return TokenVerification.Failure.MALFORMED;
+            }
+            return signer.getAlgorithm().equals(header.get("alg")) ? null : TokenVerification.Failure.UNSUPPORTED;
+        } catch (IllegalArgumentException | IOException e) {
+            return TokenVerification.Failure.MALFORMED;
+        }
+    }
+
+    private static byte[] encodeHeader(JwsSigner signer) {
+        Map<String, Object> header = new LinkedHashMap<>();
+        header.put("alg", signer.getAlgorithm());
+        if (signer.getKeyId() != null) {
+            header.put("kid", signer.getKeyId());
+        }
+        try {
+            return Base64.getUrlEncoder().withoutPadding().encode(MAPPER.writeValueAsBytes(header));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize token header", e);
+        }
+    }
+
+    private static byte[] claimName(String name) {
+        return name.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static boolean regionEquals(byte[] bytes, int offset, int length, byte[] expected) {
+        if (length != expected.length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (bytes[offset + i] != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int base64Length(int length) {
+        return (length / 3) * 4 + (length % 3 == 0 ? 0 : length % 3 + 1);
+    }
+
+    private static int encodeBase64(byte[] source, int length, byte[] target, int position) {
+        int i = 0;
+        for (; i + 3 <= length; i += 3) {
+            int bits = (source[i] & 0xff) << 16 | (source[i + 1] & 0xff) << 8 | (source[i + 2] & 0xff);
+            target[position++] = BASE64URL[bits >>> 18];
+            target[position++] = BASE64URL[(bits >>> 12) & 0x3f];
+            target[position++] = BASE64URL[(bits >>> 6) & 0x3f];
+            target[position++] = BASE64URL[bits & 0x3f];
+        }
+        int remaining = length - i;
+        if (remaining == 1) {
+            int bits = (source[i] & 0xff) << 16;
+            target[position++] = BASE64URL[bits >>> 18];
+            target[position++] = BASE64URL[(bits >>> 12) & 0x3f];
+        } else if (remaining == 2) {
+            int bits = (source[i] & 0xff) << 16 | (source[i + 1] & 0xff) << 8;
+            target[position++] = BASE64URL[bits >>> 18];
+            target[position++] = BASE64URL[(bits >>> 12) & 0x3f];
+            target[position++] = BASE64URL[(bits >>> 6) & 0x3f];
+        }
+        return position;
+    }
+
+    /**
+     * Decodes unpadded (or padded) base64url from {@code source[from, to)} into {@code target}.
+     *
+     * @return the number of bytes written, or -1 if the segment is not base64url
+     */
+    private static int decodeBase64(byte[] source, int from, int to, byte[] target) {
+        for (int i = 0; i < 2 && to > from && source[to - 1] == '='; i++) {
+            to--;
+        }
+        int length = to - from;
+        if (length % 4 == 1) {
+            return -1;
+        }
+        int position = 0;
+        int bits = 0;
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            int value = BASE64URL_VALUES[source[i]];
+            if (value < 0) {
+                return -1;
+            }
+            bits = bits << 6 | value;
+            if (++count == 4) {
+                target[position++] = (byte) (bits >>> 16);
+                target[position++] = (byte) (bits >>> 8);
+                target[position++] = (byte) bits;
+                bits = 0;
+                count = 0;
+            }
+        }
+        if (count == 2) {
+            target[position++] = (byte) (bits >>> 4);
+        } else if (count == 3) {
+            target[position++] = (byte) (bits >>> 10);
+            target[position++] = (byte) (bits >>> 2);
+        }
+        return position;
+    }
+
+    private static final class MalformedTokenException extends Exception {
+
+        private static final MalformedTokenException INSTANCE = new MalformedTokenException();
+
+        private MalformedTokenException() {
+            super(null, null, false, false);
+        }
+    }
+
+    /**
+     * Buffers and parser state of one thread. The JSON buffer holds the payload being written or read, the token
+     * buffer the compact token, the signature buffer the decoded signature.
+     */
+    private static final class Workspace {
+
+        byte[] json = new byte[256];
+        byte[] token = new byte[512];
+        byte[] signature = new byte[512];
+        int position;
+        int limit;
+
+        byte[] token(int capacity) {
+            if (token.length < capacity) {
+                token = Arrays.copyOf(token, Math.max(capacity, token.length * 2));
+            }
+            return token;
+        }
+
+        private void ensureJson(int additional) {
+            if (json.length < position + additional) {
+                json = Arrays.copyOf(json, Math.max(position + additional, json.length * 2));
+            }
+        }
+
+        int decodeSignature(byte[] source, int from, int to) {
+            int capacity = (to - from) * 3 / 4 + 3;
+            if (signature.length < capacity) {
+                signature = new byte[capacity];
+            }
+            return decodeBase64(source, from, to, signature);
+        }
+
+        boolean decodePayload(byte[] source, int from, int to) {
+            int capacity = (to - from) * 3 / 4 + 3;
+            if (json.length < capacity) {
+                json = new byte[capacity];
+            }
+            limit = decodeBase64(source, from, to, json);
+            position = 0;
+            return limit >= 0;
+        }
+
+        // Writing
+
+        void writeByte(char c) {
+            ensureJson(1);
+            json[position++] = (byte) c;
+        }
+
+        void writeName(byte[] name) {
+            ensureJson(name.length + 4);
+            if (json[position - 1] != '{') {
+                json[position++] = ',';
+            }
+            json[position++] = '"';
+            System.arraycopy(name, 0, json, position, name.length);
+            position += name.length;
+            json[position++] = '"';
+            json[position++] = ':';
+        }
+
+        void writeLong(long value) {
+            if (value == Long.MIN_VALUE) {
+                byte[] digits = Long.toString(value).getBytes(StandardCharsets.US_ASCII);
+                ensureJson(digits.length);
+                System.arraycopy(digits, 0, json, position, digits.length);
+                position += digits.length;
+                return;
+            }
+            ensureJson(20);
+            if (value < 0) {
+                json[position++] = '-';
+                value = -value;
+            }
+            int start = position;
+            do {
+                json[position++] = (byte) ('0' + value % 10);
+                value /= 10;
+            } while (value != 0);
+            for (int i = start, j = position - 1; i < j; i++, j--) {
+                byte digit = json[i];
+                json[i] = json[j];
+                json[j] = digit;
+            }
+        }
+
+        /**
+         * Writes a JSON string the way Jackson does: UTF-8, short escapes for the usual control characters,
+         * uppercase hex escapes for the other control characters and for surrogates, and nothing else escaped.
+         */
+        void writeString(String value) {
+            int length = value.length();
+            ensureJson(length * 6 + 2);
+            json[position++] = '"';
+            for (int i = 0; i < length; i++) {
+                char c = value.charAt(i);
+                if (c < 0x80) {
+                    if (c >= 0x20 && c != '"' && c != '\\') {
+                        json[position++] = (byte) c;
+                    } else {
+                        writeEscaped(c);
+                    }
+                } else if (c < 0x800) {
+                    json[position++] = (byte) (0xc0 | c >> 6);
+                    json[position++] = (byte) (0x80 | c & 0x3f);
+                } else if (Character.isSurrogate(c)) {
+                    // Jackson escapes each half of a pair, and unpaired ones, instead of writing 4-byte UTF-8
+                    writeUnicodeEscape(c);
+                } else {
+                    json[position++] = (byte) (0xe0 | c >> 12);
+                    json[position++] = (byte) (0x80 | c >> 6 & 0x3f);
+                    json[position++] = (byte) (0x80 | c & 0x3f);
+                }
+            }
+            json[position++] = '"';
+        }
+
+        private void writeEscaped(char c) {
+            byte escape;
+            switch (c) {
+                case '"':
+                case '\\':
+                    escape = (byte) c;
+                    break;
+                case '\b':
+                    escape = 'b';
+                    break;
+                case '\t':
+                    escape = 't';
+                    break;
+                case '\n':
+                    escape = 'n';
+                    break;
+                case '\f':
+                    escape = 'f';
+                    break;
+                case '\r':
+                    escape = 'r';
+                    break;
+                default:
+                    writeUnicodeEscape(c);
+                    return;
+            }
+            json[position++] = '\\';
+            json[position++] = escape;
+        }
+
+        private void writeUnicodeEscape(char c) {
+            json[position++] = '\\';
+            json[position++] = 'u';
+            json[position++] = HEX[c >> 12];
+            json[position++] = HEX[c >> 8 & 0xf];
+            json[position++] = HEX[c >> 4 & 0xf];
+            json[position++] = HEX[c & 0xf];
+        }
+
+        // Reading
+
+        /**
+         * @return the claims, or {@code null} when a claim we read has the wrong type
+         */
+        VerifiedToken readClaims() throws MalformedTokenException {
+            String subject = null;
+            String tokenId = null;
+            String familyId = null;
+            String permissions = null;
+            long issuedAt = 0;
+            long expiration = 0;
+            boolean hasIssuedAt = false;
+            boolean hasExpiration = false;
+            boolean typesValid = true;
+
+            skipWhitespace();
+            expect('{');
+            skipWhitespace();
+            if (peek() == '}') {
+                position++;
+            } else {
+                while (true) {
+                    skipWhitespace();
+                    byte[] name = readName();
+                    skipWhitespace();
+                    expect(':');
+                    skipWhitespace();
+                    if (name == SUB || name == JTI || name == FID || name == PRM) {
+                        String value = null;
+                        if (peek() == '"') {
+                            value = readString();
+                        } else if (!readNull()) {
+                            typesValid = false;
+                            skipValue(0);
+                        }
+                        if (name == SUB) {
+                            subject = value;
+                        } else if (name == JTI) {
+                            tokenId = value;
+                        } else if (name == FID) {
+                            familyId = value;
+                        } else {
+                            permissions = value;
+                        }
+                    } else if (name == IAT || name == EXP) {
+                        long value = 0;
+                        boolean present = false;
+                        byte next = peek();
+                        if (next == '-' || (next >= '0' && next <= '9')) {
+                            value = readNumber();
+                            present = true;
+                        } else if (!readNull()) {
+                            typesValid = false;
+                            skipValue(0);
+                        }
+                        if (name == IAT) {
+                            issuedAt = value;
+                            hasIssuedAt = present;
+                        } else {
+                            expiration = value;
+                            hasExpiration = present;
+                        }
+                    } else {
+                        skipValue(0);
+                    }
+                    skipWhitespace();
+                    byte next = next();
+                    if (next == '}') {
+                        break;
+                    }
+                    if (next != ',') {
+                        throw MalformedTokenException.INSTANCE;
+                    }
+                }
+            }
+            skipWhitespace();
+            if (position != limit) {
+                throw MalformedTokenException.INSTANCE;
+            }
+            if (!typesValid || !hasExpiration) {
+                return null;
+            }
+            PermissionSet permissionSet;
+            try {
+                permissionSet = permissions != null ? PermissionSet.decode(permissions) : PermissionSet.EMPTY;
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+            return new VerifiedToken(subject,
+                    hasIssuedAt ? Instant.ofEpochSecond(issuedAt) : null,
+                    Instant.ofEpochSecond(expiration),
+                    tokenId, familyId, permissionSet);
+        }
+
+        /**
+         * Reads an object key and returns the matching claim name constant, or {@code null} for claims we skip.
+         */
+        private byte[] readName() throws MalformedTokenException {
+            if (peek() != '"') {
+                throw MalformedTokenException.INSTANCE;
+            }
+            int start = position + 1;
+            int end = start;
+            while (end < limit && json[end] != '"' && json[end] != '\\') {
+                end++;
+            }
+            if (end < limit && json[end] == '"') {
+                position = end + 1;
+                int length = end - start;
+                if (length != 3) {
+                    return null;
+                }
+                for (byte[] name : CLAIM_NAMES) {
+                    if (regionEquals(json, start, 3, name)) {
+                        return name;
+                    }
+                }
+                return null;
+            }
+            // Escaped key, e.g. "sub": decode it and compare
+            byte[] decoded = readString().getBytes(StandardCharsets.UTF_8);
+            for (byte[] name : CLAIM_NAMES) {
+                if (Arrays.equals(decoded, name)) {
+                    return name;
+                }
+            }
+            return null;
+        }
+
+        private String readString() throws MalformedTokenException {
+            expect('"');
+            int start = position;
+            boolean ascii = true;
+            while (true) {
+                byte b = next();
+                if (b == '"') {
+                    return new String(json, start, position - 1 - start,
+                            ascii ? StandardCharsets.ISO_8859_1 : StandardCharsets.UTF_8);
+                }
+                if (b == '\\') {
+                    position--;
+                    return readEscapedString(start);
+                }
+                if (b >= 0 && b < 0x20) {
+                    throw MalformedTokenException.INSTANCE;
+                }
+                ascii &= b >= 0;
+            }
+        }
+
+        private String readEscapedString(int start) throws MalformedTokenException {
+            StringBuilder value = new StringBuilder(position - start + 16);
+            int runStart = start;
+            while (true) {
+                byte b = next();
+                if (b == '"') {
+                    value.append(new String(json, runStart, position - 1 - runStart, StandardCharsets.UTF_8));
+                    return value.toString();
+                }
+                if (b >= 0 && b < 0x20) {
+                    throw MalformedTokenException.INSTANCE;
+                }
+                if (b != '\\') {
+                    continue;
+                }
+                value.append(new String(json, runStart, position - 1 - runStart, StandardCharsets.UTF_8));
+                byte escape = next();
+                switch (escape) {
+                    case '"':
+                    case '\\':
+                    case '/':
+                        value.append((char) escape);
+                        break;
+                    case 'b':
+                        value.append('\b');
+                        break;
+                    case 't':
+                        value.append('\t');
+                        break;
+                    case 'n':
+                        value.append('\n');
+                        break;
+                    case 'f':
+                        value.append('\f');
+                        break;
+                    case 'r':
+                        value.append('\r');
+                        break;
+                    case 'u':
+                        value.append(readHexChar());
+                        break;
+                    default:
+                        throw MalformedTokenException.INSTANCE;
+                }
+                runStart = position;
+            }
+        }
+
+        private char readHexChar() throws MalformedTokenException {
+            int c = 0;
+            for (int i = 0; i < 4; i++) {
+                int digit = Character.digit(next(), 16);
+                if (digit < 0) {
+                    throw MalformedTokenException.INSTANCE;
+                }
+                c = c << 4 | digit;
+            }
+            return (char) c;
+        }
+
+        /**
+         * Reads a JSON number as whole seconds, truncating fractions the way {@code Number.longValue()} did.
+         */
+        private long readNumber() throws MalformedTokenException {
+            int start = position;
+            boolean negative = peek() == '-';
+            if (negative) {
+                position++;
+            }
+            long value = 0;
+            int digits = 0;
+            while (position < limit && json[position] >= '0' && json[position] <= '9') {
+                value = value * 10 + (json[position++] - '0');
+                digits++;
+            }
+            if (digits == 0) {
+                throw MalformedTokenException.INSTANCE;
+            }
+            boolean integral = true;
+            while (position < limit && isNumberPart(json[position])) {
+                integral = false;
+                position++;
+            }
+            if (integral && digits <= 18) {
+                return negative ? -value : value;
+            }
+            try {
+                return (long) Double.parseDouble(new String(json, start, position - start, StandardCharsets.US_ASCII));
+            } catch (NumberFormatException e) {
+                throw MalformedTokenException.INSTANCE;
+            }
+        }
+
+        private boolean readNull() throws MalformedTokenException {
+            if (peek() != 'n') {
+                return false;
+            }
+            expectLiteral("null");
+            return true;
+        }
+
+        private void skipValue(int depth) throws MalformedTokenException {
+            if (depth > MAX_DEPTH) {
+                throw MalformedTokenException.INSTANCE;
+            }
+            byte b = peek();
+            switch (b) {
+                case '"':
+                    readString();
+                    return;
+                case '{':
+                case '[':
+                    byte close = b == '{' ? (byte) '}' : (byte) ']';
+                    position++;
+                    skipWhitespace();
+                    if (peek() == close) {
+                        position++;
+                        return;
+                    }
+                    while (true) {
+                        skipWhitespace();
+                        if (b == '{') {
+                            readString();
+                            skipWhitespace();
+                            expect(':');
+                            skipWhitespace();
+                        }
+                        skipValue(depth + 1);
+                        skipWhitespace();
+                        byte next = next();
+                        if (next == close) {
+                            return;
+                        }
+                        if (next != ',') {
+                            throw MalformedTokenException.INSTANCE;
+                        }
+                    }
+                case 't':
+                    expectLiteral("true");
+                    return;
+                case 'f':
+                    expectLiteral("false");
+                    return;
+                case 'n':
+                    expectLiteral("null");
+                    return;
+                default:
+                    readNumber();
+            }
+        }
+
+        private static boolean isNumberPart(byte b) {
+            return (b >= '0' && b <= '9') || b == '.' || b == 'e' || b == 'E' || b == '+' || b == '-';
+        }
+
+        private void expectLiteral(String literal) throws MalformedTokenException {
+            for (int i = 0; i < literal.length(); i++) {
+                expect(literal.charAt(i));
+            }
+        }
+
+        private void expect(char c) throws MalformedTokenException {
+            if (next() != c) {
+                throw MalformedTokenException.INSTANCE;
+            }
+        }
+
+        private byte peek() throws MalformedTokenException {
+            if (position >= limit) {
+                throw MalformedTokenException.INSTANCE;
+            }
+            return json[position];
+        }
+
+        private byte next() throws MalformedTokenException {
+            byte b = peek();
+            position++;
+            return b;
+        }
+
+        private void skipWhitespace() {
+            while (position < limit) {
+                byte b = json[position];
+                if (b != ' ' && b != '\t' && b != '\n' && b != '\r') {
+                    return;
+                }
+                position++;
+            }
+        }
+    }
+}
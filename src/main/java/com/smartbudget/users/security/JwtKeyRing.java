@@ -0,0 +1,376 @@
+package com.smartbudget.users.security;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Signing and verification keys of {@link JwtTokenProvider}, each with an activation time. The key activated most
+ * recently signs new tokens; a key that has not activated yet already verifies, and is already published, so that
+ * nodes and clients with slightly different clocks or cached JWKS accept its tokens. A replaced key keeps verifying
+ * for {@code overlap} after its successor activated, so outstanding tokens expire normally instead of all at once.
+ * <p>
+ * Keys come from one JSON file ({@code {"keys": [...]}}) or a directory with one JSON file per key, reloaded without a
+ * restart when the files change:
+ * <pre>
+ * {"kid": "2026-10", "alg": "HS256", "secret": "base64", "activatesAt": "2026-10-01T00:00:00Z"}
+ * {"kid": "2026-11", "alg": "RS256", "privateKey": "2026-11.pem", "publicKey": "2026-11.pub.pem"}
+ * </pre>
+ * Paths are relative to the JSON file. A key without {@code kid} verifies the tokens issued before key ids were
+ * introduced. Deleting a key file withdraws the key at the next reload, without overlap.
+ * <p>
+ * The read path is one volatile read of an immutable snapshot and a hash lookup by header or {@code kid}; the
+ * snapshot is replaced, never changed, when a key activates or expires or the files change.
+ */
+public class JwtKeyRing {
+
+    private static final Logger log = LoggerFactory.getLogger(JwtKeyRing.class);
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final TypeReference<Map<String, Object>> JSON_OBJECT = new TypeReference<Map<String, Object>>() {
+    };
+
+    private final Path location;
+    private final long overlapMillis;
+    private final Clock clock;
+    private final AtomicReference<KeySet> keys = new AtomicReference<>();
+    private final List<Runnable> reloadListeners = new CopyOnWriteArrayList<>();
+    private volatile String fingerprint;
+
+    private JwtKeyRing(Path location, long overlapMillis, Clock clock) {
+        this.location = location;
+        this.overlapMillis = overlapMillis;
+        this.clock = clock;
+    }
+
+    /**
+     * A ring of one key that never changes, for the single {@code jwt.secret} or RSA key pair.
+     */
+    public static JwtKeyRing of(JwsSigner signer) {
+        JwtKeyRing ring = new JwtKeyRing(null, 0, Clock.systemUTC());
+        ring.keys.set(KeySet.build(Collections.singletonList(new Key(new JwtCodec(signer), 0)), 0, 0));
+        return ring;
+    }
+
+    public static JwtKeyRing load(Path location, long overlapSeconds) {
+        return load(location, overlapSeconds, Clock.systemUTC());
+    }
+
+    /**
+     * Loads the keys from a JSON file or a directory of them.
+     *
+     * @throws IllegalStateException if the keys cannot be read or no key can sign yet
+     */
+    public static JwtKeyRing load(Path location, long overlapSeconds, Clock clock) {
+        JwtKeyRing ring = new JwtKeyRing(location, TimeUnit.SECONDS.toMillis(overlapSeconds), clock);
+        try {
+            ring.fingerprint = fingerprint(location);
+            ring.apply(readKeys(location));
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot read signing keys from " + location, e);
+        }
+        return ring;
+    }
+
+    /**
+     * Codec of the key that signs new tokens.
+     */
+    public JwtCodec signingCodec() {
+        return current().signing;
+    }
+
+    public String getSigningKeyId() {
+        return current().signing.getSigner().getKeyId();
+    }
+
+    /**
+     * Verifies the token with the key named by its {@code kid}, see {@link JwtCodec#decode}.
+     */
+    public TokenVerification decode(String token) {
+        KeySet keySet = current();
+        if (keySet.single != null) {
+            return keySet.single.decode(token);
+        }
+        int headerEnd = token.indexOf('.');
+        if (headerEnd < 0) {
+            return TokenVerification.failed(TokenVerification.Failure.MALFORMED);
+        }
+        String header = token.substring(0, headerEnd);
+        JwtCodec codec = keySet.byHeader.get(header);
+        if (codec == null) {
+            // A header we did not write ourselves; the codec checks the rest of it
+            Map<String, Object> fields;
+            try {
+                fields = MAPPER.readValue(Base64.getUrlDecoder().decode(header), JSON_OBJECT);
+            } catch (IllegalArgumentException | IOException e) {
+                return TokenVerification.failed(TokenVerification.Failure.MALFORMED);
+            }
+            if (fields == null) {
+                return TokenVerification.failed(TokenVerification.Failure.MALFORMED);
+            }
+            Object kid = fields.get("kid");
+            codec = kid == null ? keySet.withoutKid : kid instanceof String ? keySet.byKid.get(kid) : null;
+            if (codec == null) {
+                // Unknown, expired or withdrawn key
+                return TokenVerification.failed(TokenVerification.Failure.BAD_SIGNATURE);
+            }
+        }
+        return codec.decode(token);
+    }
+
+    /**
+     * Public JWKs of every key that currently verifies.
+     */
+    public List<Map<String, Object>> getPublicJwks() {
+        return current().publicJwks;
+    }
+
+    /**
+     * Runs after reloaded keys replaced the previous ones, e.g. to drop results verified with a withdrawn key.
+     */
+    public void onReload(Runnable listener) {
+        reloadListeners.add(listener);
+    }
+
+    /**
+     * Reloads the keys if the files changed. A deleted key is withdrawn at once, unless no remaining key is active
+     * yet: keys that cannot be loaded, or that would leave nothing to sign with, are logged and the current ones stay
+     * in use.
+     */
+    @Scheduled(fixedDelayString = "${jwt.keys.reload-interval-ms:30000}")
+    public void reload() {
+        if (location == null) {
+            return;
+        }
+        try {
+            String current = fingerprint(location);
+            if (current.equals(fingerprint)) {
+                return;
+            }
+            // Recorded before parsing, so broken files are reported once and not on every poll
+            fingerprint = current;
+            apply(readKeys(location));
+            reloadListeners.forEach(Runnable::run);
+        } catch (IOException | RuntimeException e) {
+            log.error("Cannot reload signing keys from {}, keeping the current ones", location, e);
+        }
+    }
+
+    private void apply(List<Key> definitions) {
+        KeySet keySet = KeySet.build(definitions, clock.millis(), overlapMillis);
+        keys.set(keySet);
+        log.info("Loaded {} signing keys from {}, signing with {}", definitions.size(), location,
+                keySet.signing.getSigner().getKeyId());
+    }
+
+    private KeySet current() {
+        KeySet keySet = keys.get();
+        long now = clock.millis();
+        if (now < keySet.nextTransition) {
+            return keySet;
+        }
+        // A key activated or ran out of overlap; a concurrent reload or transition may already have replaced the set
+        KeySet next = KeySet.build(keySet.keys, now, overlapMillis);
+        if (keys.compareAndSet(keySet, next) && next.signing != keySet.signing) {
+            log.info("Signing key rotated to {}", next.signing.getSigner().getKeyId());
+        }
+        return next;
+    }
+
+    private static List<Key> readKeys(Path location) throws IOException {
+        List<Key> keys = new ArrayList<>();
+        if (Files.isDirectory(location)) {
+            for (Path file : listFiles(location)) {
+                if (file.getFileName().toString().endsWith(".json")) {
+                    keys.add(readKey(MAPPER.readTree(file.toFile()), location));
+                }
+            }
+        } else {
+            Path directory = location.toAbsolutePath().getParent();
+            for (JsonNode node : MAPPER.readTree(location.toFile()).path("keys")) {
+                keys.add(readKey(node, directory));
+            }
+        }
+        if (keys.isEmpty()) {
+            throw new IllegalStateException("No signing keys in " + location);
+        }
+        Set<String> keyIds = new HashSet<>();
+        for (Key key : keys) {
+            // null stands for the one key allowed without kid
+            String kid = key.codec.getSigner().getKeyId();
+            if (!keyIds.add(kid)) {
+                throw new IllegalStateException("Duplicate kid " + kid + " in " + location);
+            }
+        }
+        return keys;
+    }
+
+    private static Key readKey(JsonNode node, Path directory) {
+        String kid = text(node, "kid");
+        String algorithm = node.path("alg").asText("HS256");
+        String activatesAt = text(node, "activatesAt");
+        JwsSigner signer;
+        switch (algorithm) {
+            case "HS256":
+                signer = new HmacJwsSigner(kid, required(node, "secret", kid));
+                break;
+            case "RS256":
+                String privateKey = text(node, "privateKey");
+                String publicKey = required(node, "publicKey", kid);
+                signer = new RsaJwsSigner(kid,
+                        privateKey != null ? PemKeys.readRsaPrivateKey(resource(directory, privateKey)) : null,
+                        PemKeys.readRsaPublicKey(resource(directory, publicKey)));
+                break;
+            default:
+                throw new IllegalStateException("Unsupported alg " + algorithm + " of key " + kid);
+        }
+        // Without activatesAt a key is active from the start
+        return new Key(new JwtCodec(signer), activatesAt != null ? Instant.parse(activatesAt).toEpochMilli() : 0);
+    }
+
+    private static FileSystemResource resource(Path directory, String path) {
+        return new FileSystemResource(directory.resolve(path));
+    }
+
+    private static String text(JsonNode node, String field) {
+        return node.hasNonNull(field) ? node.get(field).asText() : null;
+    }
+
+    private static String required(JsonNode node, String field, String kid) {
+        String value = text(node, field);
+        if (value == null) {
+            throw new IllegalStateException("Key " + kid + " has no " + field);
+        }
+        return value;
+    }
+
+    // Names, sizes and modification times; cheap enough to poll
+    private static String fingerprint(Path location) throws IOException {
+        List<Path> files = Files.isDirectory(location) ? listFiles(location) : Collections.singletonList(location);
+        StringBuilder fingerprint = new StringBuilder();
+        for (Path file : files) {
+            fingerprint.append(file.getFileName()).append(':').append(Files.size(file)).append(':')
+                    .append(Files.getLastModifiedTime(file).toMillis()).append(';');
+        }
+        return fingerprint.toString();
+    }
+
+    private static List<Path> listFiles(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+        }
+    }
+
+    private static final class Key {
+
+        final JwtCodec codec;
+        final long activatesAt;
+
+        Key(JwtCodec codec, long activatesAt) {
+            this.codec = codec;
+            this.activatesAt = activatesAt;
+        }
+    }
+
+    /**
+     * The keys as of one point in time; valid until {@code nextTransition}.
+     */
+    private static final class KeySet {
+
+        final List<Key> keys;
+        final JwtCodec signing;
+        // The only verification key, which then also takes tokens without or with another kid, as before key ids
+        final JwtCodec single;
+        final Map<String, JwtCodec> byHeader;
+        final Map<String, JwtCodec> byKid;
+        final JwtCodec withoutKid;
+        final List<Map<String, Object>> publicJwks;
+        final long nextTransition;
+
+        private KeySet(List<Key> keys, JwtCodec signing, JwtCodec single, Map<String, JwtCodec> byHeader,
+                       Map<String, JwtCodec> byKid, JwtCodec withoutKid, List<Map<String, Object>> publicJwks,
+                       long nextTransition) {
+            this.keys = keys;
+            this.signing = signing;
+            this.single = single;
+            this.byHeader = byHeader;
+            this.byKid = byKid;
+            this.withoutKid = withoutKid;
+            this.publicJwks = publicJwks;
+            this.nextTransition = nextTransition;
+        }
+
+        static KeySet build(List<Key> definitions, long now, long overlapMillis) {
+            List<Key> keys = new ArrayList<>(definitions);
+            keys.sort(Comparator.comparingLong(key -> key.activatesAt));
+            int active = -1;
+            for (int i = 0; i < keys.size() && keys.get(i).activatesAt <= now; i++) {
+                active = i;
+            }
+            if (active < 0) {
+                throw new IllegalStateException("No signing key is active yet, the first one activates at "
+                        + Instant.ofEpochMilli(keys.get(0).activatesAt));
+            }
+
+            Map<String, JwtCodec> byHeader = new HashMap<>();
+            Map<String, JwtCodec> byKid = new HashMap<>();
+            JwtCodec withoutKid = null;
+            List<Map<String, Object>> publicJwks = new ArrayList<>();
+            long nextTransition = Long.MAX_VALUE;
+            for (int i = 0; i < keys.size(); i++) {
+                Key key = keys.get(i);
+                JwsSigner signer = key.codec.getSigner();
+                if (i < active) {
+                    long expiresAt = keys.get(i + 1).activatesAt + overlapMillis;
+                    if (expiresAt <= now) {
+                        continue;
+                    }
+                    nextTransition = Math.min(nextTransition, expiresAt);
+                } else {
+                    if (!signer.canSign()) {
+                        throw new IllegalStateException("Key " + signer.getKeyId() + " signs but has no private key");
+                    }
+                    if (i > active) {
+                        nextTransition = Math.min(nextTransition, key.activatesAt);
+                    }
+                }
+                byHeader.put(key.codec.getEncodedHeader(), key.codec);
+                if (signer.getKeyId() != null) {
+                    byKid.put(signer.getKeyId(), key.codec);
+                } else {
+                    withoutKid = key.codec;
+                }
+                if (signer.getPublicJwk() != null) {
+                    publicJwks.add(signer.getPublicJwk());
+                }
+            }
+            JwtCodec signing = keys.get(active).codec;
+            return new KeySet(keys, signing, byHeader.size() == 1 ? signing : null, byHeader, byKid, withoutKid,
+                    Collections.unmodifiableList(publicJwks), nextTransition);
+        }
+    }
+}
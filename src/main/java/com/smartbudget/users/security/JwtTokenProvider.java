@@ -1,42 +1,177 @@
 package com.smartbudget.users.security;
 
-import io.jsonwebtoken.Claims;
-import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.SignatureAlgorithm;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 @Component
-public class JwtTokenProvider {
+public class JwtTokenProvider implements MeterBinder {
 
-    @Value("${jwt.secret}")
-    private String secretKey;
+    private final JwtKeyRing keyRing;
+    private final TokenRevocationFilter revocationFilter;
+
+    // Keyed by the token itself, so a repeated token skips the signature check and the JSON parse
+    private final Cache<String, VerifiedToken> verifiedTokens;
+
+    // Null until bound to a registry
+    private volatile Timer signTimer;
+    private volatile Timer verifyTimer;
+
+    public JwtTokenProvider(JwsSigner signer, TokenRevocationFilter revocationFilter, long cacheMaxSize) {
+        this(JwtKeyRing.of(signer), revocationFilter, cacheMaxSize);
+    }
+
+    @Autowired
+    public JwtTokenProvider(JwtKeyRing keyRing, TokenRevocationFilter revocationFilter,
+                            @Value("${jwt.verification-cache.max-size:10000}") long cacheMaxSize) {
+        this.keyRing = keyRing;
+        this.revocationFilter = revocationFilter;
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfter(new UntilTokenExpiry())
+                .recordStats()
+                .build();
+        // A reload may withdraw a key; tokens it verified must be checked again
+        keyRing.onReload(verifiedTokens::invalidateAll);
+    }
 
     public String generateToken(String username, long validityInSeconds) {
-        Claims claims = Jwts.claims().setSubject(username);
-        Date now = new Date();
-        Date validity = new Date(now.getTime() + validityInSeconds * 1000);
+        return generateToken(username, PermissionSet.EMPTY, validityInSeconds);
+    }
 
-        return Jwts.builder()
-                .setClaims(claims)
-                .setIssuedAt(now)
-                .setExpiration(validity)
-                .signWith(SignatureAlgorithm.HS256, secretKey)
-                .compact();
+    /**
+     * Issues an access token carrying the user's permissions, so that authorization downstream needs no lookup.
+     */
+    public String generateToken(String username, PermissionSet permissions, long validityInSeconds) {
+        return generate(username, validityInSeconds, newTokenId(), null, permissions);
     }
 
-    public boolean validateToken(String token) {
-        try {
-            Jwts.parser().setSigningKey(secretKey).parseClaimsJws(token);
-            return true;
-        } catch (Exception e) {
-            return false;
+    /**
+     * Issues a refresh token belonging to the given rotation family; see {@code RefreshTokenStore}.
+     */
+    public String generateRefreshToken(String username, String familyId, String tokenId, long validityInSeconds) {
+        return generate(username, validityInSeconds, tokenId, familyId, PermissionSet.EMPTY);
+    }
+
+    public static String newTokenId() {
+        return UUID.randomUUID().toString();
+    }
+
+    private String generate(String username, long validityInSeconds, String tokenId, String familyId,
+                            PermissionSet permissions) {
+        long startedAt = System.nanoTime();
+        long now = System.currentTimeMillis() / 1000;
+        String token = keyRing.signingCodec().encode(username, now, now + validityInSeconds, tokenId, familyId, permissions);
+        record(signTimer, startedAt);
+        return token;
+    }
+
+    /**
+     * Verifies the signature, expiry and revocation of the token and returns its claims, or the reason it was
+     * rejected. Never throws for a bad token.
+     */
+    public TokenVerification verify(String token) {
+        TokenVerification verification = verifySignature(token);
+        // Checked on every call, cached or not: a token can be revoked after it was first verified
+        if (verification.isValid() && revocationFilter.isRevoked(verification.getToken().getTokenId())) {
+            return TokenVerification.failed(TokenVerification.Failure.REVOKED);
+        }
+        return verification;
+    }
+
+    /**
+     * Revokes an access token until it expires.
+     */
+    public void revoke(VerifiedToken token) {
+        if (token.getTokenId() != null) {
+            revocationFilter.revoke(token.getTokenId(), token.getExpiresAt());
+        }
+    }
+
+    private TokenVerification verifySignature(String token) {
+        if (token == null || token.isEmpty()) {
+            return TokenVerification.failed(TokenVerification.Failure.MALFORMED);
         }
+        long nowMillis = System.currentTimeMillis();
+        VerifiedToken cached = verifiedTokens.getIfPresent(token);
+        if (cached != null) {
+            if (!cached.isExpired(nowMillis)) {
+                return TokenVerification.valid(cached);
+            }
+            verifiedTokens.invalidate(token);
+            return TokenVerification.failed(TokenVerification.Failure.EXPIRED);
+        }
+
+        long startedAt = System.nanoTime();
+        TokenVerification decoded = keyRing.decode(token);
+        record(verifyTimer, startedAt);
+        if (!decoded.isValid()) {
+            return decoded;
+        }
+        if (decoded.getToken().isExpired(nowMillis)) {
+            return TokenVerification.failed(TokenVerification.Failure.EXPIRED);
+        }
+        verifiedTokens.put(token, decoded.getToken());
+        return decoded;
+    }
+
+    public boolean validateToken(String token) {
+        return verify(token).isValid();
     }
 
     public String getUsername(String token) {
-        return Jwts.parser().setSigningKey(secretKey).parseClaimsJws(token).getBody().getSubject();
+        TokenVerification verification = verify(token);
+        return verification.isValid() ? verification.getToken().getSubject() : null;
+    }
+
+    /**
+     * Registers signing and verification latency and the verification cache; cache hits are not timed.
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        signTimer = Timer.builder("auth.token.sign")
+                .description("Encoding and signing of a token")
+                .publishPercentileHistogram()
+                .register(registry);
+        verifyTimer = Timer.builder("auth.token.verify")
+                .description("Signature check and parsing of a token missing from the verification cache")
+                .publishPercentileHistogram()
+                .register(registry);
+        CaffeineCacheMetrics.monitor(registry, verifiedTokens, "token-verification");
+    }
+
+    private static void record(Timer timer, long startedAt) {
+        if (timer != null) {
+            timer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static class UntilTokenExpiry implements Expiry<String, VerifiedToken> {
+
+        @Override
+        public long expireAfterCreate(String token, VerifiedToken verified, long currentTime) {
+            long remainingMillis = verified.getExpiresAt().toEpochMilli() - System.currentTimeMillis();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(remainingMillis, 0));
+        }
+
+        @Override
+        public long expireAfterUpdate(String token, VerifiedToken verified, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
+        @Override
+        public long expireAfterRead(String token, VerifiedToken verified, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
     }
 }
@@ -0,0 +1,21 @@
+package com.smartbudget.users.security;
+
+/**
+ * Throttles login attempts per client IP and per email before any lookup or password hashing is done, so a
+ * brute-force or credential-stuffing run costs a map lookup per attempt instead of a BCrypt verification.
+ * <p>
+ * The IP limit stops one source trying many accounts, the email limit many sources trying one account.
+ */
+public interface LoginRateLimiter {
+
+    /**
+     * Takes one attempt from both limits.
+     *
+     * @return {@code 0} if the attempt may proceed, otherwise the seconds after which it may be retried
+     */
+    long acquire(String clientIp, String email);
+
+    long getRejectedByIpCount();
+
+    long getRejectedByEmailCount();
+}
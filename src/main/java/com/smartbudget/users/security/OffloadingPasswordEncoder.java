@@ -0,0 +1,288 @@
+package com.smartbudget.users.security;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Runs the delegate's encode/matches on a dedicated bounded pool, so expensive hashing cannot occupy every servlet
+ * worker. When the queue is full the call fails fast with {@link PasswordHashingUnavailableException}.
+ */
+public class OffloadingPasswordEncoder implements PasswordEncoder, MeterBinder, DisposableBean {
+
+    private final PasswordEncoder delegate;
+    private final ThreadPoolExecutor executor;
+    private final long retryAfterSeconds;
+
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder hashNanos = new LongAdder();
+    private final LongAdder queueWaitNanos = new LongAdder();
+    private final AtomicLong maxHashNanos = new AtomicLong();
+
+    // Null until bound to a registry
+    private volatile Meters meters;
+
+    public OffloadingPasswordEncoder(PasswordEncoder delegate, int threads, int queueCapacity, long retryAfterSeconds) {
+        this.delegate = delegate;
+        this.retryAfterSeconds = retryAfterSeconds;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                task -> {
+                    Thread thread = new Thread(task, "password-hashing-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.executor.prestartAllCoreThreads();
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return offload(Operation.ENCODE, () -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return offload(Operation.MATCH, () -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    /**
+     * Non-blocking {@link #encode}: the future completes on the hashing pool. A saturated queue fails the future with
+     * {@link PasswordHashingUnavailableException}.
+     */
+    public CompletableFuture<String> encodeAsync(CharSequence rawPassword) {
+        return offloadAsync(Operation.ENCODE, () -> delegate.encode(rawPassword));
+    }
+
+    /**
+     * Non-blocking {@link #matches}, see {@link #encodeAsync}.
+     */
+    public CompletableFuture<Boolean> matchesAsync(CharSequence rawPassword, String encodedPassword) {
+        return offloadAsync(Operation.MATCH, () -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    /**
+     * Encodes many passwords in parallel on the hashing pool, for bulk work such as imports. At most one bulk task
+     * per pool thread is queued at a time, so interactive calls keep finding room in the queue and wait behind at
+     * most one bulk hash per thread. Waits for capacity instead of failing when the queue is full.
+     */
+    public List<String> encodeAll(List<? extends CharSequence> rawPasswords) {
+        int maxInFlight = executor.getMaximumPoolSize();
+        List<Future<String>> results = new ArrayList<>(rawPasswords.size());
+        for (int i = 0; i < rawPasswords.size(); i++) {
+            if (i >= maxInFlight) {
+                await(results.get(i - maxInFlight));
+            }
+            CharSequence rawPassword = rawPasswords.get(i);
+            while (true) {
+                try {
+                    results.add(executor.submit(timed(Operation.ENCODE, () -> delegate.encode(rawPassword))));
+                    break;
+                } catch (RejectedExecutionException e) {
+                    // Interactive calls filled the queue; let the pool drain a little
+                    if (i > 0) {
+                        await(results.get(i - 1));
+                    } else {
+                        pause();
+                    }
+                }
+            }
+        }
+        List<String> encoded = new ArrayList<>(results.size());
+        for (Future<String> result : results) {
+            encoded.add(await(result));
+        }
+        return encoded;
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    private <T> T offload(Operation operation, Supplier<T> hashing) {
+        Future<T> result;
+        try {
+            result = executor.submit(timed(operation, hashing));
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new PasswordHashingUnavailableException(retryAfterSeconds);
+        }
+        return await(result);
+    }
+
+    private <T> CompletableFuture<T> offloadAsync(Operation operation, Supplier<T> hashing) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Callable<T> task = timed(operation, hashing);
+        try {
+            executor.execute(() -> {
+                try {
+                    result.complete(task.call());
+                } catch (Throwable e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            result.completeExceptionally(new PasswordHashingUnavailableException(retryAfterSeconds));
+        }
+        return result;
+    }
+
+    private <T> Callable<T> timed(Operation operation, Supplier<T> hashing) {
+        long submittedAt = System.nanoTime();
+        return () -> {
+            long startedAt = System.nanoTime();
+            long queueWait = startedAt - submittedAt;
+            queueWaitNanos.add(queueWait);
+            try {
+                return hashing.get();
+            } finally {
+                long elapsed = System.nanoTime() - startedAt;
+                hashNanos.add(elapsed);
+                maxHashNanos.accumulateAndGet(elapsed, Math::max);
+                completed.increment();
+                Meters meters = this.meters;
+                if (meters != null) {
+                    meters.queueWait.record(queueWait, TimeUnit.NANOSECONDS);
+                    (operation == Operation.ENCODE ? meters.encode : meters.match).record(elapsed, TimeUnit.NANOSECONDS);
+                }
+            }
+        };
+    }
+
+    private static <T> T await(Future<T> result) {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            result.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for password hashing", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+    }
+
+    private static void pause() {
+        try {
+            TimeUnit.MILLISECONDS.sleep(10);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for password hashing", e);
+        }
+    }
+
+    public int getPoolSize() {
+        return executor.getMaximumPoolSize();
+    }
+
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    public int getQueueCapacity() {
+        return executor.getQueue().size() + executor.getQueue().remainingCapacity();
+    }
+
+    public long getCompletedCount() {
+        return completed.sum();
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    public double getAverageHashMillis() {
+        long count = completed.sum();
+        return count == 0 ? 0 : hashNanos.sum() / 1_000_000.0 / count;
+    }
+
+    public double getMaxHashMillis() {
+        return maxHashNanos.get() / 1_000_000.0;
+    }
+
+    public double getAverageQueueWaitMillis() {
+        long count = completed.sum();
+        return count == 0 ? 0 : queueWaitNanos.sum() / 1_000_000.0 / count;
+    }
+
+    /**
+     * Registers hash latency per operation, queue wait, pool saturation and rejections.
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("auth.password.pool.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Hashing threads busy")
+                .register(registry);
+        Gauge.builder("auth.password.pool.size", executor, ThreadPoolExecutor::getMaximumPoolSize)
+                .register(registry);
+        Gauge.builder("auth.password.queue.depth", executor, pool -> pool.getQueue().size())
+                .description("Hashing tasks waiting for a thread")
+                .register(registry);
+        FunctionCounter.builder("auth.password.rejected", rejected, LongAdder::sum)
+                .description("Hashing requests rejected because the queue was full")
+                .register(registry);
+        meters = new Meters(registry);
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdown();
+    }
+
+    private enum Operation {
+        ENCODE, MATCH
+    }
+
+    private static final class Meters {
+
+        final Timer encode;
+        final Timer match;
+        final Timer queueWait;
+
+        Meters(MeterRegistry registry) {
+            this.encode = hashTimer(registry, "encode");
+            this.match = hashTimer(registry, "match");
+            this.queueWait = Timer.builder("auth.password.queue.wait")
+                    .description("Time a hashing task waited for a thread")
+                    .publishPercentileHistogram()
+                    .register(registry);
+        }
+
+        private static Timer hashTimer(MeterRegistry registry, String operation) {
+            return Timer.builder("auth.password.hash")
+                    .description("Password hashing time on the hashing pool, without queue wait")
+                    .tag("operation", operation)
+                    .publishPercentileHistogram()
+                    .register(registry);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.smartbudget.users.security;
+
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.Arrays;
+import java.util.function.IntFunction;
+
+/**
+ * Picks a hashing cost that makes one encode take roughly the target time on the current CPU.
+ * The result is never below the configured minimum cost.
+ */
+public final class PasswordEncoderCalibrator {
+
+    private static final String SAMPLE_PASSWORD = "calibration-Password-1";
+    private static final int SAMPLES = 3;
+
+    private PasswordEncoderCalibrator() {
+    }
+
+    /**
+     * For costs where every +1 doubles the work, such as the BCrypt log rounds.
+     */
+    public static int calibrateLogarithmic(IntFunction<PasswordEncoder> encoderForCost, int minCost, int maxCost,
+                                           long targetMillis) {
+        double millis = measureMillis(encoderForCost.apply(minCost));
+        int steps = (int) Math.round(Math.log(targetMillis / millis) / Math.log(2));
+        return Math.min(maxCost, minCost + Math.max(steps, 0));
+    }
+
+    /**
+     * For costs the work grows with linearly, such as PBKDF2 or Argon2 iterations.
+     */
+    public static int calibrateLinear(IntFunction<PasswordEncoder> encoderForCost, int minCost, int maxCost,
+                                      long targetMillis) {
+        double millis = measureMillis(encoderForCost.apply(minCost));
+        long cost = Math.round(minCost * (targetMillis / millis));
+        return (int) Math.min(maxCost, Math.max(minCost, cost));
+    }
+
+    private static double measureMillis(PasswordEncoder encoder) {
+        // The first call also pays for class loading and JIT warm-up
+        encoder.encode(SAMPLE_PASSWORD);
+        double[] samples = new double[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            long start = System.nanoTime();
+            encoder.encode(SAMPLE_PASSWORD);
+            samples[i] = Math.max(System.nanoTime() - start, 1) / 1_000_000.0;
+        }
+        Arrays.sort(samples);
+        return samples[SAMPLES / 2];
+    }
+}
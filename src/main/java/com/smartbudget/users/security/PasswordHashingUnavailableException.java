@@ -0,0 +1,17 @@
+package com.smartbudget.users.security;
+
+/**
+ * Thrown when the password hashing pool is saturated and the request should be retried later.
+ */
+public class PasswordHashingUnavailableException extends RuntimeException {
+    private final long retryAfterSeconds;
+
+    public PasswordHashingUnavailableException(long retryAfterSeconds) {
+        super("Password hashing pool is saturated");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,59 @@
+package com.smartbudget.users.security;
+
+import org.springframework.core.io.Resource;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Base64;
+
+/**
+ * Reads PKCS#8 private keys and X.509 public keys from PEM files such as the bundled privateKey.pem and publicKey.pem.
+ */
+public final class PemKeys {
+
+    private PemKeys() {
+    }
+
+    public static PrivateKey readRsaPrivateKey(Resource resource) {
+        byte[] der = readPem(resource, "PRIVATE KEY");
+        try {
+            return KeyFactory.getInstance("RSA").generatePrivate(new PKCS8EncodedKeySpec(der));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Invalid RSA private key in " + resource, e);
+        }
+    }
+
+    public static RSAPublicKey readRsaPublicKey(Resource resource) {
+        byte[] der = readPem(resource, "PUBLIC KEY");
+        try {
+            return (RSAPublicKey) KeyFactory.getInstance("RSA").generatePublic(new X509EncodedKeySpec(der));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Invalid RSA public key in " + resource, e);
+        }
+    }
+
+    private static byte[] readPem(Resource resource, String type) {
+        String pem;
+        try (InputStream in = resource.getInputStream()) {
+            pem = StreamUtils.copyToString(in, StandardCharsets.US_ASCII);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot read " + resource, e);
+        }
+        String begin = "-----BEGIN " + type + "-----";
+        String end = "-----END " + type + "-----";
+        int from = pem.indexOf(begin);
+        int to = pem.indexOf(end);
+        if (from < 0 || to < 0) {
+            throw new IllegalStateException(resource + " does not contain a " + type + " PEM block");
+        }
+        return Base64.getMimeDecoder().decode(pem.substring(from + begin.length(), to));
+    }
+}
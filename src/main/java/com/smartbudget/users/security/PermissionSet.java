@@ -0,0 +1,143 @@
+package com.smartbudget.users.security;
+
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+
+/**
+ * Immutable set of permission ids as a bitset: bit {@code n} is permission {@code n}. On the wire (the {@code prm}
+ * claim) it is the little-endian bytes of the bitset in unpadded base64url, trailing zero bytes dropped, so a token
+ * carrying permissions 1, 2 and 9 gets {@code "BgI"}.
+ */
+public final class PermissionSet {
+
+    public static final PermissionSet EMPTY = new PermissionSet(new long[0]);
+
+    private final long[] words;
+    private final String encoded;
+
+    private PermissionSet(long[] words) {
+        this.words = words;
+        this.encoded = encode(words);
+    }
+
+    public static PermissionSet of(Collection<Long> permissionIds) {
+        long[] words = new long[0];
+        for (Long id : permissionIds) {
+            words = set(words, id);
+        }
+        return create(words);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the value is not base64url
+     */
+    public static PermissionSet decode(String encoded) {
+        byte[] bytes = Base64.getUrlDecoder().decode(encoded);
+        long[] words = new long[(bytes.length + 7) / 8];
+        for (int i = 0; i < bytes.length; i++) {
+            words[i >>> 3] |= (bytes[i] & 0xffL) << ((i & 7) * 8);
+        }
+        return create(words);
+    }
+
+    public PermissionSet with(long permissionId) {
+        return contains(permissionId) ? this : create(set(words.clone(), permissionId));
+    }
+
+    public PermissionSet without(long permissionId) {
+        if (!contains(permissionId)) {
+            return this;
+        }
+        long[] cleared = words.clone();
+        cleared[(int) (permissionId >>> 6)] &= ~(1L << permissionId);
+        return create(cleared);
+    }
+
+    public boolean contains(long permissionId) {
+        int word = (int) (permissionId >>> 6);
+        return permissionId >= 0 && word < words.length && (words[word] & (1L << permissionId)) != 0;
+    }
+
+    public boolean isEmpty() {
+        return words.length == 0;
+    }
+
+    /**
+     * Permission ids in ascending order.
+     */
+    public long[] toIds() {
+        long[] ids = new long[Arrays.stream(words).mapToInt(Long::bitCount).sum()];
+        int next = 0;
+        for (int word = 0; word < words.length; word++) {
+            long bits = words[word];
+            while (bits != 0) {
+                ids[next++] = word * 64L + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * The {@code prm} claim value; computed once, since index entries are shared by every token of a user.
+     */
+    public String encode() {
+        return encoded;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || (o instanceof PermissionSet && Arrays.equals(words, ((PermissionSet) o).words));
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(words);
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(toIds());
+    }
+
+    private static long[] set(long[] words, long permissionId) {
+        if (permissionId < 0 || permissionId >= (long) Integer.MAX_VALUE * 64) {
+            throw new IllegalArgumentException("Permission id out of range: " + permissionId);
+        }
+        int word = (int) (permissionId >>> 6);
+        if (word >= words.length) {
+            words = Arrays.copyOf(words, word + 1);
+        }
+        words[word] |= 1L << permissionId;
+        return words;
+    }
+
+    // Trailing zero words are dropped so equal sets have equal arrays
+    private static PermissionSet create(long[] words) {
+        int length = words.length;
+        while (length > 0 && words[length - 1] == 0) {
+            length--;
+        }
+        if (length == 0) {
+            return EMPTY;
+        }
+        return new PermissionSet(length == words.length ? words : Arrays.copyOf(words, length));
+    }
+
+    private static String encode(long[] words) {
+        if (words.length == 0) {
+            return "";
+        }
+        int length = words.length * 8;
+        // The last word is non-zero, so this stops within it
+        while (((words[(length - 1) >>> 3] >>> (((length - 1) & 7) * 8)) & 0xff) == 0) {
+            length--;
+        }
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) (words[i >>> 3] >>> ((i & 7) * 8));
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+}
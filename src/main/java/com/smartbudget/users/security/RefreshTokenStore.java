@@ -0,0 +1,46 @@
+package com.smartbudget.users.security;
+
+import java.time.Instant;
+
+/**
+ * Server-side state of refresh-token families. A family starts at login and holds exactly one live refresh token;
+ * every refresh replaces it. Presenting a replaced token again means it leaked, so the whole family is revoked.
+ * A family expires at the time it was created with, however often it is rotated, so a session has a hard limit.
+ */
+public interface RefreshTokenStore {
+
+    enum Rotation {
+        ROTATED,
+        /** The presented token was already rotated; the family has now been revoked. */
+        REUSED,
+        /** Unknown, expired or revoked family. */
+        INVALID
+    }
+
+    void create(String familyId, String subject, String tokenId, Instant expiresAt);
+
+    /**
+     * Atomically replaces {@code presentedTokenId} with {@code nextTokenId} if it is still the live token of the family.
+     * The family keeps its expiry.
+     */
+    Rotation rotate(String familyId, String presentedTokenId, String nextTokenId);
+
+    /**
+     * @return {@code true} if a live family was revoked
+     */
+    boolean revoke(String familyId);
+
+    /**
+     * Revokes every family of the subject, e.g. when the user is deleted or their password changes.
+     *
+     * @return the number of live families revoked
+     */
+    int revokeAll(String subject);
+
+    /**
+     * Drops families whose last refresh token has expired.
+     *
+     * @return the number of families removed
+     */
+    int purgeExpired();
+}
@@ -0,0 +1,163 @@
+package com.smartbudget.users.security;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.security.SignatureException;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class RsaJwsSigner implements JwsSigner {
+
+    private static final String ALGORITHM = "RS256";
+    private static final String SIGNATURE_ALGORITHM = "SHA256withRSA";
+
+    private final RSAPublicKey publicKey;
+    private final ThreadLocal<Signature> signers;
+    private final ThreadLocal<Signature> verifiers;
+    private final Map<String, Object> publicJwk;
+
+    /**
+     * @param privateKey signing key, or {@code null} for a verify-only signer
+     */
+    public RsaJwsSigner(PrivateKey privateKey, RSAPublicKey publicKey) {
+        this(null, privateKey, publicKey);
+    }
+
+    /**
+     * @param keyId the {@code kid}; {@code null} derives it from the public key
+     */
+    public RsaJwsSigner(String keyId, PrivateKey privateKey, RSAPublicKey publicKey) {
+        if (privateKey != null) {
+            newSigner(privateKey);
+            this.signers = ThreadLocal.withInitial(() -> newSigner(privateKey));
+        } else {
+            this.signers = null;
+        }
+        this.publicKey = publicKey;
+        newVerifier(publicKey);
+        this.verifiers = ThreadLocal.withInitial(() -> newVerifier(publicKey));
+        this.publicJwk = toJwk(keyId, publicKey);
+    }
+
+    @Override
+    public String getAlgorithm() {
+        return ALGORITHM;
+    }
+
+    @Override
+    public boolean canSign() {
+        return signers != null;
+    }
+
+    @Override
+    public byte[] sign(byte[] signingInput) {
+        return sign(signingInput, 0, signingInput.length);
+    }
+
+    @Override
+    public byte[] sign(byte[] input, int offset, int length) {
+        if (signers == null) {
+            throw new IllegalStateException("No private key configured for " + ALGORITHM + " signing");
+        }
+        Signature signature = signers.get();
+        try {
+            signature.update(input, offset, length);
+            return signature.sign();
+        } catch (SignatureException e) {
+            throw new IllegalStateException("Cannot sign token", e);
+        }
+    }
+
+    @Override
+    public boolean verify(byte[] signingInput, byte[] signature) {
+        return verify(signingInput, 0, signingInput.length, signature, 0, signature.length);
+    }
+
+    @Override
+    public boolean verify(byte[] input, int offset, int length,
+                          byte[] signature, int signatureOffset, int signatureLength) {
+        Signature verifier = verifiers.get();
+        try {
+            verifier.update(input, offset, length);
+            return verifier.verify(signature, signatureOffset, signatureLength);
+        } catch (SignatureException e) {
+            // verify() leaves the instance reset only when it returns normally
+            verifiers.remove();
+            return false;
+        }
+    }
+
+    @Override
+    public Map<String, Object> getPublicJwk() {
+        return publicJwk;
+    }
+
+    public RSAPublicKey getPublicKey() {
+        return publicKey;
+    }
+
+    @Override
+    public String getKeyId() {
+        return (String) publicJwk.get("kid");
+    }
+
+    private static Signature newSigner(PrivateKey privateKey) {
+        try {
+            Signature signature = Signature.getInstance(SIGNATURE_ALGORITHM);
+            signature.initSign(privateKey);
+            return signature;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot initialize " + SIGNATURE_ALGORITHM + " signer", e);
+        }
+    }
+
+    private static Signature newVerifier(RSAPublicKey publicKey) {
+        try {
+            Signature signature = Signature.getInstance(SIGNATURE_ALGORITHM);
+            signature.initVerify(publicKey);
+            return signature;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot initialize " + SIGNATURE_ALGORITHM + " verifier", e);
+        }
+    }
+
+    private static Map<String, Object> toJwk(String keyId, RSAPublicKey publicKey) {
+        String n = base64Url(publicKey.getModulus());
+        String e = base64Url(publicKey.getPublicExponent());
+        Map<String, Object> jwk = new LinkedHashMap<>();
+        jwk.put("kty", "RSA");
+        jwk.put("use", "sig");
+        jwk.put("alg", ALGORITHM);
+        jwk.put("kid", keyId != null ? keyId : thumbprint(n, e));
+        jwk.put("n", n);
+        jwk.put("e", e);
+        return Collections.unmodifiableMap(jwk);
+    }
+
+    // RFC 7638 JWK thumbprint, so the kid is stable for a given key
+    private static String thumbprint(String n, String e) {
+        String canonical = "{\"e\":\"" + e + "\",\"kty\":\"RSA\",\"n\":\"" + n + "\"}";
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(canonical.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException("SHA-256 is not available", ex);
+        }
+    }
+
+    private static String base64Url(BigInteger value) {
+        byte[] bytes = value.toByteArray();
+        if (bytes.length > 1 && bytes[0] == 0) {
+            bytes = Arrays.copyOfRange(bytes, 1, bytes.length);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+}
@@ -0,0 +1,100 @@
+package com.smartbudget.users.security;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Answers "is this access token revoked?" without touching the {@link AccessTokenDenylist} for the vast majority of
+ * tokens, which were never revoked. A Bloom filter of revoked ids rules them out in memory; only a filter hit falls
+ * through to the exact denylist. The filter is rebuilt from the denylist on a schedule, which also drops expired
+ * ids and picks up revocations made by other nodes.
+ */
+@Component
+public class TokenRevocationFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenRevocationFilter.class);
+
+    private final AccessTokenDenylist denylist;
+    private final long expectedRevocations;
+    private final double falsePositiveProbability;
+
+    private volatile BloomFilter filter;
+    // Filter being rebuilt; revocations made during the rebuild go into it as well
+    private volatile BloomFilter next;
+    private final AtomicLong filterHits = new AtomicLong();
+    private final AtomicLong falsePositives = new AtomicLong();
+
+    @Autowired
+    public TokenRevocationFilter(AccessTokenDenylist denylist,
+                                 @Value("${auth.revocation.expected-revocations:1000000}") long expectedRevocations,
+                                 @Value("${auth.revocation.false-positive-probability:0.001}") double falsePositiveProbability) {
+        this.denylist = denylist;
+        this.expectedRevocations = expectedRevocations;
+        this.falsePositiveProbability = falsePositiveProbability;
+        this.filter = new BloomFilter(expectedRevocations, falsePositiveProbability);
+    }
+
+    public void revoke(String tokenId, Instant expiresAt) {
+        denylist.revoke(tokenId, expiresAt);
+        // A rebuild that read the denylist before this revocation may swap in its filter at any point here; repeat
+        // until the id is in the filter that is current afterwards
+        BloomFilter current;
+        do {
+            current = filter;
+            current.put(tokenId);
+            BloomFilter rebuilding = next;
+            if (rebuilding != null) {
+                rebuilding.put(tokenId);
+            }
+        } while (current != filter);
+    }
+
+    public boolean isRevoked(String tokenId) {
+        if (tokenId == null || !filter.mightContain(tokenId)) {
+            return false;
+        }
+        filterHits.incrementAndGet();
+        boolean revoked = denylist.isRevoked(tokenId);
+        if (!revoked) {
+            falsePositives.incrementAndGet();
+        }
+        return revoked;
+    }
+
+    @Scheduled(initialDelay = 0, fixedDelayString = "${auth.revocation.rebuild-interval-ms:30000}")
+    public synchronized void rebuild() {
+        denylist.purgeExpired();
+        BloomFilter rebuilt = new BloomFilter(expectedRevocations, falsePositiveProbability);
+        next = rebuilt;
+        long[] count = {0};
+        denylist.forEachRevoked(tokenId -> {
+            rebuilt.put(tokenId);
+            count[0]++;
+        });
+        filter = rebuilt;
+        next = null;
+        if (count[0] > expectedRevocations) {
+            log.warn("{} revoked access tokens exceed auth.revocation.expected-revocations={}, false positives will rise",
+                    count[0], expectedRevocations);
+        }
+    }
+
+    public long getFilterHits() {
+        return filterHits.get();
+    }
+
+    public long getFalsePositives() {
+        return falsePositives.get();
+    }
+
+    public long getMemoryBytes() {
+        return filter.getMemoryBytes();
+    }
+}
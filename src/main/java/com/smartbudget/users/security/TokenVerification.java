@@ -0,0 +1,60 @@
+package com.smartbudget.users.security;
+
+/**
+ * Outcome of {@link JwtTokenProvider#verify(String)}: either the verified claims or the reason the token was rejected.
+ */
+public final class TokenVerification {
+
+    public enum Failure {
+        EXPIRED,
+        BAD_SIGNATURE,
+        MALFORMED,
+        UNSUPPORTED,
+        REVOKED
+    }
+
+    private static final TokenVerification EXPIRED = new TokenVerification(null, Failure.EXPIRED);
+    private static final TokenVerification BAD_SIGNATURE = new TokenVerification(null, Failure.BAD_SIGNATURE);
+    private static final TokenVerification MALFORMED = new TokenVerification(null, Failure.MALFORMED);
+    private static final TokenVerification UNSUPPORTED = new TokenVerification(null, Failure.UNSUPPORTED);
+    private static final TokenVerification REVOKED = new TokenVerification(null, Failure.REVOKED);
+
+    private final VerifiedToken token;
+    private final Failure failure;
+
+    private TokenVerification(VerifiedToken token, Failure failure) {
+        this.token = token;
+        this.failure = failure;
+    }
+
+    public static TokenVerification valid(VerifiedToken token) {
+        return new TokenVerification(token, null);
+    }
+
+    public static TokenVerification failed(Failure failure) {
+        switch (failure) {
+            case EXPIRED:
+                return EXPIRED;
+            case BAD_SIGNATURE:
+                return BAD_SIGNATURE;
+            case UNSUPPORTED:
+                return UNSUPPORTED;
+            case REVOKED:
+                return REVOKED;
+            default:
+                return MALFORMED;
+        }
+    }
+
+    public boolean isValid() {
+        return token != null;
+    }
+
+    public VerifiedToken getToken() {
+        return token;
+    }
+
+    public Failure getFailure() {
+        return failure;
+    }
+}
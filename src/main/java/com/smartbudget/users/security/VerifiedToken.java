@@ -0,0 +1,70 @@
+package com.smartbudget.users.security;
+
+import java.time.Instant;
+
+/**
+ * Claims of a token whose signature and expiry have already been checked.
+ */
+public class VerifiedToken {
+    private final String subject;
+    private final Instant issuedAt;
+    private final Instant expiresAt;
+    private final String tokenId;
+    private final String familyId;
+    private final PermissionSet permissions;
+
+    public VerifiedToken(String subject, Instant issuedAt, Instant expiresAt, String tokenId, String familyId) {
+        this(subject, issuedAt, expiresAt, tokenId, familyId, PermissionSet.EMPTY);
+    }
+
+    public VerifiedToken(String subject, Instant issuedAt, Instant expiresAt, String tokenId, String familyId,
+                         PermissionSet permissions) {
+        this.subject = subject;
+        this.issuedAt = issuedAt;
+        this.expiresAt = expiresAt;
+        this.tokenId = tokenId;
+        this.familyId = familyId;
+        this.permissions = permissions;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    public Instant getIssuedAt() {
+        return issuedAt;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    /**
+     * The {@code jti} claim, or {@code null} for tokens issued before it was introduced.
+     */
+    public String getTokenId() {
+        return tokenId;
+    }
+
+    /**
+     * The {@code fid} claim: the rotation family of a refresh token, {@code null} for access tokens.
+     */
+    public String getFamilyId() {
+        return familyId;
+    }
+
+    /**
+     * The {@code prm} claim; empty when the token carries no permissions.
+     */
+    public PermissionSet getPermissions() {
+        return permissions;
+    }
+
+    public boolean isRefreshToken() {
+        return familyId != null;
+    }
+
+    public boolean isExpired(long nowMillis) {
+        return expiresAt.toEpochMilli() <= nowMillis;
+    }
+}
@@ -0,0 +1,133 @@
+package com.smartbudget.users.service;
+
+import com.smartbudget.users.security.OffloadingPasswordEncoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executors of the asynchronous mode of the auth endpoints ({@code auth.async.enabled}). Handlers return a
+ * {@link CompletableFuture} and the Tomcat worker is released at once: database calls run on the I/O executor and
+ * password hashing on the hashing pool of {@link OffloadingPasswordEncoder}, so a login blocks no thread while it
+ * waits for the other kind of work.
+ * <p>
+ * With {@code auth.async.virtual-threads} the I/O executor starts a virtual thread per task when the JVM has them
+ * (Java 21+); the service itself still targets Java 11, so they are looked up at runtime.
+ */
+@Component
+@ConditionalOnProperty(name = "auth.async.enabled", havingValue = "true")
+public class AsyncAuthExecutors implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(AsyncAuthExecutors.class);
+
+    private final PasswordEncoder passwordEncoder;
+    private final ExecutorService pool;
+    private final Executor io = this::execute;
+    private final Executor ioContinuation = this::executeOrRun;
+
+    @Autowired
+    public AsyncAuthExecutors(PasswordEncoder passwordEncoder,
+                              @Value("${auth.async.io-threads:32}") int ioThreads,
+                              @Value("${auth.async.io-queue-capacity:1000}") int ioQueueCapacity,
+                              @Value("${auth.async.virtual-threads:false}") boolean virtualThreads) {
+        this.passwordEncoder = passwordEncoder;
+        ExecutorService virtual = virtualThreads ? newVirtualThreadPerTaskExecutor() : null;
+        this.pool = virtual != null ? virtual : newIoPool(ioThreads, ioQueueCapacity);
+    }
+
+    /**
+     * Executor for the first stage of a request.
+     *
+     * @throws TaskRejectedException from {@code execute} when the bounded I/O pool is saturated
+     */
+    public Executor io() {
+        return io;
+    }
+
+    /**
+     * Executor for later stages of a request that was already admitted. It never rejects: a stage it cannot queue
+     * runs on the completing thread, because a {@link CompletableFuture} stays incomplete when its executor throws.
+     */
+    public Executor ioContinuation() {
+        return ioContinuation;
+    }
+
+    public CompletableFuture<Boolean> matches(CharSequence rawPassword, String encodedPassword) {
+        if (passwordEncoder instanceof OffloadingPasswordEncoder) {
+            return ((OffloadingPasswordEncoder) passwordEncoder).matchesAsync(rawPassword, encodedPassword);
+        }
+        return CompletableFuture.supplyAsync(() -> passwordEncoder.matches(rawPassword, encodedPassword), io);
+    }
+
+    public CompletableFuture<String> encode(CharSequence rawPassword) {
+        if (passwordEncoder instanceof OffloadingPasswordEncoder) {
+            return ((OffloadingPasswordEncoder) passwordEncoder).encodeAsync(rawPassword);
+        }
+        return CompletableFuture.supplyAsync(() -> passwordEncoder.encode(rawPassword), io);
+    }
+
+    @Override
+    public void destroy() {
+        pool.shutdown();
+    }
+
+    private void execute(Runnable task) {
+        try {
+            pool.execute(task);
+        } catch (RejectedExecutionException e) {
+            throw new TaskRejectedException("Auth I/O executor is saturated", e);
+        }
+    }
+
+    private void executeOrRun(Runnable task) {
+        try {
+            pool.execute(task);
+        } catch (RejectedExecutionException e) {
+            task.run();
+        }
+    }
+
+    private static ExecutorService newIoPool(int threads, int queueCapacity) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                task -> {
+                    Thread thread = new Thread(task, "auth-io-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        pool.prestartAllCoreThreads();
+        log.info("Async auth mode: {} I/O threads, queue capacity {}", threads, queueCapacity);
+        return pool;
+    }
+
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            ExecutorService executor = (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            log.info("Async auth mode: I/O on virtual threads");
+            return executor;
+        } catch (ReflectiveOperationException e) {
+            log.warn("Virtual threads need Java 21 or later, running on {}; using the I/O pool instead",
+                    System.getProperty("java.version"));
+            return null;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.smartbudget.users.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smartbudget.users.dto.UserEvent;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Appends events to a file, one JSON object per line. Each batch is forced to disk before it counts as published,
+ * so a crash can repeat events in the file but not lose them.
+ */
+@Component
+@ConditionalOnProperty(name = "auth.outbox.sink", havingValue = "file")
+public class FileUserEventSink implements UserEventSink, DisposableBean {
+
+    private final ObjectMapper objectMapper;
+    private final FileChannel channel;
+
+    @Autowired
+    public FileUserEventSink(ObjectMapper objectMapper,
+                             @Value("${auth.outbox.file.path:user-events.jsonl}") String path) throws IOException {
+        this(objectMapper, Paths.get(path));
+    }
+
+    public FileUserEventSink(ObjectMapper objectMapper, Path path) throws IOException {
+        this.objectMapper = objectMapper;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+    }
+
+    @Override
+    public synchronized void publish(List<UserEvent> events) {
+        StringBuilder lines = new StringBuilder(events.size() * 160);
+        try {
+            for (UserEvent event : events) {
+                lines.append(objectMapper.writeValueAsString(event)).append('\n');
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write " + events.size() + " user events", e);
+        }
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        channel.close();
+    }
+}
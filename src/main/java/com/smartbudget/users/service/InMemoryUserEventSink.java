@@ -0,0 +1,31 @@
+package com.smartbudget.users.service;
+
+import com.smartbudget.users.dto.UserEvent;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps every published event in memory, for tests and benchmarks. Nothing is removed until {@link #clear()}.
+ */
+@Component
+@ConditionalOnProperty(name = "auth.outbox.sink", havingValue = "memory")
+public class InMemoryUserEventSink implements UserEventSink {
+
+    private final List<UserEvent> events = new ArrayList<>();
+
+    @Override
+    public synchronized void publish(List<UserEvent> batch) {
+        events.addAll(batch);
+    }
+
+    public synchronized List<UserEvent> getEvents() {
+        return new ArrayList<>(events);
+    }
+
+    public synchronized void clear() {
+        events.clear();
+    }
+}
@@ -0,0 +1,157 @@
+package com.smartbudget.users.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-behind buffer for users.last_login. Logins only record the timestamp in memory; the latest timestamp per
+ * user is written periodically in one JDBC batch. At most {@code max-pending} users or one flush interval of
+ * timestamps can be lost on a crash.
+ * <p>
+ * While the database is unavailable the buffer stays at {@code max-pending} users: logins of users already pending
+ * still update their timestamp, those of other users are dropped and counted. Only the scheduled flush retries, so a
+ * full buffer never puts a failing batch on the login path.
+ */
+@Component
+public class LastLoginRecorder {
+
+    private static final Logger log = LoggerFactory.getLogger(LastLoginRecorder.class);
+
+    private static final String UPDATE_LAST_LOGIN = "UPDATE users_auth.users SET last_login = ? WHERE user_id = ?";
+
+    private static final long WARN_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int maxPending;
+    private final int batchSize;
+
+    private final ConcurrentHashMap<Long, LocalDateTime> pending = new ConcurrentHashMap<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final AtomicLong dropped = new AtomicLong();
+
+    // Set while the last flush failed; written under flushLock
+    private volatile boolean failing;
+    private int failedFlushes;
+    private long lastWarningNanos;
+
+    @Autowired
+    public LastLoginRecorder(JdbcTemplate jdbcTemplate,
+                             @Value("${auth.last-login.max-pending:10000}") int maxPending,
+                             @Value("${auth.last-login.batch-size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.maxPending = maxPending;
+        this.batchSize = batchSize;
+    }
+
+    public void record(Long userId, LocalDateTime lastLogin) {
+        if (failing && pending.size() >= maxPending && !pending.containsKey(userId)) {
+            dropped.incrementAndGet();
+            return;
+        }
+        pending.merge(userId, lastLogin, LastLoginRecorder::latest);
+        // Bounds what a crash can lose; only one caller pays for the early flush, and none while flushes fail
+        if (pending.size() >= maxPending && !failing && flushLock.tryLock()) {
+            try {
+                flushPending();
+            } finally {
+                flushLock.unlock();
+            }
+        }
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Login timestamps not written because the buffer was full while the database was unavailable.
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    @Scheduled(fixedDelayString = "${auth.last-login.flush-interval-ms:1000}")
+    public void flush() {
+        flushLock.lock();
+        try {
+            flushPending();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    private void flushPending() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<Long, LocalDateTime>> batch = new ArrayList<>(pending.size());
+        for (Long userId : pending.keySet()) {
+            LocalDateTime lastLogin = pending.remove(userId);
+            if (lastLogin != null) {
+                batch.add(Map.entry(userId, lastLogin));
+            }
+        }
+        try {
+            jdbcTemplate.batchUpdate(UPDATE_LAST_LOGIN, batch, batchSize, (ps, entry) -> {
+                ps.setTimestamp(1, Timestamp.valueOf(entry.getValue()));
+                ps.setLong(2, entry.getKey());
+            });
+        } catch (RuntimeException e) {
+            failing = true;
+            // Keep the timestamps for the next flush unless newer ones arrived meanwhile, up to max-pending users
+            for (Map.Entry<Long, LocalDateTime> entry : batch) {
+                if (pending.size() < maxPending || pending.containsKey(entry.getKey())) {
+                    pending.merge(entry.getKey(), entry.getValue(), LastLoginRecorder::latest);
+                } else {
+                    dropped.incrementAndGet();
+                }
+            }
+            warnFailure(batch.size(), e);
+            return;
+        }
+        if (failing) {
+            failing = false;
+            log.info("Last-login updates are written again after {} failed flushes", failedFlushes);
+            failedFlushes = 0;
+        }
+    }
+
+    // The first failure with its stack trace, then at most one summary per interval while flushes keep failing
+    private void warnFailure(int size, RuntimeException e) {
+        long now = System.nanoTime();
+        if (++failedFlushes == 1) {
+            log.warn("Failed to flush {} last-login updates, will retry", size, e);
+        } else if (now - lastWarningNanos >= WARN_INTERVAL_NANOS) {
+            log.warn("Last-login flushes still failing after {} attempts, {} updates dropped so far: {}",
+                    failedFlushes, dropped.get(), e.toString());
+        } else {
+            return;
+        }
+        lastWarningNanos = now;
+    }
+
+    private static LocalDateTime latest(LocalDateTime a, LocalDateTime b) {
+        return a.isAfter(b) ? a : b;
+    }
+}
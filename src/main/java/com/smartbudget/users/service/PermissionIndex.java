@@ -0,0 +1,131 @@
+package com.smartbudget.users.service;
+
+import com.smartbudget.users.model.Permission;
+import com.smartbudget.users.repository.PermissionGrant;
+import com.smartbudget.users.repository.PermissionRepository;
+import com.smartbudget.users.security.PermissionSet;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.UnaryOperator;
+
+/**
+ * In-memory copy of the user-permission graph, so issuing a token never queries permissions.
+ * <p>
+ * Readers see one immutable snapshot through a volatile field and never lock. The snapshot is rebuilt from the
+ * database on a schedule, which picks up edits made on other nodes; local edits build the next snapshot from the
+ * current one. Both happen under the same lock, so a rebuild that read the database before an edit committed cannot
+ * overwrite that edit. Only users holding a permission are indexed, which keeps the copy an edit makes small.
+ */
+@Component
+public class PermissionIndex {
+
+    private final PermissionRepository permissionRepository;
+
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+    @Autowired
+    public PermissionIndex(PermissionRepository permissionRepository) {
+        this.permissionRepository = permissionRepository;
+    }
+
+    /**
+     * Permissions of the user, {@link PermissionSet#EMPTY} if none.
+     */
+    public PermissionSet permissionsOf(String username) {
+        PermissionSet permissions = snapshot.byUsername.get(username);
+        return permissions != null ? permissions : PermissionSet.EMPTY;
+    }
+
+    /**
+     * Permission names by id, for decoding the {@code prm} claim.
+     */
+    public Map<Long, String> getNames() {
+        return Collections.unmodifiableMap(snapshot.names);
+    }
+
+    @Scheduled(initialDelay = 0, fixedDelayString = "${auth.permissions.reload-interval-ms:60000}")
+    public synchronized void reload() {
+        Map<Long, String> names = new TreeMap<>();
+        for (Permission permission : permissionRepository.findAll()) {
+            names.put(permission.getId(), permission.getPermission());
+        }
+        Map<String, List<Long>> grants = new HashMap<>();
+        for (PermissionGrant grant : permissionRepository.findAllGrants()) {
+            grants.computeIfAbsent(grant.getUsername(), username -> new ArrayList<>()).add(grant.getPermissionId());
+        }
+        Map<String, PermissionSet> byUsername = new HashMap<>(grants.size() * 4 / 3 + 1);
+        grants.forEach((username, ids) -> byUsername.put(username, PermissionSet.of(ids)));
+        snapshot = new Snapshot(byUsername, names);
+    }
+
+    public synchronized void grant(String username, Permission permission) {
+        Map<Long, String> names = snapshot.names;
+        if (!permission.getPermission().equals(names.get(permission.getId()))) {
+            names = new TreeMap<>(names);
+            names.put(permission.getId(), permission.getPermission());
+        }
+        update(username, permissions -> permissions.with(permission.getId()), names);
+    }
+
+    public synchronized void revoke(String username, long permissionId) {
+        update(username, permissions -> permissions.without(permissionId), snapshot.names);
+    }
+
+    /**
+     * Moves the permissions of a user whose username changed.
+     */
+    public synchronized void rename(String oldUsername, String newUsername) {
+        PermissionSet permissions = permissionsOf(oldUsername);
+        if (permissions.isEmpty() || oldUsername.equals(newUsername)) {
+            return;
+        }
+        Map<String, PermissionSet> byUsername = new HashMap<>(snapshot.byUsername);
+        byUsername.remove(oldUsername);
+        byUsername.put(newUsername, permissions);
+        snapshot = new Snapshot(byUsername, snapshot.names);
+    }
+
+    /**
+     * Drops a deleted user, so a new account registered under the same username starts without permissions.
+     */
+    public synchronized void remove(String username) {
+        update(username, permissions -> PermissionSet.EMPTY, snapshot.names);
+    }
+
+    private void update(String username, UnaryOperator<PermissionSet> change, Map<Long, String> names) {
+        PermissionSet current = permissionsOf(username);
+        PermissionSet updated = change.apply(current);
+        if (updated.equals(current) && names == snapshot.names) {
+            return;
+        }
+        Map<String, PermissionSet> byUsername = new HashMap<>(snapshot.byUsername);
+        if (updated.isEmpty()) {
+            byUsername.remove(username);
+        } else {
+            byUsername.put(username, updated);
+        }
+        snapshot = new Snapshot(byUsername, names);
+    }
+
+    private static final class Snapshot {
+
+        static final Snapshot EMPTY = new Snapshot(Collections.emptyMap(), Collections.emptyMap());
+
+        final Map<String, PermissionSet> byUsername;
+        final Map<Long, String> names;
+
+        // Neither map is modified once it is part of a snapshot
+        Snapshot(Map<String, PermissionSet> byUsername, Map<Long, String> names) {
+            this.byUsername = byUsername;
+            this.names = names;
+        }
+    }
+}
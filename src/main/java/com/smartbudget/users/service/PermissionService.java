@@ -0,0 +1,73 @@
+package com.smartbudget.users.service;
+
+import com.smartbudget.users.model.Permission;
+import com.smartbudget.users.model.User;
+import com.smartbudget.users.repository.PermissionRepository;
+import com.smartbudget.users.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Edits the user-permission association and applies each committed edit to the {@link PermissionIndex}.
+ */
+@Service
+public class PermissionService {
+
+    private final UserRepository userRepository;
+    private final PermissionRepository permissionRepository;
+    private final PermissionIndex permissionIndex;
+    private final TransactionTemplate transactionTemplate;
+
+    @Autowired
+    public PermissionService(UserRepository userRepository, PermissionRepository permissionRepository,
+                             PermissionIndex permissionIndex, TransactionTemplate transactionTemplate) {
+        this.userRepository = userRepository;
+        this.permissionRepository = permissionRepository;
+        this.permissionIndex = permissionIndex;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    /**
+     * Grants the permission, creating it if it does not exist yet. Tokens issued from now on carry it.
+     *
+     * @return {@code false} if there is no such user
+     */
+    public boolean grant(String username, String permissionName) {
+        // The index is only updated after the commit, so it never shows a grant that was rolled back
+        Permission permission = transactionTemplate.execute(status -> {
+            User user = userRepository.findByUsername(username);
+            if (user == null) {
+                return null;
+            }
+            Permission granted = permissionRepository.findByPermission(permissionName);
+            if (granted == null) {
+                granted = new Permission();
+                granted.setPermission(permissionName);
+                granted = permissionRepository.save(granted);
+            }
+            user.getPermissions().add(granted);
+            return granted;
+        });
+        if (permission == null) {
+            return false;
+        }
+        permissionIndex.grant(username, permission);
+        return true;
+    }
+
+    public void revoke(String username, String permissionName) {
+        Long permissionId = transactionTemplate.execute(status -> {
+            User user = userRepository.findByUsername(username);
+            Permission permission = permissionRepository.findByPermission(permissionName);
+            if (user == null || permission == null) {
+                return null;
+            }
+            user.getPermissions().removeIf(granted -> granted.getId().equals(permission.getId()));
+            return permission.getId();
+        });
+        if (permissionId != null) {
+            permissionIndex.revoke(username, permissionId);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.smartbudget.users.service;
+
+import com.smartbudget.users.security.JwtTokenProvider;
+import com.smartbudget.users.security.RefreshTokenStore;
+import com.smartbudget.users.security.VerifiedToken;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Issues single-use refresh tokens and rotates them through the {@link RefreshTokenStore}.
+ */
+@Service
+public class RefreshTokenService {
+
+    private static final Logger log = LoggerFactory.getLogger(RefreshTokenService.class);
+
+    private static final long REFRESH_TOKEN_VALIDITY_SECONDS = 86400; // 1 day expiration
+
+    private final JwtTokenProvider jwtTokenProvider;
+    private final RefreshTokenStore refreshTokenStore;
+
+    @Autowired
+    public RefreshTokenService(JwtTokenProvider jwtTokenProvider, RefreshTokenStore refreshTokenStore) {
+        this.jwtTokenProvider = jwtTokenProvider;
+        this.refreshTokenStore = refreshTokenStore;
+    }
+
+    /**
+     * Starts a new family, e.g. on login, and returns its first refresh token.
+     */
+    public String issue(String username) {
+        String familyId = UUID.randomUUID().toString();
+        String tokenId = JwtTokenProvider.newTokenId();
+        refreshTokenStore.create(familyId, username, tokenId, expiresAt());
+        return jwtTokenProvider.generateRefreshToken(username, familyId, tokenId, REFRESH_TOKEN_VALIDITY_SECONDS);
+    }
+
+    /**
+     * Exchanges a verified refresh token for the next one of its family. The next token expires with the family, one
+     * day after login, so refreshing does not extend the session.
+     *
+     * @return the new refresh token, or {@code null} if the presented one may not be used
+     */
+    public String rotate(VerifiedToken refreshToken) {
+        if (!refreshToken.isRefreshToken() || refreshToken.getTokenId() == null) {
+            return null;
+        }
+        long remainingSeconds = Duration.between(Instant.now(), refreshToken.getExpiresAt()).getSeconds();
+        if (remainingSeconds <= 0) {
+            return null;
+        }
+        String nextTokenId = JwtTokenProvider.newTokenId();
+        RefreshTokenStore.Rotation rotation = refreshTokenStore.rotate(refreshToken.getFamilyId(),
+                refreshToken.getTokenId(), nextTokenId);
+        if (rotation == RefreshTokenStore.Rotation.REUSED) {
+            log.warn("Refresh token reuse detected for {}, revoked family {}", refreshToken.getSubject(), refreshToken.getFamilyId());
+        }
+        if (rotation != RefreshTokenStore.Rotation.ROTATED) {
+            return null;
+        }
+        return jwtTokenProvider.generateRefreshToken(refreshToken.getSubject(), refreshToken.getFamilyId(),
+                nextTokenId, remainingSeconds);
+    }
+
+    public boolean revoke(VerifiedToken refreshToken) {
+        return refreshToken.isRefreshToken() && refreshTokenStore.revoke(refreshToken.getFamilyId());
+    }
+
+    /**
+     * Ends every session of the user; their refresh tokens are rejected from now on.
+     */
+    public int revokeAll(String username) {
+        return refreshTokenStore.revokeAll(username);
+    }
+
+    private static Instant expiresAt() {
+        return Instant.now().plusSeconds(REFRESH_TOKEN_VALIDITY_SECONDS);
+    }
+}
@@ -0,0 +1,164 @@
+package com.smartbudget.users.service;
+
+import com.smartbudget.users.dto.TokenIntrospection;
+import com.smartbudget.users.security.JwtTokenProvider;
+import com.smartbudget.users.security.PermissionSet;
+import com.smartbudget.users.security.TokenVerification;
+import com.smartbudget.users.security.VerifiedToken;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Verifies batches of tokens for downstream services. A batch is split into chunks that are verified in parallel on
+ * a pool of one thread per core, the calling thread taking the first chunk. When the pool is busy a chunk runs on
+ * the caller instead of waiting, so under load a batch degrades to sequential verification, never to a rejection.
+ * <p>
+ * Verification goes through {@link JwtTokenProvider#verify}, so a token a gateway asks about repeatedly only costs
+ * a cache lookup and the revocation check.
+ */
+@Service
+public class TokenIntrospectionService implements DisposableBean {
+
+    // Below this many tokens per chunk the hand-off costs more than the verification it moves
+    private static final int MIN_TOKENS_PER_TASK = 8;
+
+    private final JwtTokenProvider jwtTokenProvider;
+    private final PermissionIndex permissionIndex;
+    private final int maxTokens;
+    private final long maxCacheSeconds;
+    private final int parallelism;
+    private final ThreadPoolExecutor executor;
+
+    @Autowired
+    public TokenIntrospectionService(JwtTokenProvider jwtTokenProvider, PermissionIndex permissionIndex,
+                                     @Value("${auth.introspection.max-tokens:100}") int maxTokens,
+                                     @Value("${auth.introspection.max-cache-seconds:30}") long maxCacheSeconds,
+                                     @Value("${auth.introspection.threads:0}") int threads) {
+        this.jwtTokenProvider = jwtTokenProvider;
+        this.permissionIndex = permissionIndex;
+        this.maxTokens = maxTokens;
+        this.maxCacheSeconds = maxCacheSeconds;
+        this.parallelism = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(parallelism, parallelism, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(parallelism * 4),
+                task -> {
+                    Thread thread = new Thread(task, "token-introspection-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    public int getMaxTokens() {
+        return maxTokens;
+    }
+
+    /**
+     * @return one result per token, in the order of {@code tokens}
+     */
+    public List<TokenIntrospection> introspect(List<String> tokens) {
+        TokenIntrospection[] results = new TokenIntrospection[tokens.size()];
+        // One snapshot for the whole batch
+        Map<Long, String> names = permissionIndex.getNames();
+        int tasks = Math.min(parallelism, (tokens.size() + MIN_TOKENS_PER_TASK - 1) / MIN_TOKENS_PER_TASK);
+        if (tasks <= 1) {
+            introspect(tokens, 0, tokens.size(), names, results);
+            return Arrays.asList(results);
+        }
+        int chunkSize = (tokens.size() + tasks - 1) / tasks;
+        List<Future<?>> chunks = new ArrayList<>(tasks - 1);
+        for (int from = chunkSize; from < tokens.size(); from += chunkSize) {
+            int start = from;
+            int end = Math.min(from + chunkSize, tokens.size());
+            chunks.add(executor.submit(() -> introspect(tokens, start, end, names, results)));
+        }
+        introspect(tokens, 0, chunkSize, names, results);
+        // Future.get also makes the chunks' writes to results visible here
+        chunks.forEach(TokenIntrospectionService::await);
+        return Arrays.asList(results);
+    }
+
+    /**
+     * How long the results may be reused: until the first active token expires, at most {@code max-cache-seconds}
+     * so that a revocation reaches the caller in bounded time. Inactive results never become active again.
+     */
+    public long cacheSeconds(List<TokenIntrospection> results) {
+        long nowSeconds = System.currentTimeMillis() / 1000;
+        long seconds = maxCacheSeconds;
+        for (TokenIntrospection result : results) {
+            if (result.isActive()) {
+                seconds = Math.min(seconds, result.getExpiresAt().getEpochSecond() - nowSeconds);
+            }
+        }
+        return Math.max(seconds, 0);
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdown();
+    }
+
+    private void introspect(List<String> tokens, int from, int to, Map<Long, String> names,
+                            TokenIntrospection[] results) {
+        for (int i = from; i < to; i++) {
+            results[i] = introspect(tokens.get(i), names);
+        }
+    }
+
+    private TokenIntrospection introspect(String token, Map<Long, String> names) {
+        TokenVerification verification = jwtTokenProvider.verify(token);
+        if (!verification.isValid()) {
+            return TokenIntrospection.inactive(verification.getFailure().name().toLowerCase(Locale.ROOT));
+        }
+        VerifiedToken verified = verification.getToken();
+        return TokenIntrospection.active(verified.isRefreshToken() ? "refresh" : "access", verified.getSubject(),
+                verified.getTokenId(), verified.getIssuedAt(), verified.getExpiresAt(),
+                permissionNames(verified.getPermissions(), names));
+    }
+
+    private static List<String> permissionNames(PermissionSet permissions, Map<Long, String> names) {
+        if (permissions.isEmpty()) {
+            return Collections.emptyList();
+        }
+        long[] ids = permissions.toIds();
+        List<String> result = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            // A permission created on another node since the last reload has no name here yet
+            String name = names.get(id);
+            if (name != null) {
+                result.add(name);
+            }
+        }
+        return result;
+    }
+
+    private static void await(Future<?> chunk) {
+        try {
+            chunk.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for token introspection", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Token introspection failed", e.getCause());
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.smartbudget.users.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.smartbudget.users.repository.UserCredentials;
+import com.smartbudget.users.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Near cache of {@link UserCredentials} in front of {@link UserRepository}.
+ * <p>
+ * Entries are stored once by id; email and username only map to the id and are re-checked against the entry on
+ * every hit. Evicting the id is therefore enough to invalidate every key a user was ever looked up by.
+ * <p>
+ * Emails that matched no user are remembered for a short time, so repeated attempts with unknown emails do not reach
+ * the database. Whatever creates a user or changes an email has to call {@link #evictMissing}; on other nodes a
+ * stale miss lasts at most {@code negative-ttl-seconds}.
+ */
+@Component
+public class UserCache implements MeterBinder {
+
+    private final UserRepository userRepository;
+
+    private final LoadingCache<Long, UserCredentials> byId;
+    private final Cache<String, Long> idByEmail;
+    private final Cache<String, Long> idByUsername;
+    private final Cache<String, Boolean> missingEmails;
+
+    @Autowired
+    public UserCache(UserRepository userRepository,
+                     @Value("${auth.user-cache.max-size:100000}") long maxSize,
+                     @Value("${auth.user-cache.ttl-seconds:60}") long ttlSeconds,
+                     @Value("${auth.user-cache.negative-ttl-seconds:10}") long negativeTtlSeconds) {
+        this.userRepository = userRepository;
+        Duration ttl = Duration.ofSeconds(ttlSeconds);
+        this.byId = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build(userRepository::findCredentialsById);
+        this.idByEmail = Caffeine.newBuilder().maximumSize(maxSize).expireAfterWrite(ttl).recordStats().build();
+        this.idByUsername = Caffeine.newBuilder().maximumSize(maxSize).expireAfterWrite(ttl).recordStats().build();
+        this.missingEmails = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(negativeTtlSeconds))
+                .recordStats()
+                .build();
+    }
+
+    public UserCredentials findById(Long id) {
+        return byId.get(id);
+    }
+
+    public UserCredentials findByEmail(String email) {
+        if (email == null || missingEmails.getIfPresent(email) != null) {
+            return null;
+        }
+        UserCredentials user = find(email, idByEmail, UserCredentials::getEmail, userRepository::findCredentialsByEmail);
+        if (user == null) {
+            missingEmails.put(email, Boolean.TRUE);
+        }
+        return user;
+    }
+
+    public UserCredentials findByUsername(String username) {
+        return find(username, idByUsername, UserCredentials::getUsername, userRepository::findCredentialsByUsername);
+    }
+
+    public void evict(Long id) {
+        if (id != null) {
+            byId.invalidate(id);
+        }
+    }
+
+    /**
+     * Forgets that no user had this email, after a user was created with it or changed to it.
+     */
+    public void evictMissing(String email) {
+        if (email != null) {
+            missingEmails.invalidate(email);
+        }
+    }
+
+    public Map<String, CacheStats> getStats() {
+        Map<String, CacheStats> stats = new LinkedHashMap<>();
+        stats.put("id", byId.stats());
+        stats.put("email", idByEmail.stats());
+        stats.put("username", idByUsername.stats());
+        stats.put("missing-email", missingEmails.stats());
+        return stats;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, byId, "user-credentials");
+        CaffeineCacheMetrics.monitor(registry, idByEmail, "user-id-by-email");
+        CaffeineCacheMetrics.monitor(registry, idByUsername, "user-id-by-username");
+        CaffeineCacheMetrics.monitor(registry, missingEmails, "user-missing-email");
+    }
+
+    private UserCredentials find(String key, Cache<String, Long> index, Function<UserCredentials, String> keyOf,
+                                 Function<String, UserCredentials> loader) {
+        if (key == null) {
+            return null;
+        }
+        Long id = index.getIfPresent(key);
+        if (id != null) {
+            UserCredentials cached = byId.get(id);
+            if (cached != null && key.equals(keyOf.apply(cached))) {
+                return cached;
+            }
+            // The user was deleted or changed this key since it was indexed
+            index.invalidate(key);
+        }
+        UserCredentials loaded = loader.apply(key);
+        if (loaded != null) {
+            byId.put(loaded.getId(), loaded);
+            if (loaded.getEmail() != null) {
+                idByEmail.put(loaded.getEmail(), loaded.getId());
+            }
+            if (loaded.getUsername() != null) {
+                idByUsername.put(loaded.getUsername(), loaded.getId());
+            }
+        }
+        return loaded;
+    }
+}
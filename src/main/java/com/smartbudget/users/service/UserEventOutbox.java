@@ -0,0 +1,56 @@
+package com.smartbudget.users.service;
+
+import com.smartbudget.users.dto.UserEvent;
+import com.smartbudget.users.dto.UserRecord;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Writes user events to the outbox table in the caller's transaction, so an event exists exactly when the change it
+ * describes was committed. {@link UserEventRelay} publishes them afterwards.
+ */
+@Component
+public class UserEventOutbox {
+
+    private static final String INSERT_EVENT = "INSERT INTO users_auth.user_events " +
+            "(event_type, user_id, username, email, occurred_at) VALUES (?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public UserEventOutbox(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Must run inside the transaction that makes the change; outside of one it fails instead of writing an event
+     * that could outlive a rolled back change.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void append(UserEvent.Type type, Long userId, String username, String email) {
+        jdbcTemplate.update(INSERT_EVENT, type.name(), userId, username, email, Timestamp.from(Instant.now()));
+    }
+
+    /**
+     * One event per user in a single JDBC batch, for bulk changes; same transaction rules as
+     * {@link #append(UserEvent.Type, Long, String, String)}.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void appendAll(UserEvent.Type type, List<UserRecord> users) {
+        Timestamp occurredAt = Timestamp.from(Instant.now());
+        jdbcTemplate.batchUpdate(INSERT_EVENT, users, users.size(), (ps, user) -> {
+            ps.setString(1, type.name());
+            ps.setLong(2, user.getId());
+            ps.setString(3, user.getUsername());
+            ps.setString(4, user.getEmail());
+            ps.setTimestamp(5, occurredAt);
+        });
+    }
+}
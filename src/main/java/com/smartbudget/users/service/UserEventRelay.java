@@ -0,0 +1,195 @@
+package com.smartbudget.users.service;
+
+import com.smartbudget.users.dto.UserEvent;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Drains the user event outbox to the {@link UserEventSink} in batches of {@code batch-size}, oldest first. A batch
+ * is deleted only after the sink accepted it, in the transaction that locked it, so delivery is at-least-once: a
+ * failed or interrupted publish leaves the batch in place and it is sent again on the next poll.
+ * <p>
+ * The rows stay locked while the sink publishes them, so relays on other instances wait instead of sending the same
+ * batch again or overtaking it, and events keep their order across instances.
+ * <p>
+ * There is no default sink: a deployment that forgot {@code auth.outbox.sink} fails at startup instead of writing
+ * its events to a local file nobody reads.
+ */
+@Component
+public class UserEventRelay implements MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(UserEventRelay.class);
+
+    private static final String SELECT_BATCH = "SELECT event_id, event_type, user_id, username, email, occurred_at " +
+            "FROM users_auth.user_events ORDER BY event_id LIMIT ? FOR UPDATE";
+    private static final String DELETE_EVENT = "DELETE FROM users_auth.user_events WHERE event_id = ?";
+
+    private static final RowMapper<UserEvent> EVENT_MAPPER = (rs, rowNum) -> new UserEvent(
+            rs.getLong("event_id"),
+            UserEvent.Type.valueOf(rs.getString("event_type")),
+            rs.getLong("user_id"),
+            rs.getString("username"),
+            rs.getString("email"),
+            rs.getTimestamp("occurred_at").toInstant());
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final UserEventSink sink;
+    private final int batchSize;
+
+    private final LongAdder published = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    // Time of the oldest event seen but not yet published, 0 when the outbox was empty at the last poll
+    private volatile long oldestPendingMillis;
+    private volatile Meters meters;
+
+    @Autowired
+    public UserEventRelay(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                          ObjectProvider<UserEventSink> sinks, @Value("${auth.outbox.batch-size:500}") int batchSize) {
+        this(jdbcTemplate, transactionTemplate, requireSink(sinks), batchSize);
+    }
+
+    public UserEventRelay(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate, UserEventSink sink,
+                          int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.sink = sink;
+        this.batchSize = batchSize;
+    }
+
+    private static UserEventSink requireSink(ObjectProvider<UserEventSink> sinks) {
+        UserEventSink sink = sinks.getIfUnique();
+        if (sink == null) {
+            throw new IllegalStateException("No user event sink configured: set auth.outbox.sink to file or memory,"
+                    + " or provide exactly one UserEventSink bean");
+        }
+        return sink;
+    }
+
+    /**
+     * Publishes batches until the outbox is empty or the sink fails. An empty outbox costs one index scan per poll.
+     */
+    @Scheduled(fixedDelayString = "${auth.outbox.poll-interval-ms:500}")
+    public void relay() {
+        int count;
+        do {
+            count = relayBatch();
+        } while (count == batchSize);
+    }
+
+    /**
+     * How long the oldest unpublished event has been waiting, as of the last poll; grows while the sink is failing.
+     */
+    public long getLagMillis() {
+        long oldest = oldestPendingMillis;
+        return oldest == 0 ? 0 : Math.max(System.currentTimeMillis() - oldest, 0);
+    }
+
+    public long getPublishedCount() {
+        return published.sum();
+    }
+
+    public long getFailureCount() {
+        return failures.sum();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        TimeGauge.builder("auth.outbox.lag", this, TimeUnit.MILLISECONDS, UserEventRelay::getLagMillis)
+                .description("Age of the oldest user event not yet published")
+                .register(registry);
+        FunctionCounter.builder("auth.outbox.published", published, LongAdder::sum)
+                .description("User events accepted by the sink")
+                .register(registry);
+        FunctionCounter.builder("auth.outbox.failures", failures, LongAdder::sum)
+                .description("Batches the sink failed to publish, to be retried")
+                .register(registry);
+        meters = new Meters(registry);
+    }
+
+    /**
+     * @return the number of events published, 0 if the outbox is empty or publishing failed
+     */
+    private int relayBatch() {
+        List<UserEvent> batch;
+        try {
+            batch = transactionTemplate.execute(status -> {
+                List<UserEvent> events = jdbcTemplate.query(SELECT_BATCH, EVENT_MAPPER, batchSize);
+                if (events.isEmpty()) {
+                    return events;
+                }
+                oldestPendingMillis = events.get(0).getOccurredAt().toEpochMilli();
+                long start = System.nanoTime();
+                sink.publish(events);
+                Meters meters = this.meters;
+                if (meters != null) {
+                    meters.publish.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                }
+                jdbcTemplate.batchUpdate(DELETE_EVENT, events, events.size(),
+                        (ps, event) -> ps.setLong(1, event.getEventId()));
+                return events;
+            });
+        } catch (RuntimeException e) {
+            failures.increment();
+            log.warn("Failed to publish user events, will retry", e);
+            return 0;
+        }
+        if (batch == null || batch.isEmpty()) {
+            oldestPendingMillis = 0;
+            return 0;
+        }
+        published.add(batch.size());
+        recordDelivery(batch);
+        if (batch.size() < batchSize) {
+            oldestPendingMillis = 0;
+        }
+        return batch.size();
+    }
+
+    private void recordDelivery(List<UserEvent> batch) {
+        Meters meters = this.meters;
+        if (meters == null) {
+            return;
+        }
+        Instant now = Instant.now();
+        for (UserEvent event : batch) {
+            meters.delivery.record(Duration.between(event.getOccurredAt(), now));
+        }
+    }
+
+    private static final class Meters {
+
+        final Timer publish;
+        final Timer delivery;
+
+        Meters(MeterRegistry registry) {
+            this.publish = Timer.builder("auth.outbox.publish")
+                    .description("Time the sink took to accept one batch")
+                    .publishPercentileHistogram()
+                    .register(registry);
+            this.delivery = Timer.builder("auth.outbox.delivery")
+                    .description("Time from a user change to the commit of its published event")
+                    .publishPercentileHistogram()
+                    .register(registry);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.smartbudget.users.service;
+
+import com.smartbudget.users.dto.UserEvent;
+
+import java.util.List;
+
+/**
+ * Where {@link UserEventRelay} delivers user events: a file or memory here, a message broker adapter elsewhere.
+ */
+public interface UserEventSink {
+
+    /**
+     * Delivers a batch in order. Returning means every event was durably accepted and is deleted from the outbox;
+     * throwing makes the relay retry the whole batch later, so events delivered before the failure are sent again.
+     */
+    void publish(List<UserEvent> events);
+}
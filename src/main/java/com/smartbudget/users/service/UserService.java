@@ -1,31 +1,74 @@
 package com.smartbudget.users.service;
 
 
+import com.smartbudget.users.dto.UserEvent;
+import com.smartbudget.users.dto.UserFilter;
+import com.smartbudget.users.dto.UserPage;
+import com.smartbudget.users.dto.UserSummary;
 import com.smartbudget.users.model.User;
+import com.smartbudget.users.repository.UserCredentials;
 import com.smartbudget.users.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
 
+/**
+ * User administration. Each change commits together with its {@link UserEventOutbox} event; passwords are hashed
+ * before the transaction starts, so hashing holds no connection, and caches are only updated after the commit.
+ * Updating or deleting a user also ends their sessions in the same transaction.
+ */
 @Service
 public class UserService {
+    public static final int MAX_PAGE_SIZE = 500;
+
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final UserCache userCache;
+    private final PermissionIndex permissionIndex;
+    private final UserEventOutbox userEventOutbox;
+    private final RefreshTokenService refreshTokenService;
+    private final TransactionTemplate transactionTemplate;
 
     @Autowired
-    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder) {
+    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder, UserCache userCache,
+                       PermissionIndex permissionIndex, UserEventOutbox userEventOutbox,
+                       RefreshTokenService refreshTokenService, TransactionTemplate transactionTemplate) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
+        this.userCache = userCache;
+        this.permissionIndex = permissionIndex;
+        this.userEventOutbox = userEventOutbox;
+        this.refreshTokenService = refreshTokenService;
+        this.transactionTemplate = transactionTemplate;
     }
 
+    /**
+     * Loads every user at once; use {@link UserTransferService#exportUsers} for large tenants.
+     */
     public List<User> getAllUsers() {
         return userRepository.findAll();
     }
 
+    /**
+     * One page of users, ordered by id. {@code after} is the {@link UserPage#getNextCursor()} of the previous page.
+     */
+    public UserPage listUsers(UserFilter filter, Long after, int limit) {
+        int size = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        // One extra row tells whether there is a next page without a count query
+        List<UserSummary> users = userRepository.findSummaries(filter, after, size + 1);
+        if (users.size() <= size) {
+            return new UserPage(users, null);
+        }
+        List<UserSummary> page = users.subList(0, size);
+        return new UserPage(page, page.get(size - 1).getId());
+    }
+
     public User getUserById(Long id) {
         return userRepository.findById(id).orElseThrow(() -> new RuntimeException("User not found"));
     }
@@ -33,19 +76,52 @@ public class UserService {
     public User createUser(User user) {
         user.setPassword(passwordEncoder.encode(user.getPassword()));
         user.setCreatedAt(LocalDateTime.now());
-        return userRepository.save(user);
+        User saved = transactionTemplate.execute(status -> {
+            User created = userRepository.save(user);
+            userEventOutbox.append(UserEvent.Type.CREATED, created.getId(), created.getUsername(), created.getEmail());
+            return created;
+        });
+        userCache.evict(saved.getId());
+        userCache.evictMissing(saved.getEmail());
+        return saved;
     }
 
     public User updateUser(Long id, User updatedUser) {
-        return userRepository.findById(id).map(user -> {
+        String encodedPassword = passwordEncoder.encode(updatedUser.getPassword());
+        AtomicReference<String> oldUsername = new AtomicReference<>();
+        User saved = transactionTemplate.execute(status -> userRepository.findById(id).map(user -> {
+            oldUsername.set(user.getUsername());
             user.setUsername(updatedUser.getUsername());
-            user.setPassword(passwordEncoder.encode(updatedUser.getPassword()));
+            user.setPassword(encodedPassword);
             user.setEmail(updatedUser.getEmail());
-            return userRepository.save(user);
-        }).orElseThrow(() -> new RuntimeException("User not found"));
+            User updated = userRepository.save(user);
+            userEventOutbox.append(UserEvent.Type.UPDATED, id, updated.getUsername(), updated.getEmail());
+            // Every update sets the password, and refresh tokens name the old username
+            refreshTokenService.revokeAll(oldUsername.get());
+            return updated;
+        }).orElse(null));
+        if (saved == null) {
+            throw new RuntimeException("User not found");
+        }
+        userCache.evict(id);
+        userCache.evictMissing(saved.getEmail());
+        permissionIndex.rename(oldUsername.get(), saved.getUsername());
+        return saved;
     }
 
     public void deleteUser(Long id) {
-        userRepository.deleteById(id);
+        UserCredentials user = userCache.findById(id);
+        transactionTemplate.executeWithoutResult(status -> {
+            userRepository.deleteById(id);
+            userEventOutbox.append(UserEvent.Type.DELETED, id, user != null ? user.getUsername() : null,
+                    user != null ? user.getEmail() : null);
+            if (user != null) {
+                refreshTokenService.revokeAll(user.getUsername());
+            }
+        });
+        userCache.evict(id);
+        if (user != null) {
+            permissionIndex.remove(user.getUsername());
+        }
     }
 }
@@ -0,0 +1,243 @@
+package com.smartbudget.users.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.smartbudget.users.dto.ImportResponse;
+import com.smartbudget.users.dto.UserEvent;
+import com.smartbudget.users.dto.UserRecord;
+import com.smartbudget.users.repository.UserRepository;
+import com.smartbudget.users.security.OffloadingPasswordEncoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Bulk export and import of users as NDJSON, one {@link UserRecord} per line. Neither direction holds more than one
+ * batch of users in memory, so both work for tenants with millions of users.
+ */
+@Service
+public class UserTransferService {
+
+    private static final Logger log = LoggerFactory.getLogger(UserTransferService.class);
+
+    // One multi-row statement per batch. Duplicates are skipped per row instead of failing the whole batch, and
+    // only the rows actually inserted come back, which counts them exactly and names the users to publish events
+    // for. Ids come from the sequence JPA uses
+    private static final String INSERT_USERS = "INSERT INTO users_auth.users "
+            + "(user_id, username, password, email, active, created_at, last_login) VALUES ";
+    private static final String USER_ROW = "(nextval('users_auth.users_seq'), ?, ?, ?, ?, ?, ?)";
+    private static final String ON_CONFLICT = " ON CONFLICT DO NOTHING RETURNING user_id, username, email, active";
+    private static final int PARAMETERS_PER_ROW = 6;
+    // PostgreSQL binds at most 32767 parameters per statement
+    private static final int MAX_BATCH_SIZE = Short.MAX_VALUE / PARAMETERS_PER_ROW;
+
+    private static final int FLUSH_EVERY = 1000;
+    private static final int MAX_ERRORS = 100;
+
+    private final UserRepository userRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final PasswordEncoder passwordEncoder;
+    private final UserCache userCache;
+    private final ObjectMapper objectMapper;
+    private final UserEventOutbox userEventOutbox;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+
+    @Autowired
+    public UserTransferService(UserRepository userRepository, JdbcTemplate jdbcTemplate,
+                               PasswordEncoder passwordEncoder, UserCache userCache, ObjectMapper objectMapper,
+                               UserEventOutbox userEventOutbox, TransactionTemplate transactionTemplate,
+                               @Value("${auth.import.batch-size:1000}") int batchSize) {
+        if (batchSize < 1 || batchSize > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("auth.import.batch-size must be between 1 and " + MAX_BATCH_SIZE);
+        }
+        this.userRepository = userRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.passwordEncoder = passwordEncoder;
+        this.userCache = userCache;
+        this.objectMapper = objectMapper;
+        this.userEventOutbox = userEventOutbox;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Writes every user to the stream, ordered by id, from a forward-only cursor.
+     *
+     * @return the number of users written
+     */
+    @Transactional(readOnly = true)
+    public long exportUsers(OutputStream out) throws IOException {
+        long startedAt = System.nanoTime();
+        long count = 0;
+        // Writes straight into the response stream; FLUSH_AFTER_WRITE_VALUE would flush on every row
+        ObjectWriter writer = objectMapper.writerFor(UserRecord.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        try (Stream<UserRecord> users = userRepository.streamAllRecords();
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+            for (UserRecord user : (Iterable<UserRecord>) users::iterator) {
+                writer.writeValue(generator, user);
+                generator.writeRaw('\n');
+                // Keeps the client receiving while the cursor is still open
+                if (++count % FLUSH_EVERY == 0) {
+                    generator.flush();
+                }
+            }
+        }
+        out.flush();
+        long elapsedMillis = (System.nanoTime() - startedAt) / 1_000_000;
+        log.info("Exported {} users in {} ms ({} rows/s)", count, elapsedMillis, rowsPerSecond(count, elapsedMillis));
+        return count;
+    }
+
+    /**
+     * Inserts the users read from the stream in batches of one statement each; each batch commits on its own, together
+     * with the {@link UserEvent.Type#CREATED} events of its users. Users whose username or email already exists are
+     * skipped, lines without username, email or password are rejected.
+     */
+    public ImportResponse importUsers(InputStream in) throws IOException {
+        long startedAt = System.nanoTime();
+        ObjectReader reader = objectMapper.readerFor(UserRecord.class);
+        BufferedReader lines = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        List<String> errors = new ArrayList<>();
+        long[] counts = new long[3]; // inserted, duplicates, rejected
+        List<UserRecord> batch = new ArrayList<>(batchSize);
+        long lineNumber = 0;
+        String line;
+        while ((line = lines.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            String error;
+            try {
+                UserRecord user = reader.readValue(line);
+                error = validate(user);
+                if (error == null) {
+                    batch.add(user);
+                }
+            } catch (JsonProcessingException e) {
+                error = "invalid JSON";
+            }
+            if (error != null) {
+                counts[2]++;
+                if (errors.size() < MAX_ERRORS) {
+                    errors.add("line " + lineNumber + ": " + error);
+                }
+            }
+            if (batch.size() >= batchSize) {
+                insert(batch, counts);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            insert(batch, counts);
+        }
+        long elapsedMillis = (System.nanoTime() - startedAt) / 1_000_000;
+        ImportResponse response = new ImportResponse(counts[0], counts[1], counts[2], errors, elapsedMillis);
+        log.info("Imported {} users in {} ms ({} rows/s), {} duplicates, {} rejected", counts[0], elapsedMillis,
+                Math.round(response.getRowsPerSecond()), counts[1], counts[2]);
+        return response;
+    }
+
+    private static String validate(UserRecord user) {
+        if (user.getUsername() == null || user.getUsername().isBlank()) {
+            return "username is required";
+        }
+        if (user.getEmail() == null || user.getEmail().isBlank()) {
+            return "email is required";
+        }
+        if (user.getPassword() == null && user.getPasswordHash() == null) {
+            return "password or passwordHash is required";
+        }
+        return null;
+    }
+
+    private void insert(List<UserRecord> batch, long[] counts) {
+        hashPasswords(batch);
+        LocalDateTime now = LocalDateTime.now();
+        StringBuilder sql = new StringBuilder(INSERT_USERS.length() + batch.size() * (USER_ROW.length() + 2)
+                + ON_CONFLICT.length()).append(INSERT_USERS);
+        for (int i = 0; i < batch.size(); i++) {
+            sql.append(i == 0 ? "" : ", ").append(USER_ROW);
+        }
+        sql.append(ON_CONFLICT);
+        List<UserRecord> inserted = transactionTemplate.execute(status -> {
+            List<UserRecord> created = jdbcTemplate.query(sql.toString(), ps -> {
+                int index = 0;
+                for (UserRecord user : batch) {
+                    ps.setString(++index, user.getUsername());
+                    ps.setString(++index, user.getPasswordHash());
+                    ps.setString(++index, user.getEmail());
+                    ps.setBoolean(++index, user.getActive() == null || user.getActive());
+                    LocalDateTime createdAt = user.getCreatedAt() != null ? user.getCreatedAt() : now;
+                    ps.setTimestamp(++index, Timestamp.valueOf(createdAt));
+                    LocalDateTime lastLogin = user.getLastLogin();
+                    ps.setTimestamp(++index, lastLogin != null ? Timestamp.valueOf(lastLogin) : null);
+                }
+            }, (rs, rowNum) -> new UserRecord(rs.getLong(1), rs.getString(2), rs.getString(3), null, rs.getBoolean(4),
+                    null, null));
+            if (!created.isEmpty()) {
+                userEventOutbox.appendAll(UserEvent.Type.CREATED, created);
+            }
+            return created;
+        });
+        // Imported users can log in right away even if their email was just tried on this node
+        batch.forEach(user -> userCache.evictMissing(user.getEmail()));
+        counts[0] += inserted.size();
+        counts[1] += batch.size() - inserted.size();
+    }
+
+    // Hashes are the slow part of an import, so raw passwords go to the hashing pool all at once
+    private void hashPasswords(List<UserRecord> batch) {
+        List<UserRecord> unhashed = new ArrayList<>();
+        List<String> raw = new ArrayList<>();
+        for (UserRecord user : batch) {
+            if (user.getPasswordHash() == null) {
+                unhashed.add(user);
+                raw.add(user.getPassword());
+            }
+        }
+        List<String> hashed;
+        if (passwordEncoder instanceof OffloadingPasswordEncoder) {
+            hashed = ((OffloadingPasswordEncoder) passwordEncoder).encodeAll(raw);
+        } else {
+            hashed = new ArrayList<>(raw.size());
+            for (String password : raw) {
+                hashed.add(passwordEncoder.encode(password));
+            }
+        }
+        for (int i = 0; i < unhashed.size(); i++) {
+            unhashed.get(i).setPasswordHash(hashed.get(i));
+            unhashed.get(i).setPassword(null);
+        }
+    }
+
+    private static long rowsPerSecond(long rows, long elapsedMillis) {
+        return elapsedMillis == 0 ? 0 : rows * 1000 / elapsedMillis;
+    }
+}
@@ -0,0 +1,37 @@
+-- Schema as Hibernate (ddl-auto: update) and the JDBC stores created it, so existing databases are baselined as is
+CREATE TABLE IF NOT EXISTS users_auth.users (
+    user_id    BIGSERIAL PRIMARY KEY,
+    username   VARCHAR(255),
+    password   VARCHAR(255),
+    email      VARCHAR(255),
+    active     BOOLEAN   NOT NULL,
+    created_at TIMESTAMP,
+    last_login TIMESTAMP,
+    CONSTRAINT uk_users_username UNIQUE (username),
+    CONSTRAINT uk_users_email UNIQUE (email)
+);
+
+CREATE TABLE IF NOT EXISTS users_auth.permissions (
+    permission_id BIGSERIAL PRIMARY KEY,
+    permission    VARCHAR(255),
+    CONSTRAINT uk_permissions_permission UNIQUE (permission)
+);
+
+CREATE TABLE IF NOT EXISTS users_auth.user_permissions (
+    user_id       BIGINT NOT NULL REFERENCES users_auth.users (user_id),
+    permission_id BIGINT NOT NULL REFERENCES users_auth.permissions (permission_id),
+    PRIMARY KEY (user_id, permission_id)
+);
+
+CREATE TABLE IF NOT EXISTS users_auth.refresh_token_families (
+    family_id        UUID PRIMARY KEY,
+    subject          VARCHAR(255) NOT NULL,
+    current_token_id UUID         NOT NULL,
+    expires_at       TIMESTAMP    NOT NULL,
+    revoked          BOOLEAN      NOT NULL DEFAULT FALSE
+);
+
+CREATE TABLE IF NOT EXISTS users_auth.revoked_access_tokens (
+    token_id   UUID PRIMARY KEY,
+    expires_at TIMESTAMP NOT NULL
+);
@@ -0,0 +1,11 @@
+-- Keyset pagination of the user listing: each filter column leads, user_id orders within it
+CREATE INDEX IF NOT EXISTS idx_users_active_user_id ON users_auth.users (active, user_id);
+CREATE INDEX IF NOT EXISTS idx_users_created_at_user_id ON users_auth.users (created_at, user_id);
+CREATE INDEX IF NOT EXISTS idx_users_last_login_user_id ON users_auth.users (last_login, user_id);
+
+-- The primary key only serves lookups by user; this one serves the holders of a permission and FK checks on delete
+CREATE INDEX IF NOT EXISTS idx_user_permissions_permission_id ON users_auth.user_permissions (permission_id);
+
+-- Purges and the denylist rebuild filter on expiry
+CREATE INDEX IF NOT EXISTS idx_refresh_token_families_expires_at ON users_auth.refresh_token_families (expires_at);
+CREATE INDEX IF NOT EXISTS idx_revoked_access_tokens_expires_at ON users_auth.revoked_access_tokens (expires_at);
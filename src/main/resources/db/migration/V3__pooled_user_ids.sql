@@ -0,0 +1,6 @@
+-- User ids come from a sequence Hibernate reserves 50 at a time (pooled optimizer), so inserts can be batched.
+-- The sequence starts past every existing id; the column default keeps plain SQL inserts working.
+CREATE SEQUENCE IF NOT EXISTS users_auth.users_seq INCREMENT BY 50;
+SELECT setval('users_auth.users_seq', GREATEST((SELECT MAX(user_id) FROM users_auth.users), 1));
+ALTER TABLE users_auth.users ALTER COLUMN user_id SET DEFAULT nextval('users_auth.users_seq');
+DROP SEQUENCE IF EXISTS users_auth.users_user_id_seq;
@@ -0,0 +1,10 @@
+-- Transactional outbox of user lifecycle events: written in the transaction that changes the user, drained in
+-- event_id order by UserEventRelay and deleted once the sink has accepted them
+CREATE TABLE IF NOT EXISTS users_auth.user_events (
+    event_id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    event_type VARCHAR(16) NOT NULL,
+    user_id BIGINT NOT NULL,
+    username VARCHAR(255),
+    email VARCHAR(255),
+    occurred_at TIMESTAMP NOT NULL
+);
@@ -0,0 +1,43 @@
+-- V1 only creates the unique constraints on new databases: on a baselined one the tables already existed without
+-- them. Duplicates have to be resolved by hand first, so the migration stops and names them instead of guessing.
+DO $$
+DECLARE
+    duplicates TEXT;
+BEGIN
+    SELECT string_agg(username, ', ') INTO duplicates FROM (
+        SELECT username FROM users_auth.users WHERE username IS NOT NULL
+        GROUP BY username HAVING COUNT(*) > 1 ORDER BY username LIMIT 20) d;
+    IF duplicates IS NOT NULL THEN
+        RAISE EXCEPTION 'users_auth.users has duplicate usernames (%); resolve them before adding uk_users_username',
+            duplicates;
+    END IF;
+
+    SELECT string_agg(email, ', ') INTO duplicates FROM (
+        SELECT email FROM users_auth.users WHERE email IS NOT NULL
+        GROUP BY email HAVING COUNT(*) > 1 ORDER BY email LIMIT 20) d;
+    IF duplicates IS NOT NULL THEN
+        RAISE EXCEPTION 'users_auth.users has duplicate emails (%); resolve them before adding uk_users_email',
+            duplicates;
+    END IF;
+
+    SELECT string_agg(permission, ', ') INTO duplicates FROM (
+        SELECT permission FROM users_auth.permissions WHERE permission IS NOT NULL
+        GROUP BY permission HAVING COUNT(*) > 1 ORDER BY permission LIMIT 20) d;
+    IF duplicates IS NOT NULL THEN
+        RAISE EXCEPTION 'users_auth.permissions has duplicate names (%); resolve them before adding the constraint',
+            duplicates;
+    END IF;
+
+    IF NOT EXISTS (SELECT 1 FROM pg_constraint
+                   WHERE conrelid = 'users_auth.users'::regclass AND conname = 'uk_users_username') THEN
+        ALTER TABLE users_auth.users ADD CONSTRAINT uk_users_username UNIQUE (username);
+    END IF;
+    IF NOT EXISTS (SELECT 1 FROM pg_constraint
+                   WHERE conrelid = 'users_auth.users'::regclass AND conname = 'uk_users_email') THEN
+        ALTER TABLE users_auth.users ADD CONSTRAINT uk_users_email UNIQUE (email);
+    END IF;
+    IF NOT EXISTS (SELECT 1 FROM pg_constraint
+                   WHERE conrelid = 'users_auth.permissions'::regclass AND conname = 'uk_permissions_permission') THEN
+        ALTER TABLE users_auth.permissions ADD CONSTRAINT uk_permissions_permission UNIQUE (permission);
+    END IF;
+END $$;
@@ -0,0 +1,2 @@
+-- Revoking every session of a user on delete and password change looks families up by subject
+CREATE INDEX IF NOT EXISTS idx_refresh_token_families_subject ON users_auth.refresh_token_families (subject);
@@ -1,30 +1,63 @@
 package com.smartbudget.users;
 
+import com.github.benmanes.caffeine.cache.Ticker;
 import com.smartbudget.users.controller.AuthController;
 import com.smartbudget.users.dto.*;
 import com.smartbudget.users.model.User;
+import com.smartbudget.users.repository.UserCredentials;
+import com.smartbudget.users.repository.UserIdentity;
 import com.smartbudget.users.repository.UserRepository;
+import com.smartbudget.users.security.ClientAddressResolver;
+import com.smartbudget.users.security.InMemoryLoginRateLimiter;
 import com.smartbudget.users.security.JwtTokenProvider;
+import com.smartbudget.users.security.LoginRateLimiter;
+import com.smartbudget.users.security.PasswordHashingUnavailableException;
+import com.smartbudget.users.security.PermissionSet;
+import com.smartbudget.users.security.TokenVerification;
+import com.smartbudget.users.security.VerifiedToken;
+import com.smartbudget.users.service.AsyncAuthExecutors;
+import com.smartbudget.users.service.LastLoginRecorder;
+import com.smartbudget.users.service.PermissionIndex;
+import com.smartbudget.users.service.RefreshTokenService;
+import com.smartbudget.users.service.UserCache;
+import com.smartbudget.users.service.UserEventOutbox;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import com.smartbudget.users.controller.*;
 
 
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.hamcrest.Matchers.is;
 
 class AuthControllerTest {
@@ -38,6 +71,24 @@ class AuthControllerTest {
     @Mock
     private PasswordEncoder passwordEncoder;
 
+    @Mock
+    private LastLoginRecorder lastLoginRecorder;
+
+    @Mock
+    private UserCache userCache;
+
+    @Mock
+    private RefreshTokenService refreshTokenService;
+
+    @Mock
+    private PermissionIndex permissionIndex;
+
+    @Mock
+    private LoginRateLimiter loginRateLimiter;
+
+    @Mock
+    private UserEventOutbox userEventOutbox;
+
     @InjectMocks
     private AuthController authController;
 
@@ -46,7 +97,15 @@ class AuthControllerTest {
     @BeforeEach
     void setUp() {
         MockitoAnnotations.initMocks(this);
-        mockMvc = MockMvcBuilders.standaloneSetup(authController).build();
+        ReflectionTestUtils.setField(authController, "transactionTemplate",
+                new TransactionTemplate(mock(PlatformTransactionManager.class)));
+        // MockMvc requests come from 127.0.0.1, standing in for the gateway
+        ReflectionTestUtils.setField(authController, "clientAddressResolver",
+                new ClientAddressResolver(new String[]{"127.0.0.0/8"}));
+        when(permissionIndex.permissionsOf(any())).thenReturn(PermissionSet.EMPTY);
+        mockMvc = MockMvcBuilders.standaloneSetup(authController)
+                .setControllerAdvice(new ApiExceptionHandler())
+                .build();
     }
 
     @Test
@@ -67,13 +126,35 @@ class AuthControllerTest {
         user.setActive(true);
         user.setCreatedAt(LocalDateTime.now());
 
-        when(userRepository.save(any(User.class))).thenReturn(user);
+        when(userRepository.saveAndFlush(any(User.class))).thenReturn(user);
 
         mockMvc.perform(post("/auth/register")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content("{\"username\":\"testuser\",\"email\":\"test@example.com\",\"password\":\"password\"}"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.message", is("User registered successfully")));
+
+        verify(userEventOutbox).append(eq(UserEvent.Type.CREATED), any(), eq("testuser"), eq("test@example.com"));
+    }
+
+    @Test
+    void testRegisterDuplicateEmail() throws Exception {
+        UserIdentity existing = mock(UserIdentity.class);
+        when(existing.getUsername()).thenReturn("otheruser");
+        when(existing.getEmail()).thenReturn("test@example.com");
+
+        when(passwordEncoder.encode(anyString())).thenReturn("encodedpassword");
+        when(userRepository.saveAndFlush(any(User.class))).thenThrow(new DataIntegrityViolationException("duplicate key"));
+        when(userRepository.findByUsernameOrEmail("testuser", "test@example.com")).thenReturn(List.of(existing));
+
+        mockMvc.perform(post("/auth/register")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"username\":\"testuser\",\"email\":\"test@example.com\",\"password\":\"password\"}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code", is(400)))
+                .andExpect(jsonPath("$.details", is("Email already exists")));
+
+        verifyNoInteractions(userEventOutbox);
     }
 
 //    @Test
@@ -101,7 +182,7 @@ class AuthControllerTest {
 
     @Test
     void testLoginInvalidCredentials() throws Exception {
-        when(userRepository.findByEmail(anyString())).thenReturn(null);
+        when(userCache.findByEmail(anyString())).thenReturn(null);
 
         mockMvc.perform(post("/auth/login")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -112,12 +193,184 @@ class AuthControllerTest {
                 .andExpect(jsonPath("$.details", is("Invalid email or password")));
     }
 
+    @Test
+    void testLoginUnknownEmailVerifiesDummyHash() throws Exception {
+        when(userCache.findByEmail("unknown@example.com")).thenReturn(null);
+        when(passwordEncoder.encode(anyString())).thenReturn("{bcrypt}dummy");
+
+        mockMvc.perform(post("/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\":\"unknown@example.com\",\"password\":\"password\"}"))
+                .andExpect(status().isUnauthorized());
+        mockMvc.perform(post("/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\":\"unknown@example.com\",\"password\":\"password\"}"))
+                .andExpect(status().isUnauthorized());
+
+        // Same cost as a wrong password for an existing user; the dummy hash itself is computed once
+        verify(passwordEncoder, times(2)).matches("password", "{bcrypt}dummy");
+        verify(passwordEncoder, times(1)).encode(anyString());
+    }
+
+    @Test
+    void testLoginRateLimitedBeforeLookup() throws Exception {
+        when(loginRateLimiter.acquire(anyString(), eq("test@example.com"))).thenReturn(12L);
+
+        mockMvc.perform(post("/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\":\"test@example.com\",\"password\":\"password\"}"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "12"))
+                .andExpect(jsonPath("$.code", is(429)));
+
+        verifyNoInteractions(userCache, passwordEncoder);
+    }
+
+    @Test
+    void testForwardedClientsGetSeparateIpBuckets() throws Exception {
+        // One attempt per client address per minute; the email limit stays out of the way
+        ReflectionTestUtils.setField(authController, "loginRateLimiter",
+                new InMemoryLoginRateLimiter(1, 1, 1000, 1000, 100, Ticker.systemTicker()));
+        when(passwordEncoder.encode(anyString())).thenReturn("{bcrypt}dummy");
+
+        loginFrom("203.0.113.1").andExpect(status().isUnauthorized());
+        loginFrom("203.0.113.1").andExpect(status().isTooManyRequests());
+        loginFrom("203.0.113.2").andExpect(status().isUnauthorized());
+        // A client cannot pick another bucket by sending its own X-Forwarded-For through the gateway
+        loginFrom("203.0.113.3, 203.0.113.1").andExpect(status().isTooManyRequests());
+    }
+
+    @Test
+    void testLoginRecordsLastLoginWithoutSave() throws Exception {
+        UserCredentials user = new UserCredentials(7L, "testuser", "test@example.com", "encodedpassword", true);
+
+        when(userCache.findByEmail(anyString())).thenReturn(user);
+        when(passwordEncoder.matches(anyString(), anyString())).thenReturn(true);
+        when(jwtTokenProvider.generateToken(anyString(), any(PermissionSet.class), anyLong())).thenReturn("mockToken");
+
+        mockMvc.perform(post("/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\":\"test@example.com\",\"password\":\"password\"}"))
+                .andExpect(status().isOk());
+
+        verify(lastLoginRecorder).record(eq(7L), any(LocalDateTime.class));
+        verify(userRepository, never()).save(any(User.class));
+    }
+
+    @Test
+    void testLoginEmbedsPermissionsFromIndex() throws Exception {
+        UserCredentials user = new UserCredentials(7L, "testuser", "test@example.com", "encodedpassword", true);
+        PermissionSet permissions = PermissionSet.of(List.of(1L, 3L));
+
+        when(userCache.findByEmail(anyString())).thenReturn(user);
+        when(passwordEncoder.matches(anyString(), anyString())).thenReturn(true);
+        when(permissionIndex.permissionsOf("testuser")).thenReturn(permissions);
+        when(jwtTokenProvider.generateToken("testuser", permissions, 3600)).thenReturn("tokenWithPermissions");
+
+        mockMvc.perform(post("/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\":\"test@example.com\",\"password\":\"password\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.accessToken", is("tokenWithPermissions")));
+    }
+
+    @Test
+    void testAsyncModeCompletesLoginOffRequestThread() throws Exception {
+        AsyncAuthExecutors asyncExecutors = new AsyncAuthExecutors(passwordEncoder, 2, 10, false);
+        ReflectionTestUtils.setField(authController, "asyncExecutors", asyncExecutors);
+        UserCredentials user = new UserCredentials(7L, "testuser", "test@example.com", "encodedpassword", true);
+
+        when(userCache.findByEmail("test@example.com")).thenReturn(user);
+        when(passwordEncoder.matches("password", "encodedpassword")).thenReturn(true);
+        when(jwtTokenProvider.generateToken(anyString(), any(PermissionSet.class), anyLong())).thenReturn("mockToken");
+
+        MvcResult login = mockMvc.perform(post("/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\":\"test@example.com\",\"password\":\"password\"}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(login))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.accessToken", is("mockToken")));
+
+        MvcResult invalid = mockMvc.perform(post("/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\":\"test@example.com\",\"password\":\"wrongpassword\"}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(invalid))
+                .andExpect(status().isUnauthorized());
+        asyncExecutors.destroy();
+    }
+
+    @Test
+    void testLoginUpgradesStaleHash() throws Exception {
+        UserCredentials user = new UserCredentials(7L, "testuser", "test@example.com", "legacyhash", true);
+
+        when(userCache.findByEmail(anyString())).thenReturn(user);
+        when(passwordEncoder.matches(anyString(), anyString())).thenReturn(true);
+        when(passwordEncoder.upgradeEncoding("legacyhash")).thenReturn(true);
+        when(passwordEncoder.encode("password")).thenReturn("{bcrypt}newhash");
+        when(jwtTokenProvider.generateToken(anyString(), any(PermissionSet.class), anyLong())).thenReturn("mockToken");
+
+        mockMvc.perform(post("/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\":\"test@example.com\",\"password\":\"password\"}"))
+                .andExpect(status().isOk());
+
+        verify(userRepository).updatePassword(7L, "{bcrypt}newhash");
+        verify(lastLoginRecorder).record(eq(7L), any(LocalDateTime.class));
+        verify(userCache).evict(7L);
+    }
+
+    @Test
+    void testAsyncLoginUpgradesStaleHashOnHashingPool() throws Exception {
+        AsyncAuthExecutors asyncExecutors = mock(AsyncAuthExecutors.class);
+        ReflectionTestUtils.setField(authController, "asyncExecutors", asyncExecutors);
+        UserCredentials user = new UserCredentials(7L, "testuser", "test@example.com", "legacyhash", true);
+
+        when(asyncExecutors.io()).thenReturn(Runnable::run);
+        when(asyncExecutors.ioContinuation()).thenReturn(Runnable::run);
+        when(asyncExecutors.matches("password", "legacyhash")).thenReturn(CompletableFuture.completedFuture(true));
+        when(asyncExecutors.encode("password")).thenReturn(CompletableFuture.completedFuture("{bcrypt}newhash"));
+        when(userCache.findByEmail(anyString())).thenReturn(user);
+        when(passwordEncoder.upgradeEncoding("legacyhash")).thenReturn(true);
+        when(jwtTokenProvider.generateToken(anyString(), any(PermissionSet.class), anyLong())).thenReturn("mockToken");
+
+        MvcResult login = mockMvc.perform(post("/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\":\"test@example.com\",\"password\":\"password\"}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(login))
+                .andExpect(status().isOk());
+
+        verify(passwordEncoder, never()).encode(anyString());
+        verify(userRepository).updatePassword(7L, "{bcrypt}newhash");
+        verify(lastLoginRecorder).record(eq(7L), any(LocalDateTime.class));
+    }
+
+    @Test
+    void testLoginHashingPoolSaturated() throws Exception {
+        UserCredentials user = new UserCredentials(7L, "testuser", "test@example.com", "encodedpassword", true);
+
+        when(userCache.findByEmail(anyString())).thenReturn(user);
+        when(passwordEncoder.matches(anyString(), anyString())).thenThrow(new PasswordHashingUnavailableException(2));
+
+        mockMvc.perform(post("/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\":\"test@example.com\",\"password\":\"password\"}"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "2"))
+                .andExpect(jsonPath("$.code", is(503)));
+    }
+
     @Test
     void testRefreshTokenInvalidToken() throws Exception {
         RefreshTokenRequest refreshTokenRequest = new RefreshTokenRequest();
         refreshTokenRequest.setRefreshToken("invalidtoken");
 
-        when(jwtTokenProvider.validateToken(anyString())).thenReturn(false);
+        when(jwtTokenProvider.verify(anyString())).thenReturn(TokenVerification.failed(TokenVerification.Failure.MALFORMED));
 
         mockMvc.perform(post("/auth/refresh-token")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -127,4 +380,39 @@ class AuthControllerTest {
                 .andExpect(jsonPath("$.message", is("Unauthorized")))
                 .andExpect(jsonPath("$.details", is("Invalid refresh token")));
     }
+
+    @Test
+    void testRefreshTokenRotates() throws Exception {
+        VerifiedToken refreshToken = new VerifiedToken("testuser", Instant.now(), Instant.now().plusSeconds(60), "jti", "family");
+        when(jwtTokenProvider.verify("oldRefreshToken")).thenReturn(TokenVerification.valid(refreshToken));
+        when(refreshTokenService.rotate(refreshToken)).thenReturn("newRefreshToken");
+        when(jwtTokenProvider.generateToken("testuser", PermissionSet.EMPTY, 3600)).thenReturn("newAccessToken");
+
+        mockMvc.perform(post("/auth/refresh-token")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"refreshToken\":\"oldRefreshToken\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.accessToken", is("newAccessToken")))
+                .andExpect(jsonPath("$.refreshToken", is("newRefreshToken")));
+    }
+
+    @Test
+    void testRefreshTokenReuseRejected() throws Exception {
+        VerifiedToken refreshToken = new VerifiedToken("testuser", Instant.now(), Instant.now().plusSeconds(60), "jti", "family");
+        when(jwtTokenProvider.verify("usedRefreshToken")).thenReturn(TokenVerification.valid(refreshToken));
+        when(refreshTokenService.rotate(refreshToken)).thenReturn(null);
+
+        mockMvc.perform(post("/auth/refresh-token")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"refreshToken\":\"usedRefreshToken\"}"))
+                .andExpect(status().isUnauthorized())
+                .andExpect(jsonPath("$.details", is("Invalid refresh token")));
+    }
+
+    private ResultActions loginFrom(String forwardedFor) throws Exception {
+        return mockMvc.perform(post("/auth/login")
+                .header(ClientAddressResolver.FORWARDED_FOR, forwardedFor)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"email\":\"test@example.com\",\"password\":\"password\"}"));
+    }
 }
@@ -0,0 +1,96 @@
+package com.smartbudget.users;
+
+import com.smartbudget.users.controller.AuthController;
+import com.smartbudget.users.controller.AuthMetricsInterceptor;
+import com.smartbudget.users.dto.LoginRequest;
+import com.smartbudget.users.dto.RefreshTokenRequest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class AuthMetricsInterceptorTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final AuthMetricsInterceptor interceptor = new AuthMetricsInterceptor(registry);
+    private final AuthController controller = mock(AuthController.class);
+
+    @Test
+    void testTimersArePreRegistered() {
+        assertEquals(35, registry.find("auth.requests").timers().size());
+    }
+
+    @Test
+    void testRecordsOutcomeFromStatus() throws Exception {
+        HandlerMethod login = new HandlerMethod(controller, "login", LoginRequest.class, HttpServletRequest.class);
+        HandlerMethod refresh = new HandlerMethod(controller, "refreshToken", RefreshTokenRequest.class);
+
+        complete(login, 200);
+        complete(login, 401);
+        complete(login, 401);
+        complete(refresh, 401);
+
+        assertEquals(1, count("login", "success"));
+        assertEquals(2, count("login", "bad_credentials"));
+        assertEquals(1, count("refreshToken", "invalid_token"));
+        assertEquals(0, count("refreshToken", "bad_credentials"));
+    }
+
+    @Test
+    void testFirstSuccessfulLoginIsRecordedOnce() throws Exception {
+        HandlerMethod login = new HandlerMethod(controller, "login", LoginRequest.class, HttpServletRequest.class);
+        HandlerMethod refresh = new HandlerMethod(controller, "refreshToken", RefreshTokenRequest.class);
+
+        complete(login, 401);
+        complete(refresh, 200);
+        assertTrue(Double.isNaN(firstLoginMillis()));
+
+        complete(login, 200);
+        double firstLogin = firstLoginMillis();
+        assertTrue(firstLogin > 0);
+        Thread.sleep(5);
+        complete(login, 200);
+        assertEquals(firstLogin, firstLoginMillis());
+    }
+
+    @Test
+    void testAsyncDispatchKeepsOriginalStartTime() throws Exception {
+        HandlerMethod login = new HandlerMethod(controller, "login", LoginRequest.class, HttpServletRequest.class);
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        interceptor.preHandle(request, response, login);
+        interceptor.afterConcurrentHandlingStarted(request, response, login);
+        Thread.sleep(20);
+        interceptor.preHandle(request, response, login);
+        response.setStatus(429);
+        interceptor.afterCompletion(request, response, login, null);
+
+        assertEquals(1, count("login", "rate_limited"));
+        assertTrue(registry.get("auth.requests").tag("endpoint", "login").tag("outcome", "rate_limited").timer()
+                .totalTime(TimeUnit.MILLISECONDS) >= 20);
+    }
+
+    private void complete(HandlerMethod handler, int status) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        interceptor.preHandle(request, response, handler);
+        response.setStatus(status);
+        interceptor.afterCompletion(request, response, handler, null);
+    }
+
+    private double firstLoginMillis() {
+        return registry.get("auth.startup.first_login").timeGauge().value(TimeUnit.MILLISECONDS);
+    }
+
+    private long count(String endpoint, String outcome) {
+        return registry.get("auth.requests").tag("endpoint", endpoint).tag("outcome", outcome).timer().count();
+    }
+}
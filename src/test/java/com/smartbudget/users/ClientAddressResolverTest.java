@@ -0,0 +1,48 @@
+package com.smartbudget.users;
+
+import com.smartbudget.users.security.ClientAddressResolver;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClientAddressResolverTest {
+
+    private final ClientAddressResolver resolver =
+            new ClientAddressResolver(new String[]{"10.0.0.0/8", "192.168.1.0/28", "fd00::/8"});
+
+    @Test
+    void testHeaderIgnoredFromUntrustedPeer() {
+        assertEquals("203.0.113.9", resolver.resolve("203.0.113.9", List.of("198.51.100.1")));
+        assertEquals("10.0.0.1", resolver.resolve("10.0.0.1", null));
+        assertEquals("unknown", resolver.resolve(null, List.of("198.51.100.1")));
+    }
+
+    @Test
+    void testFirstUntrustedHopFromTheRightIsTheClient() {
+        assertEquals("198.51.100.1", resolver.resolve("10.0.0.1", List.of("198.51.100.1")));
+        // Through two trusted proxies, in one header or in several
+        assertEquals("198.51.100.1", resolver.resolve("10.0.0.1", List.of("198.51.100.1, 192.168.1.5")));
+        assertEquals("198.51.100.1", resolver.resolve("10.0.0.1", List.of("198.51.100.1", "192.168.1.5")));
+        // Entries the client wrote itself are left of its own address
+        assertEquals("198.51.100.1", resolver.resolve("10.0.0.1", List.of("1.2.3.4, 198.51.100.1")));
+        // 192.168.1.16 is outside the /28
+        assertEquals("192.168.1.16", resolver.resolve("10.0.0.1", List.of("198.51.100.1, 192.168.1.16")));
+        assertEquals("2001:db8::1", resolver.resolve("fd00::2", List.of("2001:db8::1")));
+        // A client inside the trusted network
+        assertEquals("10.0.0.2", resolver.resolve("10.0.0.1", List.of("10.0.0.2, 10.0.0.3")));
+    }
+
+    @Test
+    void testStopsAtEntriesThatAreNotAddresses() {
+        assertEquals("10.0.0.1", resolver.resolve("10.0.0.1", List.of("unknown")));
+        assertEquals("192.168.1.5", resolver.resolve("10.0.0.1", List.of("example.com, 192.168.1.5")));
+    }
+
+    @Test
+    void testRejectsInvalidRanges() {
+        assertThrows(IllegalArgumentException.class, () -> new ClientAddressResolver(new String[]{"gateway"}));
+        assertThrows(IllegalArgumentException.class, () -> new ClientAddressResolver(new String[]{"10.0.0.0/33"}));
+    }
+}
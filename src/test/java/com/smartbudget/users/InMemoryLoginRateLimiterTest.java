@@ -0,0 +1,60 @@
+package com.smartbudget.users;
+
+import com.smartbudget.users.security.InMemoryLoginRateLimiter;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryLoginRateLimiterTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    // 60 per minute from an IP with a burst of 3, 6 per minute for an email with a burst of 2
+    private final InMemoryLoginRateLimiter limiter = new InMemoryLoginRateLimiter(60, 3, 6, 2, 1000, now::get);
+
+    @Test
+    void testIpBurstThenRefillRate() {
+        assertEquals(0, limiter.acquire("10.0.0.1", "a@example.com"));
+        assertEquals(0, limiter.acquire("10.0.0.1", "b@example.com"));
+        assertEquals(0, limiter.acquire("10.0.0.1", "c@example.com"));
+
+        assertEquals(1, limiter.acquire("10.0.0.1", "d@example.com"));
+        assertEquals(0, limiter.acquire("10.0.0.2", "d@example.com"));
+
+        advance(1);
+        assertEquals(0, limiter.acquire("10.0.0.1", "e@example.com"));
+        assertEquals(1, limiter.getRejectedByIpCount());
+        assertEquals(0, limiter.getRejectedByEmailCount());
+    }
+
+    @Test
+    void testEmailLimitAcrossAddressesIgnoresCase() {
+        assertEquals(0, limiter.acquire("10.0.0.1", "victim@example.com"));
+        assertEquals(0, limiter.acquire("10.0.0.2", "Victim@Example.com "));
+
+        assertEquals(10, limiter.acquire("10.0.0.3", "victim@example.com"));
+        assertEquals(1, limiter.getRejectedByEmailCount());
+
+        advance(10);
+        assertEquals(0, limiter.acquire("10.0.0.4", "victim@example.com"));
+    }
+
+    @Test
+    void testIpRejectionDoesNotConsumeEmailTokens() {
+        for (int i = 0; i < 3; i++) {
+            limiter.acquire("10.0.0.1", "other" + i + "@example.com");
+        }
+        for (int i = 0; i < 5; i++) {
+            assertTrue(limiter.acquire("10.0.0.1", "victim@example.com") > 0);
+        }
+
+        assertEquals(0, limiter.acquire("10.0.0.2", "victim@example.com"));
+    }
+
+    private void advance(long seconds) {
+        now.addAndGet(TimeUnit.SECONDS.toNanos(seconds));
+    }
+}
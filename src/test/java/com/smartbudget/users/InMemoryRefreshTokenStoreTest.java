@@ -0,0 +1,67 @@
+package com.smartbudget.users;
+
+import com.smartbudget.users.security.InMemoryRefreshTokenStore;
+import com.smartbudget.users.security.RefreshTokenStore.Rotation;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryRefreshTokenStoreTest {
+
+    private final InMemoryRefreshTokenStore store = new InMemoryRefreshTokenStore();
+
+    private final String family = UUID.randomUUID().toString();
+    private final String first = UUID.randomUUID().toString();
+    private final String second = UUID.randomUUID().toString();
+    private final String third = UUID.randomUUID().toString();
+
+    @Test
+    void testRotationIsSingleUse() {
+        store.create(family, "testuser", first, Instant.now().plusSeconds(60));
+
+        assertEquals(Rotation.ROTATED, store.rotate(family, first, second));
+        assertEquals(Rotation.ROTATED, store.rotate(family, second, third));
+    }
+
+    @Test
+    void testReuseRevokesFamily() {
+        store.create(family, "testuser", first, Instant.now().plusSeconds(60));
+        store.rotate(family, first, second);
+
+        assertEquals(Rotation.REUSED, store.rotate(family, first, third));
+        assertEquals(Rotation.INVALID, store.rotate(family, second, third));
+    }
+
+    @Test
+    void testRevoke() {
+        store.create(family, "testuser", first, Instant.now().plusSeconds(60));
+
+        assertTrue(store.revoke(family));
+        assertFalse(store.revoke(family));
+        assertEquals(Rotation.INVALID, store.rotate(family, first, second));
+    }
+
+    @Test
+    void testRevokeAllRevokesOnlyTheSubjectsFamilies() {
+        String otherFamily = UUID.randomUUID().toString();
+        store.create(family, "testuser", first, Instant.now().plusSeconds(60));
+        store.create(otherFamily, "otheruser", second, Instant.now().plusSeconds(60));
+
+        assertEquals(1, store.revokeAll("testuser"));
+        assertEquals(0, store.revokeAll("testuser"));
+        assertEquals(Rotation.INVALID, store.rotate(family, first, third));
+        assertEquals(Rotation.ROTATED, store.rotate(otherFamily, second, third));
+    }
+
+    @Test
+    void testPurgeExpired() {
+        store.create(family, "testuser", first, Instant.now().minusSeconds(1));
+        store.create(UUID.randomUUID().toString(), "testuser", second, Instant.now().plusSeconds(60));
+
+        assertEquals(1, store.purgeExpired());
+        assertEquals(Rotation.INVALID, store.rotate(family, first, third));
+    }
+}
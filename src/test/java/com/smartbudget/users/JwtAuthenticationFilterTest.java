@@ -0,0 +1,91 @@
+package com.smartbudget.users;
+
+import com.smartbudget.users.security.HmacJwsSigner;
+import com.smartbudget.users.security.InMemoryAccessTokenDenylist;
+import com.smartbudget.users.security.JwtAuthenticationFilter;
+import com.smartbudget.users.security.JwtTokenProvider;
+import com.smartbudget.users.security.PermissionSet;
+import com.smartbudget.users.security.TokenRevocationFilter;
+import com.smartbudget.users.service.PermissionIndex;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class JwtAuthenticationFilterTest {
+
+    private JwtTokenProvider jwtTokenProvider;
+    private JwtAuthenticationFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        jwtTokenProvider = new JwtTokenProvider(new HmacJwsSigner("4BjKlm8pP2qN6tR7s9XyVZ3aH0FgW5yQ"),
+                new TokenRevocationFilter(new InMemoryAccessTokenDenylist(), 1000, 0.01), 100);
+        PermissionIndex permissionIndex = mock(PermissionIndex.class);
+        when(permissionIndex.getNames()).thenReturn(Map.of(1L, "budgets:read", 2L, "roles:manage"));
+        filter = new JwtAuthenticationFilter(jwtTokenProvider, permissionIndex);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void testAuthenticatesFromClaims() throws Exception {
+        String token = jwtTokenProvider.generateToken("testuser", PermissionSet.of(List.of(1L, 2L, 3L)), 3600);
+
+        Authentication authentication = filter("Bearer " + token);
+
+        assertNotNull(authentication);
+        assertEquals("testuser", authentication.getPrincipal());
+        assertEquals(List.of("budgets:read", "roles:manage"), authentication.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority).collect(Collectors.toList()));
+    }
+
+    @Test
+    void testRejectedTokensLeaveRequestUnauthenticated() throws Exception {
+        String refreshToken = jwtTokenProvider.generateRefreshToken("testuser", "family", "jti", 3600);
+        String expired = jwtTokenProvider.generateToken("testuser", -60);
+
+        assertNull(filter(null));
+        assertNull(filter("Bearer invalidtoken"));
+        assertNull(filter("Bearer " + refreshToken));
+        assertNull(filter("Bearer " + expired));
+        assertNull(filter("Basic dXNlcjpwYXNz"));
+    }
+
+    @Test
+    void testDoesNotCreateSession() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "Bearer " + jwtTokenProvider.generateToken("testuser", 3600));
+
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+
+        assertNull(request.getSession(false));
+    }
+
+    private Authentication filter(String authorization) throws Exception {
+        SecurityContextHolder.clearContext();
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        if (authorization != null) {
+            request.addHeader("Authorization", authorization);
+        }
+        MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+        assertNotNull(chain.getRequest(), "the chain must always continue");
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+}
@@ -0,0 +1,165 @@
+package com.smartbudget.users;
+
+import com.smartbudget.users.security.HmacJwsSigner;
+import com.smartbudget.users.security.JwtCodec;
+import com.smartbudget.users.security.PemKeys;
+import com.smartbudget.users.security.RsaJwsSigner;
+import com.smartbudget.users.security.TokenVerification;
+import com.smartbudget.users.security.VerifiedToken;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.FileSystemResource;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Differential tests: tokens from the codec against tokens and parses from jjwt 0.9.1.
+ */
+class JwtCodecTest {
+
+    private static final String SECRET = "4BjKlm8pP2qN6tR7s9XyVZ3aH0FgW5yQ";
+    private static final long IAT = 1_700_000_000L;
+    private static final long EXP = IAT + 3600;
+
+    private static final List<String> SUBJECTS = Arrays.asList(
+            "testuser",
+            "quote\"and\\backslash/slash",
+            "line\nbreak\ttab\r\b\f\u0001\u001f\u007f",
+            "ünïcødé 名前",
+            "emoji \uD83D\uDE00",
+            "a-very-long-subject-".concat(String.join("", Collections.nCopies(200, "x"))));
+
+    private final JwtCodec codec = new JwtCodec(new HmacJwsSigner(SECRET));
+
+    @Test
+    void testEncodesExactlyLikeJjwt() {
+        for (String subject : SUBJECTS) {
+            String expected = Jwts.builder()
+                    .setSubject(subject)
+                    .setIssuedAt(new Date(IAT * 1000))
+                    .setExpiration(new Date(EXP * 1000))
+                    .setId("token-id")
+                    .claim("fid", "family-id")
+                    .signWith(SignatureAlgorithm.HS256, SECRET)
+                    .compact();
+
+            assertEquals(expected, codec.encode(subject, IAT, EXP, "token-id", "family-id"), subject);
+        }
+    }
+
+    @Test
+    void testJjwtReadsEncodedTokens() {
+        Random random = new Random(42);
+        for (int i = 0; i < 500; i++) {
+            // jjwt drops blank subjects
+            String subject = "u" + randomString(random);
+            String tokenId = random.nextBoolean() ? randomString(random) : null;
+            long exp = System.currentTimeMillis() / 1000 + 1 + random.nextInt(1_000_000);
+
+            Claims claims = Jwts.parser().setSigningKey(SECRET)
+                    .parseClaimsJws(codec.encode(subject, IAT, exp, tokenId, null)).getBody();
+
+            assertEquals(subject, claims.getSubject());
+            assertEquals(tokenId, claims.getId());
+            assertEquals(exp, claims.getExpiration().getTime() / 1000);
+            assertEquals(IAT, claims.getIssuedAt().getTime() / 1000);
+        }
+    }
+
+    @Test
+    void testDecodesJjwtTokens() {
+        Random random = new Random(7);
+        for (int i = 0; i < 500; i++) {
+            // jjwt drops blank subjects
+            String subject = "u" + randomString(random);
+            String token = Jwts.builder()
+                    .setHeaderParam("typ", "JWT")
+                    .setSubject(subject)
+                    .setExpiration(new Date(EXP * 1000))
+                    .claim("roles", Arrays.asList("admin", Collections.singletonMap("nested", true)))
+                    .claim("ratio", 0.5)
+                    .signWith(SignatureAlgorithm.HS256, SECRET)
+                    .compact();
+
+            TokenVerification verification = codec.decode(token);
+
+            assertTrue(verification.isValid(), token);
+            VerifiedToken verified = verification.getToken();
+            assertEquals(subject, verified.getSubject());
+            assertEquals(EXP, verified.getExpiresAt().getEpochSecond());
+            assertNull(verified.getIssuedAt());
+            assertNull(verified.getTokenId());
+            assertFalse(verified.isRefreshToken());
+        }
+    }
+
+    @Test
+    void testRejectsWhatJjwtRejects() {
+        String token = codec.encode("testuser", IAT, EXP, "token-id", null);
+        String otherKey = Jwts.builder().setSubject("testuser").setExpiration(new Date(EXP * 1000))
+                .signWith(SignatureAlgorithm.HS256, "c2VjcmV0LXRoYXQtaXMtbm90LW91cnMtMDEyMzQ1Njc4OQ").compact();
+        String noExpiry = Jwts.builder().setSubject("testuser")
+                .signWith(SignatureAlgorithm.HS256, SECRET).compact();
+        String stringExpiry = Jwts.builder().setSubject("testuser").claim("exp", "tomorrow")
+                .signWith(SignatureAlgorithm.HS256, SECRET).compact();
+        String hs512 = Jwts.builder().setSubject("testuser").setExpiration(new Date(EXP * 1000))
+                .signWith(SignatureAlgorithm.HS512, SECRET).compact();
+
+        assertEquals(TokenVerification.Failure.BAD_SIGNATURE, codec.decode(otherKey).getFailure());
+        assertEquals(TokenVerification.Failure.BAD_SIGNATURE,
+                codec.decode(token.substring(0, token.length() - 4) + "AAAA").getFailure());
+        assertEquals(TokenVerification.Failure.MALFORMED, codec.decode(noExpiry).getFailure());
+        assertEquals(TokenVerification.Failure.MALFORMED, codec.decode(stringExpiry).getFailure());
+        assertEquals(TokenVerification.Failure.UNSUPPORTED, codec.decode(hs512).getFailure());
+        assertEquals(TokenVerification.Failure.MALFORMED, codec.decode(token + ".extra").getFailure());
+        assertEquals(TokenVerification.Failure.MALFORMED, codec.decode(token.replace('.', '!')).getFailure());
+        assertEquals(TokenVerification.Failure.MALFORMED, codec.decode("é" + token).getFailure());
+    }
+
+    @Test
+    void testRs256MatchesJjwt() {
+        RsaJwsSigner signer = new RsaJwsSigner(
+                PemKeys.readRsaPrivateKey(new FileSystemResource("privateKey.pem")),
+                PemKeys.readRsaPublicKey(new FileSystemResource("publicKey.pem")));
+        JwtCodec rsaCodec = new JwtCodec(signer);
+        // jjwt checks the expiry, so the token has to be valid now
+        long iat = System.currentTimeMillis() / 1000;
+
+        String token = rsaCodec.encode("testuser", iat, iat + 3600, "token-id", "family-id");
+
+        Claims claims = Jwts.parser().setSigningKey(signer.getPublicKey()).parseClaimsJws(token).getBody();
+        assertEquals("testuser", claims.getSubject());
+        assertEquals("family-id", claims.get("fid"));
+        assertEquals("family-id", rsaCodec.decode(token).getToken().getFamilyId());
+        assertEquals(TokenVerification.Failure.UNSUPPORTED, codec.decode(token).getFailure());
+    }
+
+    private static String randomString(Random random) {
+        StringBuilder value = new StringBuilder();
+        int length = random.nextInt(40);
+        for (int i = 0; i < length; i++) {
+            switch (random.nextInt(4)) {
+                case 0:
+                    value.append((char) random.nextInt(0x80));
+                    break;
+                case 1:
+                    value.append((char) (0x80 + random.nextInt(0x780)));
+                    break;
+                case 2:
+                    value.append((char) (0x800 + random.nextInt(0xd000)));
+                    break;
+                default:
+                    value.appendCodePoint(0x10000 + random.nextInt(0x10000));
+            }
+        }
+        return value.toString();
+    }
+}
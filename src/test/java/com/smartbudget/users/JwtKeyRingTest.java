@@ -0,0 +1,180 @@
+package com.smartbudget.users;
+
+import com.smartbudget.users.security.InMemoryAccessTokenDenylist;
+import com.smartbudget.users.security.JwtKeyRing;
+import com.smartbudget.users.security.JwtTokenProvider;
+import com.smartbudget.users.security.TokenRevocationFilter;
+import com.smartbudget.users.security.TokenVerification;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtKeyRingTest {
+
+    private static final String LEGACY_SECRET = "4BjKlm8pP2qN6tR7s9XyVZ3aH0FgW5yQ";
+    private static final String SECRET_1 = "c2VjcmV0LW9uZS1zZWNyZXQtb25lLXNlY3JldC1vbmU=";
+    private static final String SECRET_2 = "c2VjcmV0LXR3by1zZWNyZXQtdHdvLXNlY3JldC10d28=";
+
+    // Keys activate at these times; tokens are valid for a day, so expiry never gets in the way
+    private static final Instant START = Instant.now().minusSeconds(3600);
+    private static final Instant ROTATION = START.plusSeconds(600);
+
+    @TempDir
+    Path directory;
+
+    private final MutableClock clock = new MutableClock(START);
+
+    @Test
+    void testRotatesAtActivationAndKeepsOldKeyForOverlap() throws IOException {
+        writeKey("one", SECRET_1, START);
+        writeKey("two", SECRET_2, ROTATION);
+        JwtKeyRing ring = JwtKeyRing.load(directory, 300, clock);
+        JwtTokenProvider provider = provider(ring);
+
+        String before = provider.generateToken("alice", 86400);
+        assertEquals("one", ring.getSigningKeyId());
+        assertTrue(ring.getPublicJwks().isEmpty(), "HS256 keys are never published");
+
+        clock.instant = ROTATION;
+        String after = provider.generateToken("alice", 86400);
+        assertEquals("two", ring.getSigningKeyId());
+        assertTrue(ring.decode(before).isValid());
+        assertTrue(ring.decode(after).isValid());
+
+        clock.instant = ROTATION.plusSeconds(300);
+        assertEquals(TokenVerification.Failure.BAD_SIGNATURE, ring.decode(before).getFailure());
+        assertTrue(ring.decode(after).isValid());
+    }
+
+    @Test
+    void testPendingKeyVerifiesBeforeItSigns() throws IOException {
+        writeKey("one", SECRET_1, START);
+        writeKey("two", SECRET_2, ROTATION);
+        JwtKeyRing early = JwtKeyRing.load(directory, 300, clock);
+        MutableClock aheadClock = new MutableClock(ROTATION);
+        JwtKeyRing ahead = JwtKeyRing.load(directory, 300, aheadClock);
+
+        String fromNodeAhead = provider(ahead).generateToken("alice", 86400);
+
+        assertEquals("one", early.getSigningKeyId());
+        assertTrue(early.decode(fromNodeAhead).isValid());
+    }
+
+    @Test
+    void testReloadAddsAndWithdrawsKeys() throws IOException {
+        writeKey("one", SECRET_1, START);
+        JwtKeyRing ring = JwtKeyRing.load(directory, 300, clock);
+        JwtTokenProvider provider = provider(ring);
+        String token = provider.generateToken("alice", 86400);
+        assertTrue(provider.verify(token).isValid());
+
+        writeKey("two", SECRET_2, START.plusSeconds(1));
+        Files.delete(directory.resolve("one.json"));
+        clock.instant = START.plusSeconds(1);
+        ring.reload();
+
+        assertEquals("two", ring.getSigningKeyId());
+        // Withdrawn at once, also for a token already in the verification cache
+        assertEquals(TokenVerification.Failure.BAD_SIGNATURE, provider.verify(token).getFailure());
+    }
+
+    @Test
+    void testReloadWithoutActiveKeyKeepsCurrentKeys() throws IOException {
+        writeKey("one", SECRET_1, START);
+        JwtKeyRing ring = JwtKeyRing.load(directory, 300, clock);
+        String token = provider(ring).generateToken("alice", 86400);
+
+        // Deleting the only active key would leave nothing to sign with
+        writeKey("two", SECRET_2, ROTATION);
+        Files.delete(directory.resolve("one.json"));
+        ring.reload();
+
+        assertEquals("one", ring.getSigningKeyId());
+        assertTrue(provider(ring).verify(token).isValid());
+    }
+
+    @Test
+    void testBrokenFilesKeepCurrentKeys() throws IOException {
+        writeKey("one", SECRET_1, START);
+        JwtKeyRing ring = JwtKeyRing.load(directory, 300, clock);
+        String token = provider(ring).generateToken("alice", 86400);
+
+        Files.write(directory.resolve("two.json"), "{not json".getBytes(StandardCharsets.UTF_8));
+        ring.reload();
+
+        assertEquals("one", ring.getSigningKeyId());
+        assertTrue(ring.decode(token).isValid());
+    }
+
+    @Test
+    void testKeyWithoutKidVerifiesLegacyTokens() throws IOException {
+        Files.write(directory.resolve("legacy.json"), ("{\"alg\": \"HS256\", \"secret\": \"" + LEGACY_SECRET + "\"}")
+                .getBytes(StandardCharsets.UTF_8));
+        writeKey("one", SECRET_1, START);
+        JwtKeyRing ring = JwtKeyRing.load(directory, 300, clock);
+        String legacyToken = Jwts.builder()
+                .setSubject("alice")
+                .setIssuedAt(new Date())
+                .setExpiration(new Date(System.currentTimeMillis() + 3600_000))
+                .signWith(SignatureAlgorithm.HS256, LEGACY_SECRET)
+                .compact();
+
+        assertEquals("one", ring.getSigningKeyId());
+        assertEquals("alice", ring.decode(legacyToken).getToken().getSubject());
+    }
+
+    @Test
+    void testRefusesRingWithoutActiveKey() throws IOException {
+        writeKey("one", SECRET_1, ROTATION);
+
+        assertThrows(IllegalStateException.class, () -> JwtKeyRing.load(directory, 300, clock));
+    }
+
+    private JwtTokenProvider provider(JwtKeyRing ring) {
+        return new JwtTokenProvider(ring, new TokenRevocationFilter(new InMemoryAccessTokenDenylist(), 1000, 0.01),
+                100);
+    }
+
+    private void writeKey(String kid, String secret, Instant activatesAt) throws IOException {
+        String json = "{\"kid\": \"" + kid + "\", \"alg\": \"HS256\", \"secret\": \"" + secret + "\", "
+                + "\"activatesAt\": \"" + activatesAt + "\"}";
+        Files.write(directory.resolve(kid + ".json"), json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private volatile Instant instant;
+
+        MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
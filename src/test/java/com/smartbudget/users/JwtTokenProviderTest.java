@@ -0,0 +1,144 @@
+package com.smartbudget.users;
+
+import com.smartbudget.users.security.HmacJwsSigner;
+import com.smartbudget.users.security.InMemoryAccessTokenDenylist;
+import com.smartbudget.users.security.JwtTokenProvider;
+import com.smartbudget.users.security.TokenVerification;
+import com.smartbudget.users.security.PemKeys;
+import com.smartbudget.users.security.PermissionSet;
+import com.smartbudget.users.security.RsaJwsSigner;
+import com.smartbudget.users.security.TokenRevocationFilter;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.FileSystemResource;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtTokenProviderTest {
+
+    private static final String SECRET = "4BjKlm8pP2qN6tR7s9XyVZ3aH0FgW5yQ";
+
+    private JwtTokenProvider jwtTokenProvider;
+
+    @BeforeEach
+    void setUp() {
+        jwtTokenProvider = new JwtTokenProvider(new HmacJwsSigner(SECRET), revocationFilter(), 100);
+    }
+
+    @Test
+    void testVerifyValidToken() {
+        String token = jwtTokenProvider.generateToken("testuser", 3600);
+
+        TokenVerification first = jwtTokenProvider.verify(token);
+        TokenVerification second = jwtTokenProvider.verify(token);
+
+        assertTrue(first.isValid());
+        assertEquals("testuser", first.getToken().getSubject());
+        assertSame(first.getToken(), second.getToken());
+        assertEquals("testuser", jwtTokenProvider.getUsername(token));
+    }
+
+    @Test
+    void testRefreshTokenClaims() {
+        String token = jwtTokenProvider.generateRefreshToken("testuser", "family", "jti", 3600);
+
+        TokenVerification verification = jwtTokenProvider.verify(token);
+
+        assertTrue(verification.getToken().isRefreshToken());
+        assertEquals("family", verification.getToken().getFamilyId());
+        assertEquals("jti", verification.getToken().getTokenId());
+        assertFalse(jwtTokenProvider.verify(jwtTokenProvider.generateToken("testuser", 3600)).getToken().isRefreshToken());
+    }
+
+    @Test
+    void testPermissionsClaim() {
+        PermissionSet permissions = PermissionSet.of(List.of(1L, 2L, 9L, 130L));
+
+        String token = jwtTokenProvider.generateToken("testuser", permissions, 3600);
+
+        assertEquals(permissions, jwtTokenProvider.verify(token).getToken().getPermissions());
+        assertEquals(permissions.encode(),
+                Jwts.parser().setSigningKey(SECRET).parseClaimsJws(token).getBody().get("prm"));
+        assertTrue(jwtTokenProvider.verify(jwtTokenProvider.generateToken("testuser", 3600)).getToken()
+                .getPermissions().isEmpty());
+    }
+
+    @Test
+    void testRevokedToken() {
+        String token = jwtTokenProvider.generateToken("testuser", 3600);
+        TokenVerification verification = jwtTokenProvider.verify(token);
+
+        jwtTokenProvider.revoke(verification.getToken());
+
+        assertEquals(TokenVerification.Failure.REVOKED, jwtTokenProvider.verify(token).getFailure());
+        assertTrue(jwtTokenProvider.verify(jwtTokenProvider.generateToken("testuser", 3600)).isValid());
+    }
+
+    @Test
+    void testVerifyTamperedToken() {
+        String token = jwtTokenProvider.generateToken("testuser", 3600);
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BB" : "AA");
+
+        TokenVerification verification = jwtTokenProvider.verify(tampered);
+
+        assertFalse(verification.isValid());
+        assertEquals(TokenVerification.Failure.BAD_SIGNATURE, verification.getFailure());
+    }
+
+    @Test
+    void testVerifyExpiredToken() {
+        String token = jwtTokenProvider.generateToken("testuser", -60);
+
+        TokenVerification verification = jwtTokenProvider.verify(token);
+
+        assertEquals(TokenVerification.Failure.EXPIRED, verification.getFailure());
+        assertFalse(jwtTokenProvider.validateToken(token));
+    }
+
+    @Test
+    void testVerifyMalformedToken() {
+        assertEquals(TokenVerification.Failure.MALFORMED, jwtTokenProvider.verify("invalidtoken").getFailure());
+        assertEquals(TokenVerification.Failure.MALFORMED, jwtTokenProvider.verify(null).getFailure());
+        assertNull(jwtTokenProvider.getUsername("invalidtoken"));
+    }
+
+    @Test
+    void testCompatibleWithJjwtTokens() {
+        String jjwtToken = Jwts.builder()
+                .setSubject("testuser")
+                .setIssuedAt(new Date())
+                .setExpiration(new Date(System.currentTimeMillis() + 3600_000))
+                .signWith(SignatureAlgorithm.HS256, SECRET)
+                .compact();
+        assertEquals("testuser", jwtTokenProvider.getUsername(jjwtToken));
+
+        String token = jwtTokenProvider.generateToken("testuser", 3600);
+        Claims claims = Jwts.parser().setSigningKey(SECRET).parseClaimsJws(token).getBody();
+        assertEquals("testuser", claims.getSubject());
+    }
+
+    @Test
+    void testRs256Tokens() {
+        RsaJwsSigner signer = new RsaJwsSigner(
+                PemKeys.readRsaPrivateKey(new FileSystemResource("privateKey.pem")),
+                PemKeys.readRsaPublicKey(new FileSystemResource("publicKey.pem")));
+        JwtTokenProvider rsaProvider = new JwtTokenProvider(signer, revocationFilter(), 100);
+
+        String token = rsaProvider.generateToken("testuser", 3600);
+
+        assertEquals("testuser", rsaProvider.getUsername(token));
+        assertEquals("testuser", Jwts.parser().setSigningKey(signer.getPublicKey()).parseClaimsJws(token).getBody().getSubject());
+        assertEquals(TokenVerification.Failure.UNSUPPORTED, jwtTokenProvider.verify(token).getFailure());
+        assertEquals(signer.getKeyId(), signer.getPublicJwk().get("kid"));
+    }
+
+    private static TokenRevocationFilter revocationFilter() {
+        return new TokenRevocationFilter(new InMemoryAccessTokenDenylist(), 1000, 0.01);
+    }
+}
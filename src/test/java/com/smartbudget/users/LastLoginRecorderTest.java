@@ -0,0 +1,109 @@
+package com.smartbudget.users;
+
+import com.smartbudget.users.service.LastLoginRecorder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class LastLoginRecorderTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private LastLoginRecorder recorder;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.initMocks(this);
+        recorder = new LastLoginRecorder(jdbcTemplate, 3, 100);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testCoalescesLoginsPerUser() {
+        LocalDateTime first = LocalDateTime.of(2024, 1, 1, 10, 0);
+        LocalDateTime second = first.plusMinutes(5);
+        recorder.record(1L, second);
+        recorder.record(1L, first);
+        recorder.record(2L, first);
+
+        recorder.flush();
+
+        ArgumentCaptor<Collection<Map.Entry<Long, LocalDateTime>>> batch = ArgumentCaptor.forClass(Collection.class);
+        verify(jdbcTemplate).batchUpdate(anyString(), batch.capture(), eq(100), any(ParameterizedPreparedStatementSetter.class));
+        assertEquals(2, batch.getValue().size());
+        assertTrue(batch.getValue().contains(Map.entry(1L, second)));
+        assertEquals(0, recorder.getPendingCount());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testFlushesEarlyWhenFull() {
+        LocalDateTime now = LocalDateTime.now();
+        recorder.record(1L, now);
+        recorder.record(2L, now);
+        verifyNoInteractions(jdbcTemplate);
+
+        recorder.record(3L, now);
+
+        verify(jdbcTemplate).batchUpdate(anyString(), anyCollection(), eq(100), any(ParameterizedPreparedStatementSetter.class));
+        assertEquals(0, recorder.getPendingCount());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testKeepsTimestampsWhenFlushFails() {
+        when(jdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+                .thenThrow(new DataAccessResourceFailureException("down"));
+        recorder.record(1L, LocalDateTime.now());
+
+        recorder.flush();
+
+        assertEquals(1, recorder.getPendingCount());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testStopsFlushingOnLoginsWhileFlushesFail() {
+        when(jdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+                .thenThrow(new DataAccessResourceFailureException("down"));
+        LocalDateTime now = LocalDateTime.now();
+        recorder.record(1L, now);
+        recorder.record(2L, now);
+        recorder.flush();
+
+        // Full, but the last flush failed: logins neither flush nor grow the buffer
+        recorder.record(3L, now);
+        recorder.record(4L, now);
+        recorder.record(1L, now.plusMinutes(1));
+
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), anyCollection(), anyInt(),
+                any(ParameterizedPreparedStatementSetter.class));
+        assertEquals(3, recorder.getPendingCount());
+        assertEquals(1, recorder.getDroppedCount());
+
+        // The scheduled flush retries; once it succeeds, logins flush early again
+        reset(jdbcTemplate);
+        recorder.flush();
+        assertEquals(0, recorder.getPendingCount());
+        recorder.record(5L, now);
+        recorder.record(6L, now);
+        recorder.record(7L, now);
+        verify(jdbcTemplate, times(2)).batchUpdate(anyString(), anyCollection(), anyInt(),
+                any(ParameterizedPreparedStatementSetter.class));
+        assertEquals(0, recorder.getPendingCount());
+    }
+}
@@ -0,0 +1,111 @@
+package com.smartbudget.users;
+
+import com.smartbudget.users.security.OffloadingPasswordEncoder;
+import com.smartbudget.users.security.PasswordHashingUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OffloadingPasswordEncoderTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final ExecutorService callers = Executors.newFixedThreadPool(2);
+
+    private final PasswordEncoder blockingEncoder = new PasswordEncoder() {
+        @Override
+        public String encode(CharSequence rawPassword) {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "encoded" + rawPassword;
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            return encode(rawPassword).equals(encodedPassword);
+        }
+    };
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        callers.shutdownNow();
+    }
+
+    @Test
+    void testEncodeRunsOnHashingPool() {
+        release.countDown();
+        OffloadingPasswordEncoder encoder = new OffloadingPasswordEncoder(blockingEncoder, 1, 1, 1);
+
+        assertEquals("encodedpassword", encoder.encode("password"));
+        assertTrue(encoder.matches("password", "encodedpassword"));
+        assertEquals(2, encoder.getCompletedCount());
+        encoder.destroy();
+    }
+
+    @Test
+    void testRecordsHashLatencyPerOperation() {
+        release.countDown();
+        OffloadingPasswordEncoder encoder = new OffloadingPasswordEncoder(blockingEncoder, 1, 1, 1);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        encoder.bindTo(registry);
+
+        encoder.encode("password");
+        encoder.matches("password", "encodedpassword");
+
+        // matches encodes internally in this fake, but only the call through the pool is timed
+        assertEquals(1, registry.get("auth.password.hash").tag("operation", "encode").timer().count());
+        assertEquals(1, registry.get("auth.password.hash").tag("operation", "match").timer().count());
+        assertEquals(2, registry.get("auth.password.queue.wait").timer().count());
+        assertEquals(0, registry.get("auth.password.rejected").functionCounter().count());
+        encoder.destroy();
+    }
+
+    @Test
+    void testEncodeAllWaitsForCapacityInsteadOfRejecting() {
+        release.countDown();
+        OffloadingPasswordEncoder encoder = new OffloadingPasswordEncoder(blockingEncoder, 2, 1, 1);
+
+        List<String> encoded = encoder.encodeAll(List.of("a", "b", "c", "d", "e"));
+
+        assertEquals(List.of("encodeda", "encodedb", "encodedc", "encodedd", "encodede"), encoded);
+        assertEquals(5, encoder.getCompletedCount());
+        assertEquals(0, encoder.getRejectedCount());
+        encoder.destroy();
+    }
+
+    @Test
+    void testRejectsWhenQueueIsFull() throws Exception {
+        OffloadingPasswordEncoder encoder = new OffloadingPasswordEncoder(blockingEncoder, 1, 1, 5);
+        callers.submit(() -> encoder.encode("first"));
+        waitUntil(() -> encoder.getActiveCount() == 1);
+        callers.submit(() -> encoder.encode("second"));
+        waitUntil(() -> encoder.getQueueDepth() == 1);
+
+        PasswordHashingUnavailableException e = assertThrows(PasswordHashingUnavailableException.class,
+                () -> encoder.encode("third"));
+        assertEquals(5, e.getRetryAfterSeconds());
+        assertEquals(1, encoder.getRejectedCount());
+        encoder.destroy();
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not reached");
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.smartbudget.users;
+
+import com.smartbudget.users.model.Permission;
+import com.smartbudget.users.repository.PermissionGrant;
+import com.smartbudget.users.repository.PermissionRepository;
+import com.smartbudget.users.security.PermissionSet;
+import com.smartbudget.users.service.PermissionIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class PermissionIndexTest {
+
+    @Mock
+    private PermissionRepository permissionRepository;
+
+    private PermissionIndex permissionIndex;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.initMocks(this);
+        permissionIndex = new PermissionIndex(permissionRepository);
+    }
+
+    @Test
+    void testPermissionSetEncoding() {
+        PermissionSet permissions = PermissionSet.of(List.of(1L, 2L, 9L));
+
+        assertEquals("BgI", permissions.encode());
+        assertEquals(permissions, PermissionSet.decode("BgI"));
+        assertArrayEquals(new long[]{1, 2, 9}, permissions.toIds());
+        assertTrue(permissions.contains(9));
+        assertFalse(permissions.contains(3));
+        assertSame(PermissionSet.EMPTY, permissions.without(1).without(2).without(9));
+        assertEquals(PermissionSet.of(List.of(200L)), PermissionSet.decode(PermissionSet.of(List.of(200L)).encode()));
+    }
+
+    @Test
+    void testReloadBuildsIndexFromRepository() {
+        when(permissionRepository.findAll()).thenReturn(List.of(permission(1L, "budgets:read"), permission(2L, "roles:manage")));
+        when(permissionRepository.findAllGrants()).thenReturn(List.of(
+                new PermissionGrant("alice", 1L), new PermissionGrant("alice", 2L), new PermissionGrant("bob", 1L)));
+
+        permissionIndex.reload();
+
+        assertEquals(PermissionSet.of(List.of(1L, 2L)), permissionIndex.permissionsOf("alice"));
+        assertEquals(PermissionSet.of(List.of(1L)), permissionIndex.permissionsOf("bob"));
+        assertSame(PermissionSet.EMPTY, permissionIndex.permissionsOf("carol"));
+        assertEquals("roles:manage", permissionIndex.getNames().get(2L));
+    }
+
+    @Test
+    void testEditsReplaceSnapshotWithoutTouchingRepository() {
+        when(permissionRepository.findAll()).thenReturn(List.of(permission(1L, "budgets:read")));
+        when(permissionRepository.findAllGrants()).thenReturn(List.of(new PermissionGrant("alice", 1L)));
+        permissionIndex.reload();
+        PermissionSet before = permissionIndex.permissionsOf("alice");
+
+        permissionIndex.grant("alice", permission(5L, "reports:export"));
+        permissionIndex.rename("alice", "alicia");
+        permissionIndex.revoke("alicia", 1L);
+
+        assertEquals(PermissionSet.of(List.of(1L)), before);
+        assertSame(PermissionSet.EMPTY, permissionIndex.permissionsOf("alice"));
+        assertEquals(PermissionSet.of(List.of(5L)), permissionIndex.permissionsOf("alicia"));
+        assertEquals("reports:export", permissionIndex.getNames().get(5L));
+
+        permissionIndex.remove("alicia");
+
+        assertSame(PermissionSet.EMPTY, permissionIndex.permissionsOf("alicia"));
+        verify(permissionRepository, times(1)).findAllGrants();
+    }
+
+    private static Permission permission(Long id, String name) {
+        Permission permission = new Permission();
+        permission.setId(id);
+        permission.setPermission(name);
+        return permission;
+    }
+}
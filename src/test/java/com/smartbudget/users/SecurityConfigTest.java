@@ -0,0 +1,109 @@
+package com.smartbudget.users;
+
+import com.smartbudget.users.config.SecurityConfig;
+import com.smartbudget.users.security.HmacJwsSigner;
+import com.smartbudget.users.security.InMemoryAccessTokenDenylist;
+import com.smartbudget.users.security.JwtTokenProvider;
+import com.smartbudget.users.security.PermissionSet;
+import com.smartbudget.users.security.TokenRevocationFilter;
+import com.smartbudget.users.service.PermissionIndex;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.mock.web.MockServletContext;
+import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.support.AnnotationConfigWebApplicationContext;
+import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+
+import javax.servlet.Filter;
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * The access rules of {@link SecurityConfig}, through the real filter chain in front of stub endpoints.
+ */
+class SecurityConfigTest {
+
+    private static final JwtTokenProvider JWT_TOKEN_PROVIDER = new JwtTokenProvider(
+            new HmacJwsSigner("4BjKlm8pP2qN6tR7s9XyVZ3aH0FgW5yQ"),
+            new TokenRevocationFilter(new InMemoryAccessTokenDenylist(), 1000, 0.01), 100);
+
+    private AnnotationConfigWebApplicationContext context;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        context = new AnnotationConfigWebApplicationContext();
+        context.setServletContext(new MockServletContext());
+        context.register(TestConfig.class);
+        context.refresh();
+        mockMvc = MockMvcBuilders.webAppContextSetup(context)
+                .addFilters(context.getBean("springSecurityFilterChain", Filter.class))
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        context.close();
+    }
+
+    @Test
+    void testIntrospectionRequiresPermission() throws Exception {
+        String withPermission = JWT_TOKEN_PROVIDER.generateToken("service", PermissionSet.of(List.of(1L)), 3600);
+        String withoutPermission = JWT_TOKEN_PROVIDER.generateToken("testuser", PermissionSet.of(List.of(2L)), 3600);
+
+        mockMvc.perform(post("/auth/introspect")).andExpect(status().isUnauthorized());
+        mockMvc.perform(post("/auth/introspect").header("Authorization", "Bearer " + withoutPermission))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(post("/auth/introspect").header("Authorization", "Bearer " + withPermission))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void testOtherAuthEndpointsStayOpen() throws Exception {
+        mockMvc.perform(post("/auth/login")).andExpect(status().isOk());
+    }
+
+    @Configuration
+    @EnableWebMvc
+    @EnableWebSecurity
+    @Import({SecurityConfig.class, StubController.class})
+    static class TestConfig {
+
+        @Bean
+        JwtTokenProvider jwtTokenProvider() {
+            return JWT_TOKEN_PROVIDER;
+        }
+
+        @Bean
+        PermissionIndex permissionIndex() {
+            PermissionIndex permissionIndex = mock(PermissionIndex.class);
+            when(permissionIndex.getNames()).thenReturn(Map.of(1L, SecurityConfig.INTROSPECT_TOKENS,
+                    2L, "budgets:read"));
+            return permissionIndex;
+        }
+    }
+
+    @RestController
+    static class StubController {
+
+        @PostMapping("/auth/introspect")
+        void introspect() {
+        }
+
+        @PostMapping("/auth/login")
+        void login() {
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.smartbudget.users;
+
+import com.smartbudget.users.dto.TokenIntrospection;
+import com.smartbudget.users.security.HmacJwsSigner;
+import com.smartbudget.users.security.InMemoryAccessTokenDenylist;
+import com.smartbudget.users.security.JwtTokenProvider;
+import com.smartbudget.users.security.PermissionSet;
+import com.smartbudget.users.security.TokenRevocationFilter;
+import com.smartbudget.users.service.PermissionIndex;
+import com.smartbudget.users.service.TokenIntrospectionService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class TokenIntrospectionServiceTest {
+
+    private JwtTokenProvider jwtTokenProvider;
+    private TokenIntrospectionService tokenIntrospectionService;
+
+    @BeforeEach
+    void setUp() {
+        jwtTokenProvider = new JwtTokenProvider(new HmacJwsSigner("4BjKlm8pP2qN6tR7s9XyVZ3aH0FgW5yQ"),
+                new TokenRevocationFilter(new InMemoryAccessTokenDenylist(), 1000, 0.01), 100);
+        PermissionIndex permissionIndex = mock(PermissionIndex.class);
+        when(permissionIndex.getNames()).thenReturn(Map.of(1L, "budgets:read", 2L, "roles:manage"));
+        tokenIntrospectionService = new TokenIntrospectionService(jwtTokenProvider, permissionIndex, 100, 30, 4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        tokenIntrospectionService.destroy();
+    }
+
+    @Test
+    void testIntrospectsEachTokenInOrder() {
+        String access = jwtTokenProvider.generateToken("alice", PermissionSet.of(List.of(1L, 3L)), 3600);
+        String refresh = jwtTokenProvider.generateRefreshToken("alice", "family", "jti", 3600);
+        String revoked = jwtTokenProvider.generateToken("bob", 3600);
+        jwtTokenProvider.revoke(jwtTokenProvider.verify(revoked).getToken());
+
+        List<TokenIntrospection> results = tokenIntrospectionService.introspect(List.of(
+                access, refresh, revoked, jwtTokenProvider.generateToken("carol", -60), "garbage"));
+
+        assertEquals(5, results.size());
+        assertTrue(results.get(0).isActive());
+        assertEquals("access", results.get(0).getTokenType());
+        assertEquals("alice", results.get(0).getSubject());
+        assertEquals(List.of("budgets:read"), results.get(0).getPermissions());
+        assertEquals("refresh", results.get(1).getTokenType());
+        assertFalse(results.get(2).isActive());
+        assertTrue(results.get(2).isRevoked());
+        assertEquals("revoked", results.get(2).getError());
+        assertEquals("expired", results.get(3).getError());
+        assertEquals("malformed", results.get(4).getError());
+        assertNull(results.get(4).getSubject());
+    }
+
+    @Test
+    void testLargeBatchIsSplitWithoutReordering() {
+        List<String> tokens = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            tokens.add(jwtTokenProvider.generateToken("user" + i, 3600));
+        }
+
+        List<TokenIntrospection> results = tokenIntrospectionService.introspect(tokens);
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals("user" + i, results.get(i).getSubject());
+        }
+    }
+
+    @Test
+    void testCacheSecondsFollowFirstExpiryUpToTheCap() {
+        List<TokenIntrospection> longLived = tokenIntrospectionService.introspect(List.of(
+                jwtTokenProvider.generateToken("alice", 3600), "garbage"));
+        List<TokenIntrospection> shortLived = tokenIntrospectionService.introspect(List.of(
+                jwtTokenProvider.generateToken("alice", 3600), jwtTokenProvider.generateToken("bob", 10)));
+
+        assertEquals(30, tokenIntrospectionService.cacheSeconds(longLived));
+        long seconds = tokenIntrospectionService.cacheSeconds(shortLived);
+        assertTrue(seconds > 0 && seconds <= 10, "cache seconds " + seconds);
+    }
+}
@@ -0,0 +1,60 @@
+package com.smartbudget.users;
+
+import com.smartbudget.users.security.AccessTokenDenylist;
+import com.smartbudget.users.security.BloomFilter;
+import com.smartbudget.users.security.InMemoryAccessTokenDenylist;
+import com.smartbudget.users.security.TokenRevocationFilter;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class TokenRevocationFilterTest {
+
+    @Test
+    void testBloomFilterHasNoFalseNegativesAndFewFalsePositives() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put("revoked-" + i);
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(filter.mightContain("revoked-" + i));
+            if (filter.mightContain("valid-" + i)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 300, "false positives: " + falsePositives);
+    }
+
+    @Test
+    void testUnrevokedTokensSkipDenylist() {
+        AccessTokenDenylist denylist = spy(new InMemoryAccessTokenDenylist());
+        TokenRevocationFilter filter = new TokenRevocationFilter(denylist, 1000, 0.0001);
+        String revoked = UUID.randomUUID().toString();
+        filter.revoke(revoked, Instant.now().plusSeconds(60));
+
+        assertTrue(filter.isRevoked(revoked));
+        assertFalse(filter.isRevoked(UUID.randomUUID().toString()));
+        verify(denylist, times(1)).isRevoked(anyString());
+    }
+
+    @Test
+    void testRebuildDropsExpiredAndKeepsLive() {
+        InMemoryAccessTokenDenylist denylist = new InMemoryAccessTokenDenylist();
+        TokenRevocationFilter filter = new TokenRevocationFilter(denylist, 1000, 0.0001);
+        String live = UUID.randomUUID().toString();
+        String expired = UUID.randomUUID().toString();
+        filter.revoke(live, Instant.now().plusSeconds(60));
+        filter.revoke(expired, Instant.now().minusSeconds(1));
+
+        filter.rebuild();
+
+        assertTrue(filter.isRevoked(live));
+        assertFalse(filter.isRevoked(expired));
+        assertEquals(0, filter.getFalsePositives());
+    }
+}
@@ -0,0 +1,62 @@
+package com.smartbudget.users;
+
+import com.smartbudget.users.config.UniqueConstraintCheck;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class UniqueConstraintCheckTest {
+
+    @Test
+    void testPassesWithBothConstraints() throws Exception {
+        DataSource dataSource = dataSource(false, List.of(
+                new String[]{"users_pkey", "user_id"},
+                new String[]{"uk_users_username", "username"},
+                new String[]{"uk_users_email", "email"}));
+
+        assertDoesNotThrow(() -> new UniqueConstraintCheck(dataSource).afterSingletonsInstantiated());
+    }
+
+    @Test
+    void testFailsWithoutEmailConstraint() throws Exception {
+        // A composite index does not make email unique on its own
+        DataSource dataSource = dataSource(true, List.of(
+                new String[]{"UK_USERS_USERNAME", "USERNAME"},
+                new String[]{"UK_USERS_EMAIL_ACTIVE", "EMAIL"},
+                new String[]{"UK_USERS_EMAIL_ACTIVE", "ACTIVE"}));
+
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> new UniqueConstraintCheck(dataSource).afterSingletonsInstantiated());
+        assertTrue(e.getMessage().contains("on email"), e.getMessage());
+    }
+
+    private static DataSource dataSource(boolean upperCase, List<String[]> indexColumns) throws Exception {
+        DataSource dataSource = mock(DataSource.class);
+        Connection connection = mock(Connection.class);
+        DatabaseMetaData metaData = mock(DatabaseMetaData.class);
+        ResultSet rows = mock(ResultSet.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.getMetaData()).thenReturn(metaData);
+        when(metaData.storesUpperCaseIdentifiers()).thenReturn(upperCase);
+        String schema = upperCase ? "USERS_AUTH" : "users_auth";
+        String table = upperCase ? "USERS" : "users";
+        when(metaData.getIndexInfo(null, schema, table, true, true)).thenReturn(rows);
+        Iterator<String[]> iterator = indexColumns.iterator();
+        String[][] current = new String[1][];
+        when(rows.next()).thenAnswer(invocation -> {
+            current[0] = iterator.hasNext() ? iterator.next() : null;
+            return current[0] != null;
+        });
+        when(rows.getString("INDEX_NAME")).thenAnswer(invocation -> current[0][0]);
+        when(rows.getString("COLUMN_NAME")).thenAnswer(invocation -> current[0][1]);
+        return dataSource;
+    }
+}
@@ -0,0 +1,70 @@
+package com.smartbudget.users;
+
+import com.smartbudget.users.repository.UserCredentials;
+import com.smartbudget.users.repository.UserRepository;
+import com.smartbudget.users.service.UserCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class UserCacheTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    private UserCache userCache;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.initMocks(this);
+        userCache = new UserCache(userRepository, 100, 60, 60);
+    }
+
+    @Test
+    void testRepeatedLookupsHitCache() {
+        UserCredentials user = new UserCredentials(1L, "testuser", "test@example.com", "hash", true);
+        when(userRepository.findCredentialsByEmail("test@example.com")).thenReturn(user);
+
+        assertSame(user, userCache.findByEmail("test@example.com"));
+        assertSame(user, userCache.findByEmail("test@example.com"));
+        assertSame(user, userCache.findByUsername("testuser"));
+        assertSame(user, userCache.findById(1L));
+
+        verify(userRepository, times(1)).findCredentialsByEmail("test@example.com");
+        verifyNoMoreInteractions(userRepository);
+        assertEquals(2, userCache.getStats().get("email").requestCount());
+    }
+
+    @Test
+    void testUnknownEmailIsRememberedUntilEvicted() {
+        UserCredentials user = new UserCredentials(1L, "testuser", "new@example.com", "hash", true);
+        when(userRepository.findCredentialsByEmail("new@example.com")).thenReturn(null, user);
+
+        assertNull(userCache.findByEmail("new@example.com"));
+        assertNull(userCache.findByEmail("new@example.com"));
+        verify(userRepository, times(1)).findCredentialsByEmail("new@example.com");
+
+        userCache.evictMissing("new@example.com");
+
+        assertSame(user, userCache.findByEmail("new@example.com"));
+        assertEquals(1, userCache.getStats().get("missing-email").hitCount());
+    }
+
+    @Test
+    void testEvictByIdInvalidatesEmailAndUsername() {
+        UserCredentials before = new UserCredentials(1L, "testuser", "test@example.com", "hash", true);
+        UserCredentials after = new UserCredentials(1L, "testuser", "new@example.com", "hash", true);
+        when(userRepository.findCredentialsByEmail("test@example.com")).thenReturn(before, (UserCredentials) null);
+        when(userRepository.findCredentialsById(1L)).thenReturn(after);
+
+        userCache.findByEmail("test@example.com");
+        userCache.evict(1L);
+
+        assertNull(userCache.findByEmail("test@example.com"));
+        assertSame(after, userCache.findByUsername("testuser"));
+    }
+}
@@ -0,0 +1,95 @@
+package com.smartbudget.users;
+
+import com.smartbudget.users.dto.UserEvent;
+import com.smartbudget.users.service.InMemoryUserEventSink;
+import com.smartbudget.users.service.UserEventRelay;
+import com.smartbudget.users.service.UserEventSink;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class UserEventRelayTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+    }
+
+    @Test
+    void testDrainsFullBatchesInOrderAndDeletesThem() {
+        InMemoryUserEventSink sink = new InMemoryUserEventSink();
+        when(jdbcTemplate.query(anyString(), ArgumentMatchers.<RowMapper<UserEvent>>any(), eq(2)))
+                .thenReturn(List.of(event(1), event(2)), List.of(event(3)));
+        UserEventRelay relay = new UserEventRelay(jdbcTemplate, transactionTemplate, sink, 2);
+
+        relay.relay();
+
+        assertEquals(List.of(1L, 2L, 3L),
+                sink.getEvents().stream().map(UserEvent::getEventId).collect(Collectors.toList()));
+        verify(jdbcTemplate, times(2)).batchUpdate(anyString(), anyCollection(), anyInt(), any());
+        assertEquals(3, relay.getPublishedCount());
+        assertEquals(0, relay.getLagMillis());
+    }
+
+    @Test
+    void testFailedPublishKeepsEventsAndReportsLag() {
+        UserEventSink sink = mock(UserEventSink.class);
+        doThrow(new IllegalStateException("broker down")).when(sink).publish(anyList());
+        when(jdbcTemplate.query(anyString(), ArgumentMatchers.<RowMapper<UserEvent>>any(), eq(2)))
+                .thenReturn(List.of(event(1), event(2)));
+        UserEventRelay relay = new UserEventRelay(jdbcTemplate, transactionTemplate, sink, 2);
+
+        relay.relay();
+
+        verify(sink, times(1)).publish(anyList());
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyCollection(), anyInt(), any());
+        assertEquals(0, relay.getPublishedCount());
+        assertEquals(1, relay.getFailureCount());
+        assertTrue(relay.getLagMillis() >= 60_000, "lag " + relay.getLagMillis());
+    }
+
+    @Test
+    void testEmptyOutboxPublishesNothing() {
+        UserEventSink sink = mock(UserEventSink.class);
+        when(jdbcTemplate.query(anyString(), ArgumentMatchers.<RowMapper<UserEvent>>any(), eq(2)))
+                .thenReturn(List.of());
+        UserEventRelay relay = new UserEventRelay(jdbcTemplate, transactionTemplate, sink, 2);
+
+        relay.relay();
+
+        verifyNoInteractions(sink);
+        assertEquals(0, relay.getLagMillis());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testRefusesToStartWithoutSink() {
+        ObjectProvider<UserEventSink> sinks = mock(ObjectProvider.class);
+
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> new UserEventRelay(jdbcTemplate, transactionTemplate, sinks, 2));
+        assertTrue(e.getMessage().contains("auth.outbox.sink"), e.getMessage());
+    }
+
+    private static UserEvent event(long eventId) {
+        return new UserEvent(eventId, UserEvent.Type.CREATED, eventId, "user" + eventId,
+                "user" + eventId + "@example.com", Instant.now().minusSeconds(60));
+    }
+}
@@ -0,0 +1,164 @@
+package com.smartbudget.users;
+
+import com.smartbudget.users.dto.UserEvent;
+import com.smartbudget.users.dto.UserFilter;
+import com.smartbudget.users.dto.UserPage;
+import com.smartbudget.users.dto.UserSummary;
+import com.smartbudget.users.model.User;
+import com.smartbudget.users.repository.UserCredentials;
+import com.smartbudget.users.repository.UserRepository;
+import com.smartbudget.users.service.PermissionIndex;
+import com.smartbudget.users.service.RefreshTokenService;
+import com.smartbudget.users.service.UserCache;
+import com.smartbudget.users.service.UserEventOutbox;
+import com.smartbudget.users.service.UserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class UserServiceTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private PasswordEncoder passwordEncoder;
+
+    @Mock
+    private UserCache userCache;
+
+    @Mock
+    private PermissionIndex permissionIndex;
+
+    @Mock
+    private UserEventOutbox userEventOutbox;
+
+    @Mock
+    private RefreshTokenService refreshTokenService;
+
+    private UserService userService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.initMocks(this);
+        userService = new UserService(userRepository, passwordEncoder, userCache, permissionIndex, userEventOutbox,
+                refreshTokenService, new TransactionTemplate(mock(PlatformTransactionManager.class)));
+    }
+
+    @Test
+    void testListUsersReturnsCursorWhenMoreUsersExist() {
+        UserFilter filter = new UserFilter();
+        when(userRepository.findSummaries(filter, 10L, 4)).thenReturn(summaries(11, 14));
+
+        UserPage page = userService.listUsers(filter, 10L, 3);
+
+        assertEquals(List.of(11L, 12L, 13L), ids(page));
+        assertEquals(13L, page.getNextCursor());
+    }
+
+    @Test
+    void testListUsersLastPageHasNoCursor() {
+        UserFilter filter = new UserFilter();
+        when(userRepository.findSummaries(filter, null, 4)).thenReturn(summaries(1, 2));
+
+        UserPage page = userService.listUsers(filter, null, 3);
+
+        assertEquals(List.of(1L, 2L), ids(page));
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void testListUsersCapsPageSize() {
+        UserFilter filter = new UserFilter();
+        when(userRepository.findSummaries(any(), any(), anyInt())).thenReturn(List.of());
+
+        userService.listUsers(filter, null, 1_000_000);
+        userService.listUsers(filter, null, 0);
+
+        verify(userRepository).findSummaries(filter, null, UserService.MAX_PAGE_SIZE + 1);
+        verify(userRepository).findSummaries(filter, null, 2);
+    }
+
+    @Test
+    void testCreateUserAppendsCreatedEvent() {
+        User user = new User();
+        user.setUsername("alice");
+        user.setEmail("alice@example.com");
+        user.setPassword("password");
+        when(userRepository.save(user)).thenAnswer(invocation -> {
+            user.setId(42L);
+            return user;
+        });
+
+        userService.createUser(user);
+
+        verify(userEventOutbox).append(UserEvent.Type.CREATED, 42L, "alice", "alice@example.com");
+        verify(userCache).evict(42L);
+    }
+
+    @Test
+    void testUpdateUserAppendsUpdatedEventAndRenames() {
+        User existing = new User();
+        existing.setId(7L);
+        existing.setUsername("alice");
+        User updated = new User();
+        updated.setUsername("alicia");
+        updated.setEmail("alicia@example.com");
+        updated.setPassword("password");
+        when(userRepository.findById(7L)).thenReturn(Optional.of(existing));
+        when(userRepository.save(existing)).thenReturn(existing);
+
+        userService.updateUser(7L, updated);
+
+        verify(userEventOutbox).append(UserEvent.Type.UPDATED, 7L, "alicia", "alicia@example.com");
+        verify(permissionIndex).rename("alice", "alicia");
+        verify(refreshTokenService).revokeAll("alice");
+    }
+
+    @Test
+    void testDeleteUserAppendsNoEventWhenNothingIsDeleted() {
+        when(userCache.findById(7L)).thenReturn(null);
+        doThrow(new EmptyResultDataAccessException(1)).when(userRepository).deleteById(7L);
+
+        assertThrows(EmptyResultDataAccessException.class, () -> userService.deleteUser(7L));
+
+        verifyNoInteractions(userEventOutbox);
+    }
+
+    @Test
+    void testDeleteUserAppendsDeletedEventWithLastKnownName() {
+        when(userCache.findById(7L)).thenReturn(new UserCredentials(7L, "alice", "alice@example.com", "hash", true));
+
+        userService.deleteUser(7L);
+
+        verify(userEventOutbox).append(UserEvent.Type.DELETED, 7L, "alice", "alice@example.com");
+        verify(permissionIndex).remove("alice");
+        verify(refreshTokenService).revokeAll("alice");
+    }
+
+    private static List<UserSummary> summaries(long fromId, long toId) {
+        LocalDateTime createdAt = LocalDateTime.of(2024, 1, 1, 10, 0);
+        return LongStream.rangeClosed(fromId, toId)
+                .mapToObj(id -> new UserSummary(id, "user" + id, "user" + id + "@example.com", true, createdAt, null))
+                .collect(Collectors.toList());
+    }
+
+    private static List<Long> ids(UserPage page) {
+        return page.getUsers().stream().map(UserSummary::getId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,182 @@
+package com.smartbudget.users;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.smartbudget.users.dto.ImportResponse;
+import com.smartbudget.users.dto.UserEvent;
+import com.smartbudget.users.dto.UserRecord;
+import com.smartbudget.users.repository.UserRepository;
+import com.smartbudget.users.service.UserCache;
+import com.smartbudget.users.service.UserEventOutbox;
+import com.smartbudget.users.service.UserTransferService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class UserTransferServiceTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PasswordEncoder passwordEncoder;
+
+    @Mock
+    private UserCache userCache;
+
+    @Mock
+    private UserEventOutbox userEventOutbox;
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    private final List<List<UserRecord>> batches = new ArrayList<>();
+    private long lastId;
+
+    private UserTransferService userTransferService;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        MockitoAnnotations.initMocks(this);
+        userTransferService = new UserTransferService(userRepository, jdbcTemplate, passwordEncoder, userCache,
+                objectMapper, userEventOutbox, new TransactionTemplate(mock(PlatformTransactionManager.class)), 2);
+        when(passwordEncoder.encode(anyString())).thenAnswer(invocation -> "hashed-" + invocation.getArgument(0));
+        when(jdbcTemplate.query(anyString(), any(PreparedStatementSetter.class), any(RowMapper.class)))
+                .thenAnswer(invocation -> {
+                    List<Object> parameters = bind(invocation.getArgument(1));
+                    assertEquals(parameters.size() / 6, countRows(invocation.getArgument(0)));
+                    List<UserRecord> batch = new ArrayList<>();
+                    List<UserRecord> created = new ArrayList<>();
+                    for (int i = 0; i < parameters.size(); i += 6) {
+                        UserRecord user = new UserRecord(null, (String) parameters.get(i),
+                                (String) parameters.get(i + 2), (String) parameters.get(i + 1),
+                                (Boolean) parameters.get(i + 3), null, null);
+                        batch.add(user);
+                        // Conflicting rows are not returned
+                        if (!user.getUsername().startsWith("dup")) {
+                            created.add(new UserRecord(++lastId, user.getUsername(), user.getEmail(),
+                                    null, user.getActive(), null, null));
+                        }
+                    }
+                    batches.add(batch);
+                    return created;
+                });
+    }
+
+    // The values the service binds, in parameter order
+    private static List<Object> bind(PreparedStatementSetter setter) throws SQLException {
+        TreeMap<Integer, Object> values = new TreeMap<>();
+        PreparedStatement ps = mock(PreparedStatement.class);
+        doAnswer(invocation -> values.put(invocation.getArgument(0), invocation.getArgument(1)))
+                .when(ps).setString(anyInt(), any());
+        doAnswer(invocation -> values.put(invocation.getArgument(0), invocation.getArgument(1)))
+                .when(ps).setBoolean(anyInt(), anyBoolean());
+        doAnswer(invocation -> values.put(invocation.getArgument(0), invocation.getArgument(1)))
+                .when(ps).setTimestamp(anyInt(), any());
+        setter.setValues(ps);
+        assertEquals(values.size(), values.lastKey());
+        return new ArrayList<>(values.values());
+    }
+
+    private static int countRows(String sql) {
+        return sql.split("nextval", -1).length - 1;
+    }
+
+    @Test
+    void testExportWritesOneLinePerUser() throws Exception {
+        LocalDateTime createdAt = LocalDateTime.of(2024, 1, 1, 10, 0);
+        when(userRepository.streamAllRecords()).thenReturn(Stream.of(
+                new UserRecord(1L, "alice", "alice@example.com", "hash-a", true, createdAt, null),
+                new UserRecord(2L, "bob", "bob@example.com", "hash-b", false, createdAt, createdAt)));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        assertEquals(2, userTransferService.exportUsers(out));
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        UserRecord first = objectMapper.readValue(lines[0], UserRecord.class);
+        assertEquals("alice", first.getUsername());
+        assertEquals("hash-a", first.getPasswordHash());
+        assertEquals(createdAt, first.getCreatedAt());
+        assertFalse(lines[0].contains("lastLogin"));
+        assertFalse(objectMapper.readValue(lines[1], UserRecord.class).getActive());
+    }
+
+    @Test
+    void testImportHashesRawPasswordsAndCountsOutcomes() throws Exception {
+        String ndjson = "{\"username\":\"alice\",\"email\":\"alice@example.com\",\"password\":\"secret\"}\n"
+                + "{\"username\":\"bob\",\"email\":\"bob@example.com\",\"passwordHash\":\"$2a$10$kept\"}\n"
+                + "\n"
+                + "{\"username\":\"carol\",\"password\":\"secret\"}\n"
+                + "not json\n"
+                + "{\"username\":\"dup\",\"email\":\"alice@example.com\",\"password\":\"secret\"}\n";
+
+        ImportResponse response = userTransferService.importUsers(
+                new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(2, response.getInserted());
+        assertEquals(1, response.getDuplicates());
+        assertEquals(2, response.getRejected());
+        assertEquals(List.of("line 4: email is required", "line 5: invalid JSON"), response.getErrors());
+        assertEquals(2, batches.size());
+        assertEquals("hashed-secret", batches.get(0).get(0).getPasswordHash());
+        assertFalse(batches.stream().flatMap(List::stream).anyMatch(user -> "secret".equals(user.getPasswordHash())));
+        assertEquals("$2a$10$kept", batches.get(0).get(1).getPasswordHash());
+        verify(passwordEncoder, times(2)).encode("secret");
+        verify(userCache).evictMissing("bob@example.com");
+        verify(userEventOutbox).appendAll(eq(UserEvent.Type.CREATED), argThat(users -> users.size() == 2
+                && users.get(0).getId() == 1L && "alice".equals(users.get(0).getUsername())
+                && "bob@example.com".equals(users.get(1).getEmail())));
+    }
+
+    @Test
+    void testImportCountsWholeBatchOfDuplicates() throws Exception {
+        String ndjson = "{\"username\":\"dup1\",\"email\":\"a@example.com\",\"passwordHash\":\"h\"}\n"
+                + "{\"username\":\"dup2\",\"email\":\"b@example.com\",\"passwordHash\":\"h\"}\n"
+                + "{\"username\":\"erin\",\"email\":\"e@example.com\",\"passwordHash\":\"h\"}\n";
+
+        ImportResponse response = userTransferService.importUsers(
+                new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(1, response.getInserted());
+        assertEquals(2, response.getDuplicates());
+        assertEquals(List.of(2, 1), List.of(batches.get(0).size(), batches.get(1).size()));
+        // No event for a batch that created nobody
+        verify(userEventOutbox, times(1)).appendAll(eq(UserEvent.Type.CREATED),
+                argThat(users -> users.size() == 1 && "erin".equals(users.get(0).getUsername())));
+    }
+
+    @Test
+    void testRejectsBatchSizeAboveParameterLimit() {
+        assertThrows(IllegalArgumentException.class, () -> new UserTransferService(userRepository, jdbcTemplate,
+                passwordEncoder, userCache, objectMapper, userEventOutbox, null, 6000));
+    }
+}
@@ -1,14 +1,20 @@
 package com.smartbudget.users;
 
+import com.smartbudget.users.dto.UserEvent;
 import com.smartbudget.users.model.User;
 import com.smartbudget.users.repository.UserRepository;
+import com.smartbudget.users.service.PermissionIndex;
+import com.smartbudget.users.service.RefreshTokenService;
+import com.smartbudget.users.service.UserCache;
+import com.smartbudget.users.service.UserEventOutbox;
 import com.smartbudget.users.service.UserService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
 import java.util.Optional;
@@ -27,12 +33,25 @@ class UsersAuthApplicationTests {
     @Mock
     private PasswordEncoder passwordEncoder;
 
-    @InjectMocks
+    @Mock
+    private UserCache userCache;
+
+    @Mock
+    private PermissionIndex permissionIndex;
+
+    @Mock
+    private UserEventOutbox userEventOutbox;
+
+    @Mock
+    private RefreshTokenService refreshTokenService;
+
     private UserService userService;
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.initMocks(this);
+        userService = new UserService(userRepository, passwordEncoder, userCache, permissionIndex, userEventOutbox,
+                refreshTokenService, new TransactionTemplate(mock(PlatformTransactionManager.class)));
     }
 
     @Test
@@ -51,8 +70,10 @@ class UsersAuthApplicationTests {
     @Test
     void testCreateUser() {
         User user = new User();
+        user.setId(1L);
         user.setUsername("testuser");
         user.setPassword("password");
+        user.setEmail("test@example.com");
 
         when(passwordEncoder.encode(anyString())).thenReturn("encodedpassword");
         when(userRepository.save(any(User.class))).thenReturn(user);
@@ -60,6 +81,7 @@ class UsersAuthApplicationTests {
         User createdUser = userService.createUser(user);
         assertNotNull(createdUser);
         assertEquals("encodedpassword", createdUser.getPassword());
+        verify(userEventOutbox).append(UserEvent.Type.CREATED, 1L, "testuser", "test@example.com");
     }
 
     @Test
@@ -72,6 +94,7 @@ class UsersAuthApplicationTests {
         User updatedUser = new User();
         updatedUser.setUsername("updateduser");
         updatedUser.setPassword("newpassword");
+        updatedUser.setEmail("updated@example.com");
 
         when(userRepository.findById(1L)).thenReturn(Optional.of(existingUser));
         when(passwordEncoder.encode(anyString())).thenReturn("encodednewpassword");
@@ -81,6 +104,8 @@ class UsersAuthApplicationTests {
         assertNotNull(result);
         assertEquals("updateduser", result.getUsername());
         assertEquals("encodednewpassword", result.getPassword());
+        verify(permissionIndex).rename("testuser", "updateduser");
+        verify(userEventOutbox).append(UserEvent.Type.UPDATED, 1L, "updateduser", "updated@example.com");
     }
 
     @Test
@@ -89,6 +114,8 @@ class UsersAuthApplicationTests {
 
         userService.deleteUser(1L);
         verify(userRepository, times(1)).deleteById(1L);
+        verify(userCache).evict(1L);
+        verify(userEventOutbox).append(UserEvent.Type.DELETED, 1L, null, null);
     }
 
 }